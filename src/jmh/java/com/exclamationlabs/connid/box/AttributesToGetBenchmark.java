@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import org.identityconnectors.framework.common.objects.OperationOptions;
+import org.identityconnectors.framework.common.objects.OperationOptionsBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of translating the attributes to get of a query into the Box "fields" parameter.
+ * It's executed once per search, but also once per object in some code paths.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AttributesToGetBenchmark {
+
+    private UsersHandler handler;
+    private OperationOptions options;
+    private Set<String> attributesToGet;
+
+    @Setup
+    public void setup() {
+        handler = new UsersHandler("benchmark", BenchmarkFixtures.newAPIConnection(), new BoxConfiguration(),
+                ObjectCache.DISABLED, MetricsRegistry.NOOP);
+        options = new OperationOptionsBuilder()
+                .setReturnDefaultAttributes(true)
+                .setAttributesToGet(UsersHandler.FULL_ATTRS_WITH_ASSOCIATION_SET)
+                .build();
+        attributesToGet = AbstractHandler.createFullAttributesToGetSet(UsersHandler.STANDARD_ATTRS_SET, options);
+    }
+
+    @Benchmark
+    public Set<String> createFullAttributesToGetSet() {
+        return AbstractHandler.createFullAttributesToGetSet(UsersHandler.STANDARD_ATTRS_SET, options);
+    }
+
+    /**
+     * The translation cached per shape of the options.
+     */
+    @Benchmark
+    public Set<String> getAttributesToGet() {
+        return handler.getAttributesToGet(UsersHandler.STANDARD_ATTRS_SET, options);
+    }
+
+    @Benchmark
+    public String[] toFetchFields() {
+        return handler.toFetchFields(attributesToGet, UsersHandler.ASSOCIATION_ATTRS_SET);
+    }
+}
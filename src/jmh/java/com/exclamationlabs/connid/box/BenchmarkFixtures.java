@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import com.box.sdk.BoxAPIConnection;
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonArray;
+import com.eclipsesource.json.JsonObject;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Synthetic pages for the benchmarks. Each page is generated from the first entry of a JSON fixture in
+ * src/test/resources by replacing the id and the name, so no Box tenant is needed.
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    static BoxAPIConnection newAPIConnection() {
+        // The mapping doesn't call Box API as long as the association attributes aren't requested
+        return new BoxAPIConnection("dummy");
+    }
+
+    /**
+     * @return "List enterprise users" response with the objects
+     */
+    static JsonObject userPage(int objects) {
+        JsonObject template = loadFirstEntry("user-list-1.json");
+        JsonArray entries = new JsonArray();
+        for (int i = 0; i < objects; i++) {
+            JsonObject entry = copy(template);
+            entry.set("id", String.valueOf(10000000 + i));
+            entry.set("login", "user" + i + "@example.com");
+            entry.set("name", "User " + i);
+            entry.set("external_app_user_id", "app-user-" + i);
+            entries.add(entry);
+        }
+        return page(entries);
+    }
+
+    /**
+     * @return "List groups for enterprise" response with the objects
+     */
+    static JsonObject groupPage(int objects) {
+        JsonObject template = loadFirstEntry("group-list-1.json");
+        JsonArray entries = new JsonArray();
+        for (int i = 0; i < objects; i++) {
+            JsonObject entry = copy(template);
+            entry.set("id", String.valueOf(20000000 + i));
+            entry.set("name", "Group " + i);
+            entry.set("external_sync_identifier", "AD:" + i);
+            entries.add(entry);
+        }
+        return page(entries);
+    }
+
+    private static JsonObject page(JsonArray entries) {
+        return new JsonObject()
+                .add("total_count", entries.size())
+                .add("limit", entries.size())
+                .add("offset", 0)
+                .add("entries", entries);
+    }
+
+    private static JsonObject copy(JsonObject json) {
+        return Json.parse(json.toString()).asObject();
+    }
+
+    private static JsonObject loadFirstEntry(String resource) {
+        try (Reader reader = new InputStreamReader(BenchmarkFixtures.class.getResourceAsStream("/" + resource),
+                StandardCharsets.UTF_8)) {
+            return Json.parse(reader).asObject().get("entries").asArray().get(0).asObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
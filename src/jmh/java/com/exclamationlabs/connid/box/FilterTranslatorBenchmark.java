@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import org.identityconnectors.framework.common.objects.AttributeBuilder;
+import org.identityconnectors.framework.common.objects.Name;
+import org.identityconnectors.framework.common.objects.Uid;
+import org.identityconnectors.framework.common.objects.filter.Filter;
+import org.identityconnectors.framework.common.objects.filter.FilterBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.exclamationlabs.connid.box.UsersHandler.OBJECT_CLASS_USER;
+
+/**
+ * Throughput of translating the search filters into BoxFilter.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilterTranslatorBenchmark {
+
+    // Number of the uids combined by OR
+    @Param({"10", "100"})
+    int uids;
+
+    private Filter byUid;
+    private Filter byNamePrefix;
+    private Filter byExternalAppUserId;
+    private Filter orOfUids;
+
+    @Setup
+    public void setup() {
+        byUid = FilterBuilder.equalTo(new Uid("11446498"));
+        byNamePrefix = FilterBuilder.startsWith(new Name("ceo"));
+        byExternalAppUserId = FilterBuilder.equalTo(AttributeBuilder.build(UsersHandler.ATTR_EXTERNAL_APP_USER_ID, "my-user-1234"));
+
+        Filter filter = FilterBuilder.equalTo(new Uid(String.valueOf(10000000)));
+        for (int i = 1; i < uids; i++) {
+            filter = FilterBuilder.or(filter, FilterBuilder.equalTo(new Uid(String.valueOf(10000000 + i))));
+        }
+        orOfUids = filter;
+    }
+
+    @Benchmark
+    public List<BoxFilter> byUid() {
+        return new BoxFilterTranslator(OBJECT_CLASS_USER).translate(byUid);
+    }
+
+    @Benchmark
+    public List<BoxFilter> byNamePrefix() {
+        return new BoxFilterTranslator(OBJECT_CLASS_USER).translate(byNamePrefix);
+    }
+
+    @Benchmark
+    public List<BoxFilter> byExternalAppUserId() {
+        return new BoxFilterTranslator(OBJECT_CLASS_USER).translate(byExternalAppUserId);
+    }
+
+    @Benchmark
+    public List<BoxFilter> orOfUids() {
+        return new BoxFilterTranslator(OBJECT_CLASS_USER).translate(orOfUids);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import com.box.sdk.BoxAPIConnection;
+import com.box.sdk.BoxGroup;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of mapping a page of groups to ConnectorObjects. One operation maps the whole page.
+ * Run with "-prof gc" to see the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GroupMappingBenchmark {
+
+    @Param({"1000", "10000"})
+    int objects;
+
+    private GroupsHandler handler;
+    private ProjectionPlan<BoxGroup.Info> plan;
+    private List<BoxGroup.Info> infos;
+
+    @Setup
+    public void setup() {
+        BoxAPIConnection api = BenchmarkFixtures.newAPIConnection();
+        handler = new GroupsHandler("benchmark", api, new BoxConfiguration(), ObjectCache.DISABLED);
+
+        // All the attributes except the members which need Box API
+        Set<String> attributesToGet = new HashSet<>(GroupsHandler.FULL_ATTRS_WITH_ASSOCIATION_SET);
+        attributesToGet.removeAll(GroupsHandler.ASSOCIATION_ATTRS_SET);
+        plan = handler.compileProjection(attributesToGet);
+
+        JsonObject page = BenchmarkFixtures.groupPage(objects);
+        infos = new ArrayList<>(objects);
+        for (JsonValue entry : page.get("entries").asArray()) {
+            JsonObject json = entry.asObject();
+            infos.add(new BoxGroup(api, json.get("id").asString()).new Info(json.toString()));
+        }
+    }
+
+    @Benchmark
+    public void groupToConnectorObject(Blackhole bh) {
+        for (BoxGroup.Info info : infos) {
+            bh.consume(handler.groupToConnectorObject(info, plan, false));
+        }
+    }
+}
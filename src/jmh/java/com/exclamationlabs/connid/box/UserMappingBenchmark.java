@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import com.box.sdk.BoxAPIConnection;
+import com.box.sdk.BoxUser;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
+import org.identityconnectors.framework.common.objects.ConnectorObject;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of mapping a page of users to ConnectorObjects. One operation maps the whole page.
+ * Run with "-prof gc" to see the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserMappingBenchmark {
+
+    @Param({"1000", "10000"})
+    int objects;
+
+    private UsersHandler handler;
+    private ProjectionPlan<BoxUser.Info> plan;
+    private UserJsonMapper jsonMapper;
+    private List<BoxUser.Info> infos;
+    private String pageJson;
+
+    @Setup
+    public void setup() {
+        BoxAPIConnection api = BenchmarkFixtures.newAPIConnection();
+        handler = new UsersHandler("benchmark", api, new BoxConfiguration(), ObjectCache.DISABLED, MetricsRegistry.NOOP);
+
+        // All the attributes except the associations which need Box API
+        Set<String> attributesToGet = new HashSet<>(UsersHandler.FULL_ATTRS_WITH_ASSOCIATION_SET);
+        attributesToGet.removeAll(UsersHandler.ASSOCIATION_ATTRS_SET);
+        plan = handler.compileProjection(attributesToGet);
+        jsonMapper = UserJsonMapper.compile(attributesToGet);
+
+        JsonObject page = BenchmarkFixtures.userPage(objects);
+        infos = new ArrayList<>(objects);
+        for (JsonValue entry : page.get("entries").asArray()) {
+            JsonObject json = entry.asObject();
+            infos.add(new BoxUser(api, json.get("id").asString()).new Info(json.toString()));
+        }
+        pageJson = page.toString();
+    }
+
+    /**
+     * UsersHandler.userToConnectorObject for the already parsed users.
+     */
+    @Benchmark
+    public void userToConnectorObject(Blackhole bh) {
+        for (BoxUser.Info info : infos) {
+            bh.consume(handler.userToConnectorObject(info, plan, false));
+        }
+    }
+
+    /**
+     * UserJsonMapper which maps the paged search response without BoxUser.Info.
+     */
+    @Benchmark
+    public String mapPage(Blackhole bh) throws IOException {
+        return jsonMapper.mapPage(new StringReader(pageJson), (id, builder) -> {
+            ConnectorObject connectorObject = builder.build();
+            bh.consume(connectorObject);
+            return true;
+        });
+    }
+}
@@ -7,17 +7,29 @@
 
 package com.exclamationlabs.connid.box;
 
-import com.box.sdk.BoxAPIConnection;
-import com.box.sdk.BoxAPIException;
+import com.box.sdk.*;
 import com.eclipsesource.json.JsonObject;
 import com.eclipsesource.json.JsonValue;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+import org.identityconnectors.framework.common.exceptions.ConnectorIOException;
 import org.identityconnectors.framework.common.exceptions.UnknownUidException;
 import org.identityconnectors.framework.common.objects.*;
+import org.identityconnectors.framework.spi.SearchResultsHandler;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class AbstractHandler {
@@ -31,9 +43,19 @@ public class AbstractHandler {
             ATTR_TYPE
     };
 
+    // Maximum "limit" of Box list APIs
+    protected static final int MAX_PAGE_SIZE = 1000;
+
+    // Maximum number of the cached shapes of attributes to get
+    protected static final int MAX_CACHED_ATTRIBUTES_SHAPES = 64;
+
     protected final String instanceName;
     protected final BoxAPIConnection boxAPI;
 
+    // The handler is reused by the connector instance, so cache the translation of attributes to get
+    private final Map<AttributesToGetKey, Set<String>> attributesToGetCache = new ConcurrentHashMap<>();
+    private final Map<FetchFieldsKey, String[]> fetchFieldsCache = new ConcurrentHashMap<>();
+
     public AbstractHandler(String instanceName, BoxAPIConnection boxAPI) {
         this.instanceName = instanceName;
         this.boxAPI = boxAPI;
@@ -95,7 +117,7 @@ public class AbstractHandler {
         return valuesToRemove.stream().map(v -> v.toString()).collect(Collectors.toSet());
     }
 
-    protected ZonedDateTime toZonedDateTime(Date date) {
+    protected static ZonedDateTime toZonedDateTime(Date date) {
         if (date == null) {
             return null;
         }
@@ -104,13 +126,26 @@ public class AbstractHandler {
         return ZonedDateTime.ofInstant(instant, zone);
     }
 
-    protected String toString(String s) {
+    protected static String toString(String s) {
         if (s == null || s.isEmpty()) {
             return null;
         }
         return s;
     }
 
+    protected Set<String> getAttributesToGet(Set<String> standardAttributesSet, OperationOptions options) {
+        AttributesToGetKey key = new AttributesToGetKey(standardAttributesSet, shouldReturnDefaultAttributes(options),
+                options.getAttributesToGet());
+        Set<String> attributesToGet = attributesToGetCache.get(key);
+        if (attributesToGet == null) {
+            attributesToGet = createFullAttributesToGetSet(standardAttributesSet, options);
+            if (attributesToGetCache.size() < MAX_CACHED_ATTRIBUTES_SHAPES) {
+                attributesToGetCache.put(key, attributesToGet);
+            }
+        }
+        return attributesToGet;
+    }
+
     protected static Set<String> createFullAttributesToGetSet(Set<String> standardAttributesSet, OperationOptions options) {
         Set<String> attributesToGet = new HashSet<>();
         if (shouldReturnDefaultAttributes(options)) {
@@ -134,6 +169,93 @@ public class AbstractHandler {
         return Boolean.TRUE.equals(options.getAllowPartialAttributeValues());
     }
 
+    public static boolean isPagedSearch(OperationOptions options) {
+        return options != null && options.getPageSize() != null && options.getPageSize() > 0;
+    }
+
+    protected int toPageLimit(OperationOptions options) {
+        return Math.min(options.getPageSize(), MAX_PAGE_SIZE);
+    }
+
+    protected JsonObject fetchPage(URLTemplate template, String query) {
+        URL url = template.buildWithQuery(boxAPI.getBaseURL(), query);
+        BoxJSONResponse response = (BoxJSONResponse) new BoxAPIRequest(boxAPI, url, "GET").send();
+        return response.getJsonObject();
+    }
+
+    /**
+     * Fetch a page and read the response body with the page reader without parsing it into a JsonObject.
+     */
+    protected <T> T fetchPage(URLTemplate template, String query, PageReader<T> pageReader) {
+        URL url = template.buildWithQuery(boxAPI.getBaseURL(), query);
+        BoxAPIRequest request = new BoxAPIRequest(boxAPI, url, "GET");
+        if (boxAPI instanceof BoxConnection) {
+            request.addHeader(BoxConnection.RAW_BODY_HEADER, "true");
+        }
+        BoxAPIResponse response = request.send();
+        try {
+            // The response is already parsed if the connection doesn't support the raw body
+            Reader reader = response instanceof BoxJSONResponse ?
+                    new StringReader(((BoxJSONResponse) response).getJSON()) :
+                    new InputStreamReader(response.getBody(), StandardCharsets.UTF_8);
+            return pageReader.read(reader);
+        } catch (IOException e) {
+            throw new ConnectorIOException("Failed to read the response of " + url, e);
+        } finally {
+            response.close();
+        }
+    }
+
+    @FunctionalInterface
+    protected interface PageReader<T> {
+        T read(Reader reader) throws IOException;
+    }
+
+    protected String toFieldsParam(String[] fields) {
+        if (fields.length == 0) {
+            return "";
+        }
+        return "&fields=" + encodeQueryParam(String.join(",", fields));
+    }
+
+    protected static String encodeQueryParam(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new ConnectorException(e);
+        }
+    }
+
+    /**
+     * Fetch the objects of the uids with the runner and pass them to the handler in the order of the uids.
+     * The lookup returns null for an unknown uid, and it's skipped.
+     */
+    protected void lookupAll(BoundedTaskRunner runner, List<Uid> uids, Function<Uid, ConnectorObject> lookup, ResultsHandler handler) {
+        ConnectorObject[] results = new ConnectorObject[uids.size()];
+        List<Runnable> tasks = new ArrayList<>(uids.size());
+        for (int i = 0; i < uids.size(); i++) {
+            int index = i;
+            tasks.add(() -> results[index] = lookup.apply(uids.get(index)));
+        }
+
+        List<RuntimeException> failures = runner.runAll(tasks);
+
+        for (int i = 0; i < results.length; i++) {
+            if (failures.get(i) != null) {
+                throw failures.get(i);
+            }
+            if (results[i] != null && !handler.handle(results[i])) {
+                return;
+            }
+        }
+    }
+
+    protected void handleSearchResult(ResultsHandler handler, String pagedResultsCookie, int remainingPagedResults) {
+        if (handler instanceof SearchResultsHandler) {
+            ((SearchResultsHandler) handler).handleResult(new SearchResult(pagedResultsCookie, remainingPagedResults));
+        }
+    }
+
     protected boolean isUserAlreadyExistsError(BoxAPIException e) {
         if (e.getResponseCode() != 409) {
             return false;
@@ -171,7 +293,68 @@ public class AbstractHandler {
     }
 
     protected String[] toFetchFields(Set<String> attributesToGet, Set<String> excludes) {
-        String[] fetchFields = attributesToGet.stream().filter(a -> !excludes.contains(a)).toArray(String[]::new);
+        FetchFieldsKey key = new FetchFieldsKey(attributesToGet, excludes);
+        String[] fetchFields = fetchFieldsCache.get(key);
+        if (fetchFields == null) {
+            fetchFields = attributesToGet.stream().filter(a -> !excludes.contains(a)).toArray(String[]::new);
+            if (fetchFieldsCache.size() < MAX_CACHED_ATTRIBUTES_SHAPES) {
+                fetchFieldsCache.put(key, fetchFields);
+            }
+        }
+        // The cached array is shared, don't modify it
         return fetchFields;
     }
+
+    private static class AttributesToGetKey {
+        private final Set<String> standardAttributesSet;
+        private final boolean returnDefaultAttributes;
+        private final String[] attributesToGet;
+
+        AttributesToGetKey(Set<String> standardAttributesSet, boolean returnDefaultAttributes, String[] attributesToGet) {
+            this.standardAttributesSet = standardAttributesSet;
+            this.returnDefaultAttributes = returnDefaultAttributes;
+            this.attributesToGet = attributesToGet;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            AttributesToGetKey that = (AttributesToGetKey) o;
+            // The standard attributes set is a constant of each handler
+            return standardAttributesSet == that.standardAttributesSet &&
+                    returnDefaultAttributes == that.returnDefaultAttributes &&
+                    Arrays.equals(attributesToGet, that.attributesToGet);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(standardAttributesSet) + Boolean.hashCode(returnDefaultAttributes)) +
+                    Arrays.hashCode(attributesToGet);
+        }
+    }
+
+    private static class FetchFieldsKey {
+        private final Set<String> attributesToGet;
+        private final Set<String> excludes;
+
+        FetchFieldsKey(Set<String> attributesToGet, Set<String> excludes) {
+            this.attributesToGet = attributesToGet;
+            this.excludes = excludes;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            FetchFieldsKey that = (FetchFieldsKey) o;
+            // The excludes set is a constant of each handler
+            return excludes == that.excludes && attributesToGet.equals(that.attributesToGet);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(excludes) + attributesToGet.hashCode();
+        }
+    }
 }
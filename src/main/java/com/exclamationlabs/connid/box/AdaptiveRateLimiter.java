@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import org.identityconnectors.common.logging.Log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Token bucket rate limiter for all HTTP requests to Box, shared by the connector instances of the same Box app.
+ * The rate is adapted with AIMD: it's halved when Box returns "429 Too Many Requests" and all requests are paused
+ * for the "Retry-After" period, then it's raised gradually while the requests succeed, up to the configured rate.
+ */
+public class AdaptiveRateLimiter implements Interceptor {
+
+    private static final Log LOGGER = Log.getLog(AdaptiveRateLimiter.class);
+
+    private static final ConcurrentMap<String, AdaptiveRateLimiter> LIMITERS = new ConcurrentHashMap<>();
+
+    static final double MIN_RATE = 1.0;
+    // Requests per second added to the rate per second of successful requests
+    static final double ADDITIVE_INCREASE = 1.0;
+    static final double MULTIPLICATIVE_DECREASE = 0.5;
+
+    private final String key;
+    private volatile double maxRate;
+
+    // Guarded by this
+    private double rate;
+    private double tokens;
+    private long lastRefillNanos;
+    private long pauseUntilNanos;
+
+    AdaptiveRateLimiter(String key, double maxRate) {
+        this.key = key;
+        this.maxRate = maxRate;
+        this.rate = maxRate;
+        // Allow a burst of one second
+        this.tokens = maxRate;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Returns the limiter shared by the connector instances for the key (enterprise id + client id).
+     */
+    public static AdaptiveRateLimiter getInstance(String key, double maxRate) {
+        AdaptiveRateLimiter limiter = LIMITERS.computeIfAbsent(key, k -> new AdaptiveRateLimiter(k, maxRate));
+        if (limiter.maxRate != maxRate) {
+            // The configuration was changed
+            limiter.setMaxRate(maxRate);
+        }
+        return limiter;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        try {
+            acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the rate limit");
+        }
+
+        Response response = chain.proceed(chain.request());
+
+        if (response.code() == 429) {
+            onThrottled(Throttle.getRetryAfterMillis(response.header("Retry-After")));
+        } else {
+            onSuccess();
+        }
+        return response;
+    }
+
+    /**
+     * Wait until a request can be sent.
+     */
+    public void acquire() throws InterruptedException {
+        while (true) {
+            long waitNanos = tryAcquire(System.nanoTime());
+            if (waitNanos <= 0) {
+                return;
+            }
+            Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+        }
+    }
+
+    /**
+     * Take a token if available.
+     *
+     * @return 0 if a token was taken, otherwise nanoseconds to wait before trying again
+     */
+    synchronized long tryAcquire(long now) {
+        if (now < pauseUntilNanos) {
+            return pauseUntilNanos - now;
+        }
+        refill(now);
+        if (tokens >= 1.0) {
+            tokens -= 1.0;
+            return 0;
+        }
+        return (long) Math.ceil((1.0 - tokens) / rate * 1_000_000_000L);
+    }
+
+    synchronized void onSuccess() {
+        if (rate < maxRate) {
+            // Additive increase spread over the requests: +ADDITIVE_INCREASE per second of requests at the current rate
+            rate = Math.min(maxRate, rate + ADDITIVE_INCREASE / rate);
+        }
+    }
+
+    synchronized void onThrottled(long retryAfterMillis) {
+        double newRate = Math.max(MIN_RATE, rate * MULTIPLICATIVE_DECREASE);
+        long now = System.nanoTime();
+        pauseUntilNanos = Math.max(pauseUntilNanos, now + retryAfterMillis * 1_000_000L);
+        // Drop the burst not to send many requests at once after the pause
+        tokens = 0;
+        lastRefillNanos = Math.max(lastRefillNanos, pauseUntilNanos);
+
+        LOGGER.info("Rate limited by Box for {0}, lower the request rate from {1} to {2} per second and pause {3} ms",
+                key, rate, newRate, retryAfterMillis);
+        rate = newRate;
+    }
+
+    synchronized double getRate() {
+        return rate;
+    }
+
+    private synchronized void setMaxRate(double maxRate) {
+        this.maxRate = maxRate;
+        this.rate = Math.min(rate, maxRate);
+    }
+
+    private void refill(long now) {
+        if (now > lastRefillNanos) {
+            double elapsedSeconds = (now - lastRefillNanos) / 1_000_000_000.0;
+            tokens = Math.min(rate, tokens + elapsedSeconds * rate);
+            lastRefillNanos = now;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+import org.identityconnectors.framework.common.exceptions.ConnectorIOException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Run independent API calls with bounded parallelism and collect the failure of each call.
+ * All the calls sharing a runner back off together on "429 Too Many Requests" via {@link Throttle},
+ * including the calls of other batches running at the same time.
+ * When the parallelism is 1, the calls are executed sequentially in the caller thread.
+ * The worker threads are daemon threads created on demand, and they exit after being idle for 60 seconds,
+ * so the runner doesn't need to be shut down when the connector instance is disposed.
+ */
+public class BoundedTaskRunner {
+
+    private final String instanceName;
+    private final String threadNamePrefix;
+    private final int parallelism;
+    private final Throttle throttle;
+    private ExecutorService executor;
+
+    public BoundedTaskRunner(String instanceName, String threadNamePrefix, int parallelism, int maxRetryAttempts) {
+        this.instanceName = instanceName;
+        this.threadNamePrefix = threadNamePrefix;
+        this.parallelism = parallelism;
+        this.throttle = new Throttle(instanceName, maxRetryAttempts);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return the throttle shared by all the calls of this runner, for the calls whose failures are handled
+     * inside the task
+     */
+    public Throttle getThrottle() {
+        return throttle;
+    }
+
+    /**
+     * Run all the tasks even if some of them fail.
+     *
+     * @return the failure of each task in the same order, or null if the task succeeded
+     */
+    public List<RuntimeException> runAll(List<Runnable> tasks) {
+        List<RuntimeException> failures = new ArrayList<>(tasks.size());
+
+        if (parallelism <= 1 || tasks.size() <= 1) {
+            for (Runnable task : tasks) {
+                try {
+                    throttle.run(task);
+                    failures.add(null);
+                } catch (RuntimeException e) {
+                    failures.add(e);
+                }
+            }
+            return failures;
+        }
+
+        List<Future<?>> futures = new ArrayList<>(tasks.size());
+        for (Runnable task : tasks) {
+            futures.add(getExecutor().submit(() -> throttle.run(task)));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+                failures.add(null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (Future<?> f : futures) {
+                    f.cancel(true);
+                }
+                throw new ConnectorIOException("Interrupted while waiting for the API calls", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                failures.add(cause instanceof RuntimeException ? (RuntimeException) cause : new ConnectorException(cause));
+            }
+        }
+        return failures;
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), new DaemonThreadFactory(threadNamePrefix, instanceName));
+            // Release idle threads since the connector instance might be kept in the pool for a long time
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+        return executor;
+    }
+}
@@ -29,6 +29,22 @@ public class BoxConfiguration extends AbstractConfiguration {
     private int maxRetryAttempts = 5;
     private int connectionTimeoutInMilliseconds = 10000;
     private int readTimeoutInMilliseconds = 10000;
+    private boolean membershipPrefetch = false;
+    private int searchParallelism = 1;
+    private int membershipMutationParallelism = 1;
+    private int maxRequestsPerSecond = 0;
+    private boolean metricsEnabled = false;
+    private int requestRecorderSize = 0;
+    private int bulkCreateParallelism = 1;
+    private int lookupParallelism = 1;
+    private int objectCacheSize = 0;
+    private int objectCacheTtlInMilliseconds = 30000;
+    private int maxIdleConnections = 5;
+    private int keepAliveDurationInMilliseconds = 300000;
+    private boolean gzipEnabled = true;
+    private int prewarmConnections = 0;
+    private String userScanCheckpointFile;
+    private int pagePrefetchDepth = 1;
 
     @ConfigurationProperty(
             order = 1,
@@ -212,11 +228,282 @@ public class BoxConfiguration extends AbstractConfiguration {
         this.readTimeoutInMilliseconds = readTimeoutInMilliseconds;
     }
 
+    @ConfigurationProperty(
+            order = 14,
+            displayMessageKey = "Membership Prefetch",
+            helpMessageKey = "If true, when searching all users with group membership attributes, fetch the memberships of all groups once before listing users instead of fetching them per user (Default: false)",
+            required = false,
+            confidential = false)
+    public boolean isMembershipPrefetch() {
+        return membershipPrefetch;
+    }
+
+    public void setMembershipPrefetch(boolean membershipPrefetch) {
+        this.membershipPrefetch = membershipPrefetch;
+    }
+
+    @ConfigurationProperty(
+            order = 15,
+            displayMessageKey = "Search Parallelism",
+            helpMessageKey = "Number of concurrent requests when searching all users or groups. The pages of groups are fetched concurrently. The pages of users are fetched one by one following the markers, and the group memberships of the users in each page are fetched concurrently. 1 means sequential requests (Default: 1)",
+            required = false,
+            confidential = false)
+    public int getSearchParallelism() {
+        return searchParallelism;
+    }
+
+    public void setSearchParallelism(int searchParallelism) {
+        this.searchParallelism = searchParallelism;
+    }
+
+    @ConfigurationProperty(
+            order = 16,
+            displayMessageKey = "Membership Mutation Parallelism",
+            helpMessageKey = "Number of concurrent group membership add/remove/update requests when creating or updating a user. 1 means executing them sequentially (Default: 1)",
+            required = false,
+            confidential = false)
+    public int getMembershipMutationParallelism() {
+        return membershipMutationParallelism;
+    }
+
+    public void setMembershipMutationParallelism(int membershipMutationParallelism) {
+        this.membershipMutationParallelism = membershipMutationParallelism;
+    }
+
+    @ConfigurationProperty(
+            order = 17,
+            displayMessageKey = "Max Requests Per Second",
+            helpMessageKey = "Upper limit of the Box API request rate shared by all connector instances of the same Box app. The rate is lowered automatically when Box returns \"429 Too Many Requests\" and raised again gradually. 0 means no rate limiting (Default: 0)",
+            required = false,
+            confidential = false)
+    public int getMaxRequestsPerSecond() {
+        return maxRequestsPerSecond;
+    }
+
+    public void setMaxRequestsPerSecond(int maxRequestsPerSecond) {
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+    }
+
+    @ConfigurationProperty(
+            order = 18,
+            displayMessageKey = "Enable Metrics",
+            helpMessageKey = "If true, operation latencies and Box API request counts are exported via JMX as com.exclamationlabs.connid.box:type=Metrics (Default: false)",
+            required = false,
+            confidential = false)
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    public void setMetricsEnabled(boolean metricsEnabled) {
+        this.metricsEnabled = metricsEnabled;
+    }
+
+    @ConfigurationProperty(
+            order = 19,
+            displayMessageKey = "Request Recorder Size",
+            helpMessageKey = "Number of recent Box API requests (endpoint, method, status, latency and pagination position) kept for diagnostics and exported via JMX as com.exclamationlabs.connid.box:type=RequestRecorder. 0 means disabled (Default: 0)",
+            required = false,
+            confidential = false)
+    public int getRequestRecorderSize() {
+        return requestRecorderSize;
+    }
+
+    public void setRequestRecorderSize(int requestRecorderSize) {
+        this.requestRecorderSize = requestRecorderSize;
+    }
+
+    @ConfigurationProperty(
+            order = 20,
+            displayMessageKey = "Bulk Create Parallelism",
+            helpMessageKey = "Number of concurrent user creations and group membership additions when creating users in bulk. 1 means executing them sequentially (Default: 1)",
+            required = false,
+            confidential = false)
+    public int getBulkCreateParallelism() {
+        return bulkCreateParallelism;
+    }
+
+    public void setBulkCreateParallelism(int bulkCreateParallelism) {
+        this.bulkCreateParallelism = bulkCreateParallelism;
+    }
+
+    @ConfigurationProperty(
+            order = 21,
+            displayMessageKey = "Lookup Parallelism",
+            helpMessageKey = "Number of concurrent requests when searching users or groups by multiple UIDs. 1 means fetching them sequentially (Default: 1)",
+            required = false,
+            confidential = false)
+    public int getLookupParallelism() {
+        return lookupParallelism;
+    }
+
+    public void setLookupParallelism(int lookupParallelism) {
+        this.lookupParallelism = lookupParallelism;
+    }
+
+    @ConfigurationProperty(
+            order = 22,
+            displayMessageKey = "Object Cache Size",
+            helpMessageKey = "Maximum number of users and groups fetched by UID which are kept in the cache shared by all connector instances of the same Box app. The cache is invalidated by create/update/delete of this connector, and the hit rate is exported via JMX as com.exclamationlabs.connid.box:type=ObjectCache. 0 means disabled (Default: 0)",
+            required = false,
+            confidential = false)
+    public int getObjectCacheSize() {
+        return objectCacheSize;
+    }
+
+    public void setObjectCacheSize(int objectCacheSize) {
+        this.objectCacheSize = objectCacheSize;
+    }
+
+    @ConfigurationProperty(
+            order = 23,
+            displayMessageKey = "Object Cache TTL (in milliseconds)",
+            helpMessageKey = "Time to live of the cached users and groups. Changes made outside of this connector are visible after this period (Default: 30000)",
+            required = false,
+            confidential = false)
+    public int getObjectCacheTtlInMilliseconds() {
+        return objectCacheTtlInMilliseconds;
+    }
+
+    public void setObjectCacheTtlInMilliseconds(int objectCacheTtlInMilliseconds) {
+        this.objectCacheTtlInMilliseconds = objectCacheTtlInMilliseconds;
+    }
+
+    @ConfigurationProperty(
+            order = 24,
+            displayMessageKey = "Max Idle Connections",
+            helpMessageKey = "Maximum number of idle keep-alive connections in the HTTP connection pool shared by all connector instances of the same Box app. Set it to the number of concurrent requests, e.g. the connector pool size times the parallelism (Default: 5)",
+            required = false,
+            confidential = false)
+    public int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+
+    public void setMaxIdleConnections(int maxIdleConnections) {
+        this.maxIdleConnections = maxIdleConnections;
+    }
+
+    @ConfigurationProperty(
+            order = 25,
+            displayMessageKey = "Keep-Alive Duration (in milliseconds)",
+            helpMessageKey = "Time to keep an idle connection in the HTTP connection pool. Keep it shorter than the idle timeout of the HTTP proxy (Default: 300000)",
+            required = false,
+            confidential = false)
+    public int getKeepAliveDurationInMilliseconds() {
+        return keepAliveDurationInMilliseconds;
+    }
+
+    public void setKeepAliveDurationInMilliseconds(int keepAliveDurationInMilliseconds) {
+        this.keepAliveDurationInMilliseconds = keepAliveDurationInMilliseconds;
+    }
+
+    @ConfigurationProperty(
+            order = 26,
+            displayMessageKey = "Gzip Enabled",
+            helpMessageKey = "If true, request gzip compressed responses from Box API. If false, request uncompressed responses, e.g. when the HTTP proxy fails to handle them (Default: true)",
+            required = false,
+            confidential = false)
+    public boolean isGzipEnabled() {
+        return gzipEnabled;
+    }
+
+    public void setGzipEnabled(boolean gzipEnabled) {
+        this.gzipEnabled = gzipEnabled;
+    }
+
+    @ConfigurationProperty(
+            order = 27,
+            displayMessageKey = "Prewarm Connections",
+            helpMessageKey = "Number of connections opened to Box API when the first connector instance of the Box app is initialized, to avoid the TCP and TLS handshake on the first operations. 0 means disabled (Default: 0)",
+            required = false,
+            confidential = false)
+    public int getPrewarmConnections() {
+        return prewarmConnections;
+    }
+
+    public void setPrewarmConnections(int prewarmConnections) {
+        this.prewarmConnections = prewarmConnections;
+    }
+
+    @ConfigurationProperty(
+            order = 28,
+            displayMessageKey = "User Scan Checkpoint File",
+            helpMessageKey = "File path to save the marker of the last completed page while searching all users. If the search fails, a search of all users with the same attributes to get and the resumeFromCheckpoint operation option resumes from the checkpoint instead of starting over; it returns only the users after the checkpoint. A search without the option starts over. The file is deleted when the search ends without an error. Concurrent searches in the same process don't share the file; only the first one uses it. It isn't used when Search Parallelism is greater than 1 (Default: empty)",
+            required = false,
+            confidential = false)
+    public String getUserScanCheckpointFile() {
+        return userScanCheckpointFile;
+    }
+
+    public void setUserScanCheckpointFile(String userScanCheckpointFile) {
+        this.userScanCheckpointFile = userScanCheckpointFile;
+    }
+
+    @ConfigurationProperty(
+            order = 29,
+            displayMessageKey = "Page Prefetch Depth",
+            helpMessageKey = "Number of pages fetched ahead in the background while searching all users or groups, to overlap the Box API latency with the processing of the current page. 0 means fetching the next page after processing the current one. It isn't used when Search Parallelism is greater than 1 (Default: 1)",
+            required = false,
+            confidential = false)
+    public int getPagePrefetchDepth() {
+        return pagePrefetchDepth;
+    }
+
+    public void setPagePrefetchDepth(int pagePrefetchDepth) {
+        this.pagePrefetchDepth = pagePrefetchDepth;
+    }
+
     @Override
     public void validate() {
         if (StringUtil.isBlank(configFilePath) && configJson == null) {
             throw new ConfigurationException("configFilePath or configJson must not be empty");
         }
+        if (searchParallelism < 1) {
+            throw new ConfigurationException("searchParallelism must be greater than 0");
+        }
+        if (membershipMutationParallelism < 1) {
+            throw new ConfigurationException("membershipMutationParallelism must be greater than 0");
+        }
+        if (maxRequestsPerSecond < 0) {
+            throw new ConfigurationException("maxRequestsPerSecond must not be negative");
+        }
+        if (requestRecorderSize < 0) {
+            throw new ConfigurationException("requestRecorderSize must not be negative");
+        }
+        if (bulkCreateParallelism < 1) {
+            throw new ConfigurationException("bulkCreateParallelism must be greater than 0");
+        }
+        if (lookupParallelism < 1) {
+            throw new ConfigurationException("lookupParallelism must be greater than 0");
+        }
+        if (objectCacheSize < 0) {
+            throw new ConfigurationException("objectCacheSize must not be negative");
+        }
+        if (objectCacheTtlInMilliseconds < 0) {
+            throw new ConfigurationException("objectCacheTtlInMilliseconds must not be negative");
+        }
+        if (maxIdleConnections < 0) {
+            throw new ConfigurationException("maxIdleConnections must not be negative");
+        }
+        if (keepAliveDurationInMilliseconds < 1) {
+            throw new ConfigurationException("keepAliveDurationInMilliseconds must be greater than 0");
+        }
+        if (prewarmConnections < 0) {
+            throw new ConfigurationException("prewarmConnections must not be negative");
+        }
+        if (pagePrefetchDepth < 0) {
+            throw new ConfigurationException("pagePrefetchDepth must not be negative");
+        }
+    }
+
+    /**
+     * Returns the key to cache the schema. It must contain all the properties which affect the schema.
+     * Currently, the schema doesn't depend on the configuration except for the JWT config location.
+     */
+    public String toSchemaCacheKey() {
+        return "BoxConfiguration{" +
+                "configFilePath='" + configFilePath + '\'' +
+                ", configJson=" + (configJson != null ? configJson.hashCode() : 0) +
+                '}';
     }
 
     @Override
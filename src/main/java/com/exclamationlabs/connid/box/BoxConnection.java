@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import com.box.sdk.BoxDeveloperEditionAPIConnection;
+import com.box.sdk.DeveloperEditionEntityType;
+import com.box.sdk.JWTEncryptionPreferences;
+import okhttp3.ConnectionPool;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Box API connection which allows the connector to add OkHttp interceptors to all requests and to tune the transport.
+ * The SDK rebuilds the HTTP clients when the timeouts or the proxy are set, so the interceptors and the transport
+ * settings must be set before calling them.
+ */
+public class BoxConnection extends BoxDeveloperEditionAPIConnection {
+
+    /**
+     * Request header to receive the response body as a stream. The SDK parses a JSON response into a JsonObject
+     * before returning it, so the content type of the successful response is replaced to keep the body unread.
+     * The header itself isn't sent to Box.
+     */
+    public static final String RAW_BODY_HEADER = "X-Box-Connector-Raw-Body";
+
+    private static final MediaType OCTET_STREAM = MediaType.get("application/octet-stream");
+
+    private static final Interceptor RAW_BODY_INTERCEPTOR = chain -> {
+        Request request = chain.request();
+        if (request.header(RAW_BODY_HEADER) == null) {
+            return chain.proceed(request);
+        }
+        Response response = chain.proceed(request.newBuilder().removeHeader(RAW_BODY_HEADER).build());
+        ResponseBody body = response.body();
+        if (!response.isSuccessful() || body == null) {
+            // Keep the error response as is for the error handling of the SDK
+            return response;
+        }
+        return response.newBuilder()
+                .header("Content-Type", OCTET_STREAM.toString())
+                .body(ResponseBody.create(body.source(), OCTET_STREAM, body.contentLength()))
+                .build();
+    };
+
+    /**
+     * OkHttp adds "Accept-Encoding: gzip" and decompresses the response transparently unless the request has
+     * its own Accept-Encoding header, so this one only opts out of it.
+     */
+    private static final Interceptor IDENTITY_ENCODING_INTERCEPTOR = chain ->
+            chain.proceed(chain.request().newBuilder().header("Accept-Encoding", "identity").build());
+
+    // They are null while the super constructor builds the HTTP clients
+    private List<Interceptor> interceptors;
+    private ConnectionPool connectionPool;
+    private boolean gzipDisabled;
+
+    public BoxConnection(String entityId, DeveloperEditionEntityType entityType, String clientID, String clientSecret,
+                         JWTEncryptionPreferences encryptionPref) {
+        super(entityId, entityType, clientID, clientSecret, encryptionPref);
+    }
+
+    public void addInterceptor(Interceptor interceptor) {
+        if (interceptors == null) {
+            interceptors = new ArrayList<>();
+        }
+        interceptors.add(interceptor);
+    }
+
+    public void setConnectionPool(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    public void setGzipEnabled(boolean gzipEnabled) {
+        this.gzipDisabled = !gzipEnabled;
+    }
+
+    @Override
+    protected OkHttpClient.Builder modifyHttpClientBuilder(OkHttpClient.Builder httpClientBuilder) {
+        if (connectionPool != null) {
+            httpClientBuilder.connectionPool(connectionPool);
+        }
+        if (gzipDisabled) {
+            httpClientBuilder.addInterceptor(IDENTITY_ENCODING_INTERCEPTOR);
+        }
+        httpClientBuilder.addInterceptor(RAW_BODY_INTERCEPTOR);
+        if (interceptors != null) {
+            for (Interceptor interceptor : interceptors) {
+                httpClientBuilder.addInterceptor(interceptor);
+            }
+        }
+        return httpClientBuilder;
+    }
+}
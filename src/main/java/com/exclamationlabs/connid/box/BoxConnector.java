@@ -23,7 +23,12 @@ import org.identityconnectors.framework.spi.operations.*;
 import java.io.*;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.exclamationlabs.connid.box.GroupsHandler.OBJECT_CLASS_GROUP;
 import static com.exclamationlabs.connid.box.UsersHandler.OBJECT_CLASS_USER;
@@ -31,15 +36,29 @@ import static com.exclamationlabs.connid.box.UsersHandler.OBJECT_CLASS_USER;
 
 @ConnectorClass(configurationClass = BoxConfiguration.class, displayNameKey = "Exclamation Labs Box Connector")
 public class BoxConnector implements PoolableConnector,
-        CreateOp, UpdateDeltaOp, DeleteOp, SchemaOp, TestOp, SearchOp<BoxFilter>, InstanceNameAware {
+        CreateOp, UpdateDeltaOp, DeleteOp, SchemaOp, TestOp, SearchOp<BoxFilter>, SyncOp, InstanceNameAware {
 
     private static final Log LOGGER = Log.getLog(BoxConnector.class);
 
+    // The built schema is shared by all connector instances with the same configuration
+    private static final int MAX_CACHED_SCHEMAS = 16;
+    private static final Map<String, Schema> SCHEMA_CACHE = new ConcurrentHashMap<>();
+
     private BoxConfiguration configuration;
     protected BoxAPIConnection boxAPI;
     private BoxConfig boxConfig;
     private String instanceName;
 
+    // Handlers are created once per connector instance and reset when the connection is disposed
+    private UsersHandler usersHandler;
+    private GroupsHandler groupsHandler;
+    private SyncHandler syncHandler;
+
+    private MetricsRegistry metricsRegistry = MetricsRegistry.NOOP;
+    private MetricsInterceptor metricsInterceptor;
+    protected ObjectCache objectCache = ObjectCache.DISABLED;
+    private SharedConnectionPool connectionPool;
+
     @Override
     public BoxConfiguration getConfiguration() {
         return configuration;
@@ -63,6 +82,7 @@ public class BoxConnector implements PoolableConnector,
     public void setInstanceName(String instanceName) {
         // Called after initialized
         this.instanceName = instanceName;
+        resetHandlers();
     }
 
     protected void authenticateResource() {
@@ -74,18 +94,40 @@ public class BoxConnector implements PoolableConnector,
             LOGGER.error(e, "[{0}] Error loading Box JWT Auth Config File", instanceName);
         }
 
-        final BoxDeveloperEditionAPIConnection boxDeveloperEditionAPIConnection;
+        final BoxConnection boxDeveloperEditionAPIConnection;
         try {
-            if (StringUtil.isEmpty(getConfiguration().getHttpProxyHost())) {
-                boxDeveloperEditionAPIConnection = BoxDeveloperEditionAPIConnection.getAppEnterpriseConnection(boxConfig);
-            } else {
+            boxDeveloperEditionAPIConnection = createConnection(boxConfig);
+
+            if (config.getMaxRequestsPerSecond() > 0) {
+                // Pace the requests of all connector instances for the same app
+                boxDeveloperEditionAPIConnection.addInterceptor(AdaptiveRateLimiter.getInstance(
+                        SharedAccessTokenCache.toKey(boxConfig), config.getMaxRequestsPerSecond()));
+            }
+
+            metricsRegistry = createMetricsRegistry(SharedAccessTokenCache.toKey(boxConfig));
+            if (metricsRegistry != MetricsRegistry.NOOP) {
+                metricsInterceptor = new MetricsInterceptor(metricsRegistry);
+                boxDeveloperEditionAPIConnection.addInterceptor(metricsInterceptor);
+            }
+
+            objectCache = createObjectCache(SharedAccessTokenCache.toKey(boxConfig));
+
+            // Reuse the keep-alive connections of other connector instances for the same app
+            connectionPool = SharedConnectionPool.getInstance(SharedAccessTokenCache.toKey(boxConfig),
+                    config.getMaxIdleConnections(), config.getKeepAliveDurationInMilliseconds());
+            boxDeveloperEditionAPIConnection.setConnectionPool(connectionPool.getConnectionPool());
+            boxDeveloperEditionAPIConnection.setGzipEnabled(config.isGzipEnabled());
+
+            if (config.getRequestRecorderSize() > 0) {
+                boxDeveloperEditionAPIConnection.addInterceptor(RequestRecorder.getInstance(
+                        SharedAccessTokenCache.toKey(boxConfig), config.getRequestRecorderSize()));
+            }
+
+            if (StringUtil.isNotEmpty(getConfiguration().getHttpProxyHost())) {
                 // Use HTTP Proxy for Box connection
                 Proxy proxy = new Proxy(Proxy.Type.HTTP, new InetSocketAddress(config.getHttpProxyHost(),
                         config.getHttpProxyPort()));
 
-                boxDeveloperEditionAPIConnection = new BoxDeveloperEditionAPIConnection(boxConfig.getEnterpriseId(), DeveloperEditionEntityType.ENTERPRISE,
-                        boxConfig.getClientId(), boxConfig.getClientSecret(), boxConfig.getJWTEncryptionPreferences());
-
                 if (StringUtil.isNotEmpty(config.getHttpProxyUser())) {
                     boxDeveloperEditionAPIConnection.setProxyUsername(config.getHttpProxyUser());
 
@@ -109,11 +151,84 @@ public class BoxConnector implements PoolableConnector,
         boxDeveloperEditionAPIConnection.setConnectTimeout(config.getConnectionTimeoutInMilliseconds());
         boxDeveloperEditionAPIConnection.setReadTimeout(config.getReadTimeoutInMilliseconds());
 
-        boxDeveloperEditionAPIConnection.authenticate();
+        // Share the access token with other connector instances for the same app
+        SharedAccessTokenCache.getInstance().authenticate(SharedAccessTokenCache.toKey(boxConfig),
+                boxDeveloperEditionAPIConnection, boxDeveloperEditionAPIConnection::authenticate);
+
+        if (config.getPrewarmConnections() > 0) {
+            // The lightest authenticated request, through the proxy if configured.
+            // The instance name isn't set yet while the connector is initialized, so the pool is named by the app.
+            connectionPool.prewarm(SharedAccessTokenCache.toKey(boxConfig), config.getPrewarmConnections(),
+                    () -> BoxUser.getCurrentUser(boxDeveloperEditionAPIConnection).getInfo("id"),
+                    (long) config.getConnectionTimeoutInMilliseconds() + config.getReadTimeoutInMilliseconds());
+        }
 
         this.boxAPI = boxDeveloperEditionAPIConnection;
     }
 
+    /**
+     * Create the connection for the Box app. It isn't authenticated yet; the interceptors, the transport settings
+     * and the shared access token are applied to it afterwards. Override it to connect to another endpoint.
+     */
+    protected BoxConnection createConnection(BoxConfig boxConfig) {
+        // Don't use BoxDeveloperEditionAPIConnection.getAppEnterpriseConnection because it authenticates immediately
+        return new BoxConnection(boxConfig.getEnterpriseId(), DeveloperEditionEntityType.ENTERPRISE,
+                boxConfig.getClientId(), boxConfig.getClientSecret(), boxConfig.getJWTEncryptionPreferences());
+    }
+
+    /**
+     * Create the metrics registry for the Box app. Override it to use another registry.
+     */
+    protected MetricsRegistry createMetricsRegistry(String appKey) {
+        if (getConfiguration().isMetricsEnabled()) {
+            return JmxMetricsRegistry.getInstance(appKey);
+        }
+        return MetricsRegistry.NOOP;
+    }
+
+    /**
+     * Create the cache of the users and groups fetched by uid for the Box app. Override it to use another cache.
+     */
+    protected ObjectCache createObjectCache(String appKey) {
+        if (getConfiguration().getObjectCacheSize() > 0 && getConfiguration().getObjectCacheTtlInMilliseconds() > 0) {
+            return ObjectCache.getInstance(appKey, getConfiguration().getObjectCacheSize(),
+                    getConfiguration().getObjectCacheTtlInMilliseconds());
+        }
+        return ObjectCache.DISABLED;
+    }
+
+    private boolean hasAssociations(ObjectClass objectClass, Stream<String> attrNames) {
+        // The associations of groups are read-only
+        return OBJECT_CLASS_USER.equals(objectClass) && attrNames.anyMatch(UsersHandler.ASSOCIATION_ATTRS_SET::contains);
+    }
+
+    /**
+     * Invalidate the cached object changed by this connector. If the associations are changed, the objects of
+     * the other object class are also invalidated since their association attributes are computed from the same
+     * memberships.
+     */
+    private void invalidateCache(ObjectClass objectClass, Uid uid, boolean associationsChanged) {
+        if (!objectCache.isEnabled()
+                || !(OBJECT_CLASS_USER.equals(objectClass) || OBJECT_CLASS_GROUP.equals(objectClass))) {
+            return;
+        }
+        if (uid != null) {
+            objectCache.invalidate(objectClass, uid.getUidValue());
+        }
+        if (associationsChanged) {
+            objectCache.invalidateAll(OBJECT_CLASS_USER.equals(objectClass) ? OBJECT_CLASS_GROUP : OBJECT_CLASS_USER);
+        }
+    }
+
+    private long getHttpRequestCount() {
+        return metricsInterceptor != null ? metricsInterceptor.getRequestCount() : 0;
+    }
+
+    private void recordOperation(String operation, long startNanos, long startRequests, boolean success) {
+        metricsRegistry.recordOperation(operation, System.nanoTime() - startNanos, success,
+                getHttpRequestCount() - startRequests);
+    }
+
     private Reader resolveConfigReader(BoxConfiguration config) throws FileNotFoundException {
         if (StringUtil.isNotBlank(config.getConfigFilePath())) {
             return new FileReader(config.getConfigFilePath());
@@ -131,6 +246,34 @@ public class BoxConnector implements PoolableConnector,
     @Override
     public void dispose() {
         this.boxAPI = null;
+        resetHandlers();
+    }
+
+    private void resetHandlers() {
+        this.usersHandler = null;
+        this.groupsHandler = null;
+        this.syncHandler = null;
+    }
+
+    protected UsersHandler getUsersHandler() {
+        if (usersHandler == null) {
+            usersHandler = new UsersHandler(instanceName, boxAPI, configuration, objectCache, metricsRegistry);
+        }
+        return usersHandler;
+    }
+
+    protected GroupsHandler getGroupsHandler() {
+        if (groupsHandler == null) {
+            groupsHandler = new GroupsHandler(instanceName, boxAPI, configuration, objectCache);
+        }
+        return groupsHandler;
+    }
+
+    protected SyncHandler getSyncHandler() {
+        if (syncHandler == null) {
+            syncHandler = new SyncHandler(instanceName, boxAPI, getUsersHandler(), getGroupsHandler(), objectCache);
+        }
+        return syncHandler;
     }
 
     @Override
@@ -148,22 +291,62 @@ public class BoxConnector implements PoolableConnector,
             throw new InvalidAttributeValueException("Attributes not provided or empty");
         }
 
+        long start = System.nanoTime();
+        long startRequests = getHttpRequestCount();
+        boolean success = true;
         try {
             if (objectClass.equals(OBJECT_CLASS_USER)) {
-                UsersHandler usersHandler = new UsersHandler(instanceName, boxAPI, configuration);
-                return usersHandler.createUser(createAttributes);
+                Uid uid = getUsersHandler().createUser(createAttributes);
+                // The created user isn't cached yet, but the members of the groups might be changed
+                invalidateCache(objectClass, null, hasAssociations(objectClass,
+                        createAttributes.stream().map(Attribute::getName)));
+                return uid;
 
             } else if (objectClass.equals(OBJECT_CLASS_GROUP)) {
-                GroupsHandler groupsHandler = new GroupsHandler(instanceName, boxAPI);
-                return groupsHandler.createGroup(createAttributes);
+                return getGroupsHandler().createGroup(createAttributes);
             }
         } catch (RuntimeException e) {
+            success = false;
             throw processRuntimeException(e);
+        } finally {
+            recordOperation("create", start, startRequests, success);
         }
 
         throw new InvalidAttributeValueException("Unsupported object class " + objectClass);
     }
 
+    /**
+     * Create users in bulk for large provisioning runs. It's not a part of the ConnId SPI because the framework
+     * doesn't provide a batch operation, so it's intended to be called by the embedding application.
+     *
+     * @return the result of each user in the same order. The error is mapped to ConnectorException.
+     */
+    public List<BulkCreateResult> createUsers(final List<Set<Attribute>> createAttributesList) {
+        if (createAttributesList == null) {
+            throw new InvalidAttributeValueException("Attributes not provided");
+        }
+        LOGGER.info("[{0}] BULK CREATE METHOD SIZE: {1}", instanceName, createAttributesList.size());
+
+        long start = System.nanoTime();
+        long startRequests = getHttpRequestCount();
+        boolean success = true;
+        try {
+            List<BulkCreateResult> results = getUsersHandler().createUsers(createAttributesList);
+            if (results.stream().anyMatch(BulkCreateResult::isSuccess)) {
+                invalidateCache(OBJECT_CLASS_USER, null, hasAssociations(OBJECT_CLASS_USER,
+                        createAttributesList.stream().flatMap(Set::stream).map(Attribute::getName)));
+            }
+            return results.stream()
+                    .map(r -> r.isSuccess() ? r : new BulkCreateResult(r.getUid(), processRuntimeException(r.getError())))
+                    .collect(Collectors.toList());
+        } catch (RuntimeException e) {
+            success = false;
+            throw processRuntimeException(e);
+        } finally {
+            recordOperation("createUsers", start, startRequests, success);
+        }
+    }
+
     @Override
     public Set<AttributeDelta> updateDelta(
             final ObjectClass objectClass,
@@ -179,17 +362,24 @@ public class BoxConnector implements PoolableConnector,
             throw new InvalidAttributeValueException("modifications not provided or empty");
         }
 
+        long start = System.nanoTime();
+        long startRequests = getHttpRequestCount();
+        boolean success = true;
         try {
             if (objectClass.equals(OBJECT_CLASS_USER)) {
-                UsersHandler usersHandler = new UsersHandler(instanceName, boxAPI, configuration);
-                return usersHandler.updateUser(uid, modifications);
+                return getUsersHandler().updateUser(uid, modifications);
 
             } else if (objectClass.equals(OBJECT_CLASS_GROUP)) {
-                GroupsHandler groupsHandler = new GroupsHandler(instanceName, boxAPI);
-                return groupsHandler.updateGroup(uid, modifications);
+                return getGroupsHandler().updateGroup(uid, modifications);
             }
         } catch (RuntimeException e) {
+            success = false;
             throw processRuntimeException(e);
+        } finally {
+            // Invalidate even if failed since the update might be applied partially
+            invalidateCache(objectClass, uid, hasAssociations(objectClass,
+                    modifications.stream().map(AttributeDelta::getName)));
+            recordOperation("updateDelta", start, startRequests, success);
         }
 
         throw new InvalidAttributeValueException("Unsupported object class " + objectClass);
@@ -201,19 +391,25 @@ public class BoxConnector implements PoolableConnector,
             final Uid uid,
             final OperationOptions options) {
 
+        long start = System.nanoTime();
+        long startRequests = getHttpRequestCount();
+        boolean success = true;
         try {
             if (objectClass.equals(OBJECT_CLASS_USER)) {
-                UsersHandler usersHandler = new UsersHandler(instanceName, boxAPI, configuration);
-                usersHandler.deleteUser(objectClass, uid, options);
+                getUsersHandler().deleteUser(objectClass, uid, options);
                 return;
 
             } else if (objectClass.equals(OBJECT_CLASS_GROUP)) {
-                GroupsHandler groupsHandler = new GroupsHandler(instanceName, boxAPI);
-                groupsHandler.deleteGroup(uid);
+                getGroupsHandler().deleteGroup(uid);
                 return;
             }
         } catch (RuntimeException e) {
+            success = false;
             throw processRuntimeException(e);
+        } finally {
+            // The deleted object is removed from the groups or the members are removed from the deleted group
+            invalidateCache(objectClass, uid, true);
+            recordOperation("delete", start, startRequests, success);
         }
 
         throw new UnsupportedOperationException("Unsupported object class " + objectClass);
@@ -221,18 +417,34 @@ public class BoxConnector implements PoolableConnector,
 
     @Override
     public Schema schema() {
+        String key = getConfiguration().toSchemaCacheKey();
+        Schema schema = SCHEMA_CACHE.get(key);
+        if (schema == null) {
+            schema = buildSchema();
+            if (SCHEMA_CACHE.size() >= MAX_CACHED_SCHEMAS) {
+                SCHEMA_CACHE.clear();
+            }
+            SCHEMA_CACHE.put(key, schema);
+            LOGGER.info("[{0}] Built the schema", instanceName);
+        }
+        return schema;
+    }
+
+    private Schema buildSchema() {
         SchemaBuilder schemaBuilder = new SchemaBuilder(BoxConnector.class);
 
-        UsersHandler usersHandler = new UsersHandler(instanceName, boxAPI, configuration);
-        ObjectClassInfo userSchemaInfo = usersHandler.getUserSchema();
+        ObjectClassInfo userSchemaInfo = getUsersHandler().getUserSchema();
         schemaBuilder.defineObjectClass(userSchemaInfo);
 
-        GroupsHandler group = new GroupsHandler(instanceName, boxAPI);
-        ObjectClassInfo groupSchemaInfo = group.getGroupSchema();
+        ObjectClassInfo groupSchemaInfo = getGroupsHandler().getGroupSchema();
         schemaBuilder.defineObjectClass(groupSchemaInfo);
 
-        schemaBuilder.defineOperationOption(OperationOptionInfoBuilder.buildAttributesToGet(), SearchOp.class);
-        schemaBuilder.defineOperationOption(OperationOptionInfoBuilder.buildReturnDefaultAttributes(), SearchOp.class);
+        schemaBuilder.defineOperationOption(OperationOptionInfoBuilder.buildAttributesToGet(), SearchOp.class, SyncOp.class);
+        schemaBuilder.defineOperationOption(OperationOptionInfoBuilder.buildReturnDefaultAttributes(), SearchOp.class, SyncOp.class);
+        schemaBuilder.defineOperationOption(OperationOptionInfoBuilder.buildPageSize(), SearchOp.class);
+        schemaBuilder.defineOperationOption(OperationOptionInfoBuilder.buildPagedResultsCookie(), SearchOp.class);
+        schemaBuilder.defineOperationOption(OperationOptionInfoBuilder.buildPagedResultsOffset(), SearchOp.class);
+        schemaBuilder.defineOperationOption(OperationOptionInfoBuilder.build(UsersHandler.OPTION_RESUME_FROM_CHECKPOINT, Boolean.class), SearchOp.class);
 
         return schemaBuilder.build();
     }
@@ -242,13 +454,11 @@ public class BoxConnector implements PoolableConnector,
         dispose();
 
         try {
+            // Authenticate through the shared token cache, so that each test doesn't force a new JWT exchange
             authenticateResource();
 
-            if (!boxAPI.canRefresh()) {
-                throw new ConnectorIOException("Cannot refresh auth token");
-            }
-
-            boxAPI.refresh();
+            // The lightest authenticated request validates the access token, cached or not
+            BoxUser.getCurrentUser(boxAPI).getInfo("id");
         } catch (RuntimeException e) {
             throw processRuntimeException(e);
         }
@@ -257,7 +467,9 @@ public class BoxConnector implements PoolableConnector,
     @Override
     public void checkAlive() {
         try {
-            if (this.boxAPI.needsRefresh()) {
+            if (boxConfig != null) {
+                SharedAccessTokenCache.getInstance().refreshIfNeeded(SharedAccessTokenCache.toKey(boxConfig), this.boxAPI);
+            } else if (this.boxAPI.needsRefresh()) {
                 this.boxAPI.refresh();
             }
         } catch (RuntimeException e) {
@@ -270,7 +482,7 @@ public class BoxConnector implements PoolableConnector,
             final ObjectClass objectClass,
             final OperationOptions options) {
 
-        return new BoxFilterTranslator();
+        return new BoxFilterTranslator(objectClass);
     }
 
     @Override
@@ -286,24 +498,81 @@ public class BoxConnector implements PoolableConnector,
 
         LOGGER.info("[{0}] EXECUTE_QUERY METHOD OBJECTCLASS VALUE: {1}", instanceName, objectClass);
 
+        long start = System.nanoTime();
+        long startRequests = getHttpRequestCount();
+        boolean success = true;
         try {
             if (objectClass.equals(OBJECT_CLASS_USER)) {
-                UsersHandler usersHandler = new UsersHandler(instanceName, boxAPI, configuration);
-                usersHandler.query(filter, handler, options);
+                getUsersHandler().query(filter, handler, options);
                 return;
 
             } else if (objectClass.equals(OBJECT_CLASS_GROUP)) {
-                GroupsHandler groupsHandler = new GroupsHandler(instanceName, boxAPI);
-                groupsHandler.query(filter, handler, options);
+                getGroupsHandler().query(filter, handler, options);
                 return;
             }
         } catch (RuntimeException e) {
+            success = false;
             throw processRuntimeException(e);
+        } finally {
+            recordOperation("executeQuery", start, startRequests, success);
         }
 
         throw new InvalidAttributeValueException("Unsupported object class " + objectClass);
     }
 
+    @Override
+    public void sync(
+            final ObjectClass objectClass,
+            final SyncToken token,
+            final SyncResultsHandler handler,
+            final OperationOptions options) {
+
+        if (objectClass == null) {
+            throw new InvalidAttributeValueException("ObjectClass value not provided");
+        }
+
+        LOGGER.info("[{0}] SYNC METHOD OBJECTCLASS VALUE: {1}, TOKEN: {2}", instanceName, objectClass, token);
+
+        if (!isSyncSupported(objectClass)) {
+            throw new InvalidAttributeValueException("Unsupported object class " + objectClass);
+        }
+
+        long start = System.nanoTime();
+        long startRequests = getHttpRequestCount();
+        boolean success = true;
+        try {
+            getSyncHandler().sync(objectClass, token, handler, options);
+        } catch (RuntimeException e) {
+            success = false;
+            throw processRuntimeException(e);
+        } finally {
+            recordOperation("sync", start, startRequests, success);
+        }
+    }
+
+    @Override
+    public SyncToken getLatestSyncToken(final ObjectClass objectClass) {
+        if (objectClass == null) {
+            throw new InvalidAttributeValueException("ObjectClass value not provided");
+        }
+
+        if (!isSyncSupported(objectClass)) {
+            throw new InvalidAttributeValueException("Unsupported object class " + objectClass);
+        }
+
+        try {
+            return getSyncHandler().getLatestSyncToken();
+        } catch (RuntimeException e) {
+            throw processRuntimeException(e);
+        }
+    }
+
+    private boolean isSyncSupported(ObjectClass objectClass) {
+        return objectClass.equals(OBJECT_CLASS_USER) ||
+                objectClass.equals(OBJECT_CLASS_GROUP) ||
+                objectClass.is(ObjectClass.ALL_NAME);
+    }
+
     protected ConnectorException processRuntimeException(RuntimeException e) {
         if (e instanceof ConnectorException) {
             return (ConnectorException) e;
@@ -324,6 +593,12 @@ public class BoxConnector implements PoolableConnector,
             case 400:
                 return new InvalidAttributeValueException(e);
             case 401:
+                // The access token might be revoked, re-authenticate this connection before the next request
+                if (boxConfig != null) {
+                    SharedAccessTokenCache.getInstance().invalidate(SharedAccessTokenCache.toKey(boxConfig), boxAPI);
+                } else if (boxAPI != null) {
+                    boxAPI.setExpires(0);
+                }
                 return new ConnectorSecurityException(e);
             case 403:
                 return new PermissionDeniedException(e);
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import java.util.Map;
+
+/**
+ * JMX view of the connector metrics for a Box app. The maps are keyed by the operation name.
+ */
+public interface BoxConnectorMetricsMXBean {
+
+    Map<String, Long> getOperationCounts();
+
+    Map<String, Long> getOperationErrorCounts();
+
+    Map<String, Double> getOperationMeanLatencyMillis();
+
+    Map<String, Long> getOperationMaxLatencyMillis();
+
+    /**
+     * Counts of each latency bucket. See {@link #getLatencyBucketUpperBoundsMillis()} for the buckets.
+     */
+    Map<String, long[]> getOperationLatencyHistograms();
+
+    long[] getLatencyBucketUpperBoundsMillis();
+
+    Map<String, Double> getOperationMeanHttpRequests();
+
+    long getHttpRequestCount();
+
+    long getRetryableResponseCount();
+
+    long getThrottledResponseCount();
+
+    long getBytesReceived();
+
+    /**
+     * Pages fetched by the full scans, keyed by the object class.
+     */
+    Map<String, Long> getScannedPageCounts();
+
+    /**
+     * Objects emitted by the full scans, keyed by the object class.
+     */
+    Map<String, Long> getScannedObjectCounts();
+
+    /**
+     * Group membership API calls avoided by reading "configurable_permissions" from the membership listing.
+     */
+    long getAvoidedMembershipInfoCallCount();
+
+    void reset();
+}
@@ -3,26 +3,46 @@ package com.exclamationlabs.connid.box;
 import org.identityconnectors.framework.common.objects.Name;
 import org.identityconnectors.framework.common.objects.Uid;
 
+import java.util.Collections;
+import java.util.List;
+
 public class BoxFilter {
     public final Uid uid;
     public final Name name;
+    // Multiple uids combined by OR
+    public final List<Uid> uids;
+    // Filter by an attribute other than __UID__ and __NAME__ (or prefix of __NAME__)
+    public final String attrName;
+    public final String attrValue;
+    public final boolean startsWith;
 
-    private BoxFilter(Uid uid) {
+    private BoxFilter(Uid uid, Name name, List<Uid> uids, String attrName, String attrValue, boolean startsWith) {
         this.uid = uid;
-        this.name = null;
-    }
-
-    private BoxFilter(Name name) {
-        this.uid = null;
         this.name = name;
+        this.uids = uids;
+        this.attrName = attrName;
+        this.attrValue = attrValue;
+        this.startsWith = startsWith;
     }
 
     public static BoxFilter By(Uid uid) {
-        return new BoxFilter(uid);
+        return new BoxFilter(uid, null, null, null, null, false);
     }
 
     public static BoxFilter By(Name name) {
-        return new BoxFilter(name);
+        return new BoxFilter(null, name, null, null, null, false);
+    }
+
+    public static BoxFilter By(List<Uid> uids) {
+        return new BoxFilter(null, null, Collections.unmodifiableList(uids), null, null, false);
+    }
+
+    public static BoxFilter ByAttribute(String attrName, String value) {
+        return new BoxFilter(null, null, null, attrName, value, false);
+    }
+
+    public static BoxFilter StartsWith(String attrName, String prefix) {
+        return new BoxFilter(null, null, null, attrName, prefix, true);
     }
 
     public boolean isByUid() {
@@ -32,4 +52,30 @@ public class BoxFilter {
     public boolean isByName() {
         return name != null;
     }
+
+    public boolean isByUids() {
+        return uids != null;
+    }
+
+    public boolean isByAttribute() {
+        return attrName != null && !startsWith;
+    }
+
+    public boolean isStartsWith() {
+        return attrName != null && startsWith;
+    }
+
+    @Override
+    public String toString() {
+        if (isByUid()) {
+            return "BoxFilter{uid=" + uid.getUidValue() + "}";
+        }
+        if (isByName()) {
+            return "BoxFilter{name=" + name.getNameValue() + "}";
+        }
+        if (isByUids()) {
+            return "BoxFilter{uids=" + uids.size() + "}";
+        }
+        return "BoxFilter{" + attrName + (startsWith ? " startsWith " : "=") + attrValue + "}";
+    }
 }
@@ -10,9 +10,16 @@ package com.exclamationlabs.connid.box;
 import org.identityconnectors.common.logging.Log;
 import org.identityconnectors.framework.common.objects.Attribute;
 import org.identityconnectors.framework.common.objects.Name;
+import org.identityconnectors.framework.common.objects.ObjectClass;
 import org.identityconnectors.framework.common.objects.Uid;
 import org.identityconnectors.framework.common.objects.filter.AbstractFilterTranslator;
 import org.identityconnectors.framework.common.objects.filter.EqualsFilter;
+import org.identityconnectors.framework.common.objects.filter.StartsWithFilter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * This is an implementation of AbstractFilterTranslator that gives a concrete representation
@@ -30,6 +37,16 @@ public class BoxFilterTranslator extends AbstractFilterTranslator<BoxFilter> {
 
     private static final Log LOG = Log.getLog(BoxFilterTranslator.class);
 
+    private final ObjectClass objectClass;
+
+    public BoxFilterTranslator() {
+        this(null);
+    }
+
+    public BoxFilterTranslator(ObjectClass objectClass) {
+        this.objectClass = objectClass;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -46,7 +63,79 @@ public class BoxFilterTranslator extends AbstractFilterTranslator<BoxFilter> {
         if (attr instanceof Name) {
             return BoxFilter.By((Name) attr);
         }
+        // "List enterprise users" supports "filter_term" (prefix of name or login) and "external_app_user_id"
+        // https://developer.box.com/reference/get-users/
+        if (isUser() && (attr.is(UsersHandler.ATTR_NAME) || attr.is(UsersHandler.ATTR_EXTERNAL_APP_USER_ID))) {
+            String value = getSingleStringValue(attr);
+            if (value != null) {
+                return BoxFilter.ByAttribute(attr.getName(), value);
+            }
+        }
 
         return null;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected BoxFilter createStartsWithExpression(StartsWithFilter filter, boolean not) {
+        if (not) {
+            return null;
+        }
+        Attribute attr = filter.getAttribute();
+
+        // Both of "List enterprise users" and "List groups for enterprise" support "filter_term" for prefix search
+        if (attr instanceof Name || (isUser() && attr.is(UsersHandler.ATTR_NAME))) {
+            String value = getSingleStringValue(attr);
+            if (value != null) {
+                return BoxFilter.StartsWith(attr.getName(), value);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected BoxFilter createOrExpression(BoxFilter leftExpression, BoxFilter rightExpression) {
+        // Only combine the lookups by uid. Otherwise, the framework executes each expression as a separate query.
+        List<Uid> left = toUids(leftExpression);
+        List<Uid> right = toUids(rightExpression);
+        if (left == null || right == null) {
+            return null;
+        }
+        Set<Uid> uids = new LinkedHashSet<>(left);
+        uids.addAll(right);
+        return BoxFilter.By(new ArrayList<>(uids));
+    }
+
+    private List<Uid> toUids(BoxFilter filter) {
+        if (filter.isByUid()) {
+            List<Uid> uids = new ArrayList<>();
+            uids.add(filter.uid);
+            return uids;
+        }
+        if (filter.isByUids()) {
+            return filter.uids;
+        }
+        return null;
+    }
+
+    private boolean isUser() {
+        return UsersHandler.OBJECT_CLASS_USER.equals(objectClass);
+    }
+
+    private String getSingleStringValue(Attribute attr) {
+        if (attr.getValue() == null || attr.getValue().size() != 1) {
+            return null;
+        }
+        Object value = attr.getValue().get(0);
+        if (!(value instanceof String) || ((String) value).isEmpty()) {
+            return null;
+        }
+        return (String) value;
+    }
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import org.identityconnectors.framework.common.objects.Uid;
+
+/**
+ * Result of an object created in bulk.
+ * If the object was created but some of the following operations (e.g. adding group memberships) failed,
+ * both the uid and the error are set.
+ */
+public class BulkCreateResult {
+
+    private final Uid uid;
+    private final RuntimeException error;
+
+    public BulkCreateResult(Uid uid, RuntimeException error) {
+        this.uid = uid;
+        this.error = error;
+    }
+
+    public Uid getUid() {
+        return uid;
+    }
+
+    public RuntimeException getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkCreateResult{" +
+                "uid=" + uid +
+                ", error=" + error +
+                '}';
+    }
+}
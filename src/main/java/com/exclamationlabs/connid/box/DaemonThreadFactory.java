@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factory for the worker threads of a connector instance. The threads are named
+ * "&lt;prefix&gt;-&lt;instance name&gt;-&lt;n&gt;" and are daemon threads, so that they don't block the shutdown
+ * of the IDM even if a connector instance is not disposed.
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+
+    private final String namePrefix;
+    private final AtomicInteger count = new AtomicInteger();
+
+    public DaemonThreadFactory(String prefix, String instanceName) {
+        this.namePrefix = prefix + "-" + instanceName + "-";
+    }
+
+    /**
+     * @return a fixed thread pool for the API calls of one operation. Shut it down when the operation ends.
+     */
+    public static ExecutorService newFixedThreadPool(String prefix, String instanceName, int threads) {
+        return Executors.newFixedThreadPool(threads, new DaemonThreadFactory(prefix, instanceName));
+    }
+
+    @Override
+    public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, namePrefix + count.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import com.box.sdk.*;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
+import org.identityconnectors.common.logging.Log;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+import org.identityconnectors.framework.common.exceptions.ConnectorIOException;
+
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiPredicate;
+
+/**
+ * Fetch the members of all groups for a full group search.
+ * The memberships of each group are requested with the maximum page size, and the groups are processed
+ * in a sliding window with bounded parallelism while keeping the original order.
+ * The member ids are held as long arrays only while the group is in the window, so that a full scan
+ * doesn't hold the memberships of all groups.
+ */
+public class GroupMembersFetcher {
+
+    private static final Log LOGGER = Log.getLog(GroupMembersFetcher.class);
+
+    private static final int PAGE_SIZE = 1000;
+
+    // We only need the user id and the role of the membership
+    private static final String MEMBERSHIP_FIELDS = "user,role";
+
+    private static final String ROLE_MEMBER = "member";
+    private static final String ROLE_ADMIN = "admin";
+
+    private final String instanceName;
+    private final BoxAPIConnection boxAPI;
+    private final int parallelism;
+    private final Throttle throttle;
+
+    public GroupMembersFetcher(String instanceName, BoxAPIConnection boxAPI, int parallelism) {
+        this.instanceName = instanceName;
+        this.boxAPI = boxAPI;
+        this.parallelism = parallelism;
+        this.throttle = new Throttle(instanceName, boxAPI.getMaxRetryAttempts());
+    }
+
+    /**
+     * Member ids of a group. Box ids are numeric strings, so they are kept as long values.
+     */
+    public static class GroupMembers {
+        private final IdList members;
+        private final IdList admins;
+
+        GroupMembers(IdList members, IdList admins) {
+            this.members = members;
+            this.admins = admins;
+        }
+
+        /**
+         * @return the member ids as a new list. ConnId builds the attribute values from a collection,
+         * so the full list is needed for the ConnectorObject of the group.
+         */
+        public List<String> getMembers() {
+            return members.toList();
+        }
+
+        public List<String> getAdmins() {
+            return admins.toList();
+        }
+    }
+
+    /**
+     * Fetch the members of each group.
+     *
+     * @param groups  groups to fetch the members
+     * @param handler handler for each group with the members. Return false to stop fetching.
+     */
+    public void fetchAll(Iterator<BoxGroup.Info> groups, BiPredicate<BoxGroup.Info, GroupMembers> handler) {
+        if (parallelism <= 1) {
+            while (groups.hasNext()) {
+                BoxGroup.Info group = groups.next();
+                if (!handler.test(group, fetchMembers(group.getID()))) {
+                    return;
+                }
+            }
+            return;
+        }
+
+        LOGGER.ok("[{0}] Fetch group members concurrently, parallelism: {1}", instanceName, parallelism);
+
+        ExecutorService executor = DaemonThreadFactory.newFixedThreadPool("box-group-members", instanceName, parallelism);
+        Deque<BoxGroup.Info> inFlightGroups = new ArrayDeque<>();
+        Deque<Future<GroupMembers>> inFlight = new ArrayDeque<>();
+        try {
+            while (groups.hasNext() && inFlight.size() < parallelism) {
+                BoxGroup.Info group = groups.next();
+                inFlightGroups.add(group);
+                inFlight.add(executor.submit(() -> fetchMembers(group.getID())));
+            }
+
+            while (!inFlight.isEmpty()) {
+                // Wait for the head group to keep the original order
+                GroupMembers members = await(inFlight.poll());
+                BoxGroup.Info group = inFlightGroups.poll();
+
+                if (groups.hasNext()) {
+                    BoxGroup.Info next = groups.next();
+                    inFlightGroups.add(next);
+                    inFlight.add(executor.submit(() -> fetchMembers(next.getID())));
+                }
+
+                if (!handler.test(group, members)) {
+                    LOGGER.ok("[{0}] Stop fetching group members because the handler returned false", instanceName);
+                    return;
+                }
+            }
+        } finally {
+            for (Future<GroupMembers> future : inFlight) {
+                future.cancel(true);
+            }
+            executor.shutdownNow();
+        }
+    }
+
+    GroupMembers fetchMembers(String groupId) {
+        IdList members = new IdList();
+        IdList admins = new IdList();
+
+        long offset = 0;
+        while (true) {
+            JsonObject page = fetchPage(groupId, offset);
+            int entries = collect(page, members, admins);
+            offset += entries;
+
+            long totalCount = page.getLong("total_count", 0);
+            if (entries == 0 || offset >= totalCount) {
+                break;
+            }
+        }
+        return new GroupMembers(members, admins);
+    }
+
+    private int collect(JsonObject page, IdList members, IdList admins) {
+        int count = 0;
+        for (JsonValue value : page.get("entries").asArray()) {
+            count++;
+            JsonObject entry = value.asObject();
+            JsonValue user = entry.get("user");
+            if (user == null || user.isNull()) {
+                continue;
+            }
+            String userId = user.asObject().get("id").asString();
+            String role = entry.getString("role", "");
+            if (role.equals(ROLE_ADMIN)) {
+                admins.add(userId);
+            } else if (role.equals(ROLE_MEMBER)) {
+                members.add(userId);
+            }
+        }
+        return count;
+    }
+
+    private JsonObject fetchPage(String groupId, long offset) {
+        String query = "?limit=" + PAGE_SIZE + "&offset=" + offset + "&fields=" + AbstractHandler.encodeQueryParam(MEMBERSHIP_FIELDS);
+        URL url = BoxGroup.MEMBERSHIPS_URL_TEMPLATE.buildWithQuery(boxAPI.getBaseURL(), query, groupId);
+
+        return throttle.call(() -> {
+            BoxJSONResponse response = (BoxJSONResponse) new BoxAPIRequest(boxAPI, url, "GET").send();
+            return response.getJsonObject();
+        });
+    }
+
+    private GroupMembers await(Future<GroupMembers> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectorIOException("Interrupted while fetching group members", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new ConnectorException(e.getCause());
+        }
+    }
+
+    /**
+     * Growable list of ids which keeps numeric ids as long values to avoid holding a String for each
+     * membership. If an id isn't a canonical number, the list falls back to strings.
+     */
+    static class IdList {
+        private long[] values = new long[16];
+        private List<String> strings;
+        private int size;
+
+        void add(String id) {
+            if (strings == null) {
+                if (isCanonicalLong(id)) {
+                    if (size == values.length) {
+                        values = Arrays.copyOf(values, size * 2);
+                    }
+                    values[size++] = Long.parseLong(id);
+                    return;
+                }
+                strings = new ArrayList<>(size + 1);
+                for (int i = 0; i < size; i++) {
+                    strings.add(Long.toString(values[i]));
+                }
+                values = null;
+            }
+            strings.add(id);
+        }
+
+        List<String> toList() {
+            if (strings != null) {
+                return new ArrayList<>(strings);
+            }
+            List<String> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(Long.toString(values[i]));
+            }
+            return list;
+        }
+
+        /**
+         * @return true if the id is restored as is by Long.toString
+         */
+        private static boolean isCanonicalLong(String id) {
+            int length = id.length();
+            if (length == 0 || length > 18 || (id.charAt(0) == '0' && length > 1)) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                char c = id.charAt(i);
+                if (c < '0' || c > '9') {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -11,6 +11,8 @@ import com.box.sdk.BoxAPIConnection;
 import com.box.sdk.BoxAPIException;
 import com.box.sdk.BoxGroup;
 import com.box.sdk.BoxGroupMembership;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
 import org.identityconnectors.common.StringUtil;
 import org.identityconnectors.common.logging.Log;
 import org.identityconnectors.framework.common.exceptions.AlreadyExistsException;
@@ -94,8 +96,30 @@ public class GroupsHandler extends AbstractHandler {
                     ASSOCIATION_ATTRS
             ).flatMap(Arrays::stream).collect(Collectors.toSet()));
 
-    public GroupsHandler(String instanceName, BoxAPIConnection boxAPI) {
+    private final BoxConfiguration configuration;
+    private final ObjectCache objectCache;
+    private final BoundedTaskRunner lookupRunner;
+
+    // The attributes mapped from BoxGroup.Info except the associations
+    private final ProjectionPlan.Catalog<BoxGroup.Info> groupProjection = new ProjectionPlan.Catalog<BoxGroup.Info>()
+            // Mini
+            .add(ATTR_GROUP_TYPE, (info, builder) -> builder.addAttribute(ATTR_GROUP_TYPE, info.getGroupType().name().toLowerCase()))
+            // Standard
+            .add(ATTR_CREATED_AT, (info, builder) -> builder.addAttribute(ATTR_CREATED_AT, toZonedDateTime(info.getCreatedAt())))
+            .add(ATTR_MODIFIED_AT, (info, builder) -> builder.addAttribute(ATTR_MODIFIED_AT, toZonedDateTime(info.getModifiedAt())))
+            // Full
+            .add(ATTR_PROVENANCE, (info, builder) -> builder.addAttribute(ATTR_PROVENANCE, toString(info.getProvenance())))
+            .add(ATTR_DESCRIPTION, (info, builder) -> builder.addAttribute(ATTR_DESCRIPTION, toString(info.getDescription())))
+            .add(ATTR_EXTERNAL_SYNC_IDENTIFIER, (info, builder) -> builder.addAttribute(ATTR_EXTERNAL_SYNC_IDENTIFIER, toString(info.getExternalSyncIdentifier())))
+            .add(ATTR_INVITABILITY_LEVEL, (info, builder) -> builder.addAttribute(ATTR_INVITABILITY_LEVEL, toString(info.getInvitabilityLevel())))
+            .add(ATTR_MEMBER_VIEWABILITY_LEVEL, (info, builder) -> builder.addAttribute(ATTR_MEMBER_VIEWABILITY_LEVEL, toString(info.getMemberViewabilityLevel())));
+
+    public GroupsHandler(String instanceName, BoxAPIConnection boxAPI, BoxConfiguration configuration, ObjectCache objectCache) {
         super(instanceName, boxAPI);
+        this.configuration = configuration;
+        this.objectCache = objectCache;
+        this.lookupRunner = new BoundedTaskRunner(instanceName, "box-group-lookup",
+                configuration.getLookupParallelism(), configuration.getMaxRetryAttempts());
     }
 
     public ObjectClassInfo getGroupSchema() {
@@ -234,7 +258,7 @@ public class GroupsHandler extends AbstractHandler {
 
         ObjectClassInfo groupSchemaInfo = builder.build();
 
-        LOGGER.info("[{0}] The constructed group schema representation: {1}", instanceName, groupSchemaInfo);
+        LOGGER.ok("[{0}] The constructed group schema representation: {1}", instanceName, groupSchemaInfo);
 
         return groupSchemaInfo;
     }
@@ -343,40 +367,143 @@ public class GroupsHandler extends AbstractHandler {
     public void query(BoxFilter query, ResultsHandler handler, OperationOptions ops) {
         LOGGER.info("[{0}] GroupsHandler query VALUE: {1}", instanceName, query);
 
-        Set<String> attributesToGet = createFullAttributesToGetSet(STANDARD_ATTRS_SET, ops);
+        Set<String> attributesToGet = getAttributesToGet(STANDARD_ATTRS_SET, ops);
         boolean allowPartialAttributeValues = shouldAllowPartialAttributeValues(ops);
 
         if (query == null) {
-            getAllGroups(handler, ops, attributesToGet, allowPartialAttributeValues);
+            if (isPagedSearch(ops)) {
+                getGroupsPage(handler, ops, attributesToGet, allowPartialAttributeValues);
+            } else {
+                getAllGroups(handler, ops, attributesToGet, allowPartialAttributeValues);
+            }
         } else {
             if (query.isByUid()) {
                 getGroup(query.uid, handler, ops, attributesToGet, allowPartialAttributeValues);
-            } else {
+            } else if (query.isByUids()) {
+                getGroups(query.uids, handler, ops, attributesToGet, allowPartialAttributeValues);
+            } else if (query.isByName()) {
                 getGroup(query.name, handler, ops, attributesToGet, allowPartialAttributeValues);
+            } else if (query.isStartsWith()) {
+                getGroupsByNamePrefix(query.attrValue, handler, ops, attributesToGet, allowPartialAttributeValues);
             }
         }
     }
 
     private void getAllGroups(ResultsHandler handler, OperationOptions ops, Set<String> attributesToGet, boolean allowPartialAttributeValues) {
-        Iterable<BoxGroup.Info> groups = BoxGroup.getAllGroups(boxAPI, toFetchFields(attributesToGet, ASSOCIATION_ATTRS_SET));
-        for (BoxGroup.Info groupInfo : groups) {
-            handler.handle(groupToConnectorObject(groupInfo, attributesToGet, allowPartialAttributeValues));
+        String[] fields = toFetchFields(attributesToGet, ASSOCIATION_ATTRS_SET);
+        ProjectionPlan<BoxGroup.Info> plan = groupProjection.compile(attributesToGet);
+
+        if (!allowPartialAttributeValues && requiresMembers(attributesToGet)) {
+            // Fetch the members of the groups in bulk instead of listing the memberships of each group one by one
+            GroupMembersFetcher fetcher = new GroupMembersFetcher(instanceName, boxAPI, configuration.getSearchParallelism());
+            fetcher.fetchAll(BoxGroup.getAllGroups(boxAPI, fields).iterator(), (groupInfo, members) ->
+                    handler.handle(groupToConnectorObject(groupInfo, plan, allowPartialAttributeValues, members)));
+            return;
+        }
+
+        if (configuration.getSearchParallelism() > 1) {
+            ParallelPageFetcher fetcher = new ParallelPageFetcher(instanceName, boxAPI, configuration.getSearchParallelism());
+            fetcher.fetchAll(BoxGroup.GROUPS_URL_TEMPLATE, fields, json -> {
+                BoxGroup group = new BoxGroup(boxAPI, json.get(ATTR_ID).asString());
+                BoxGroup.Info groupInfo = group.new Info(json.toString());
+                return handler.handle(groupToConnectorObject(groupInfo, plan, allowPartialAttributeValues));
+            });
+            return;
         }
+
+        // Fetch the next page while handling the current one. The next offset is the cursor of the pages.
+        String fieldsParam = toFieldsParam(fields);
+        PagePrefetcher prefetcher = new PagePrefetcher(instanceName, configuration.getPagePrefetchDepth());
+        prefetcher.fetchAll("0", cursor -> {
+            long offset = Long.parseLong(cursor);
+            JsonObject page = fetchPage(BoxGroup.GROUPS_URL_TEMPLATE, "?limit=" + MAX_PAGE_SIZE + "&offset=" + offset + fieldsParam);
+
+            List<BoxGroup.Info> entries = new ArrayList<>();
+            for (JsonValue entry : page.get("entries").asArray()) {
+                BoxGroup group = new BoxGroup(boxAPI, entry.asObject().get(ATTR_ID).asString());
+                entries.add(group.new Info(entry.toString()));
+            }
+            long nextOffset = offset + entries.size();
+            boolean hasNext = !entries.isEmpty() && nextOffset < page.getLong("total_count", 0);
+            return new PagePrefetcher.Page<>(entries, hasNext ? String.valueOf(nextOffset) : null);
+        }, page -> {
+            for (BoxGroup.Info groupInfo : page.getEntries()) {
+                if (!handler.handle(groupToConnectorObject(groupInfo, plan, allowPartialAttributeValues))) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    private void getGroupsPage(ResultsHandler handler, OperationOptions ops, Set<String> attributesToGet, boolean allowPartialAttributeValues) {
+        // "List groups for enterprise" supports offset-based pagination only. The next offset is used as the paged results cookie.
+        // https://developer.box.com/guides/api-calls/pagination/offset-based/
+        long offset = 0;
+        if (ops.getPagedResultsCookie() != null) {
+            try {
+                offset = Long.parseLong(ops.getPagedResultsCookie());
+            } catch (NumberFormatException e) {
+                throw new InvalidAttributeValueException("Invalid paged results cookie: " + ops.getPagedResultsCookie());
+            }
+        } else if (ops.getPagedResultsOffset() != null && ops.getPagedResultsOffset() > 0) {
+            // The paged results offset is 1-based
+            offset = ops.getPagedResultsOffset() - 1;
+        }
+
+        String query = "?limit=" + toPageLimit(ops) + "&offset=" + offset +
+                toFieldsParam(toFetchFields(attributesToGet, ASSOCIATION_ATTRS_SET));
+
+        JsonObject page = fetchPage(BoxGroup.GROUPS_URL_TEMPLATE, query);
+        ProjectionPlan<BoxGroup.Info> plan = groupProjection.compile(attributesToGet);
+
+        long totalCount = page.getLong("total_count", 0);
+        long nextOffset = offset;
+
+        for (JsonValue entry : page.get("entries").asArray()) {
+            nextOffset++;
+            BoxGroup group = new BoxGroup(boxAPI, entry.asObject().get(ATTR_ID).asString());
+            BoxGroup.Info info = group.new Info(entry.toString());
+            if (!handler.handle(groupToConnectorObject(info, plan, allowPartialAttributeValues))) {
+                break;
+            }
+        }
+
+        String cookie = nextOffset < totalCount ? String.valueOf(nextOffset) : null;
+        int remaining = (int) Math.max(0, totalCount - nextOffset);
+
+        handleSearchResult(handler, cookie, remaining);
     }
 
     private void getGroup(Uid uid, ResultsHandler handler, OperationOptions ops, Set<String> attributesToGet, boolean allowPartialAttributeValues) {
+        ConnectorObject connectorObject = fetchGroup(uid, attributesToGet, allowPartialAttributeValues);
+        if (connectorObject != null) {
+            handler.handle(connectorObject);
+        }
+    }
+
+    private ConnectorObject fetchGroup(Uid uid, Set<String> attributesToGet, boolean allowPartialAttributeValues) {
+        // Taken before the lookup not to cache an object invalidated while fetching it
+        long generation = objectCache.getGeneration();
+        ConnectorObject cached = objectCache.get(OBJECT_CLASS_GROUP, uid.getUidValue(), attributesToGet, allowPartialAttributeValues);
+        if (cached != null) {
+            return cached;
+        }
+
         BoxGroup group = new BoxGroup(boxAPI, uid.getUidValue());
         try {
             // Fetch a group
             BoxGroup.Info info = group.getInfo(toFetchFields(attributesToGet, ASSOCIATION_ATTRS_SET));
 
-            handler.handle(groupToConnectorObject(info, attributesToGet, allowPartialAttributeValues));
+            ConnectorObject connectorObject = groupToConnectorObject(info, groupProjection.compile(attributesToGet), allowPartialAttributeValues);
+            objectCache.put(OBJECT_CLASS_GROUP, uid.getUidValue(), attributesToGet, allowPartialAttributeValues, connectorObject, generation);
+            return connectorObject;
 
         } catch (BoxAPIException e) {
             if (isNotFoundError(e)) {
                 LOGGER.warn("[{0}] Unknown uid: {1}", instanceName, group.getID());
                 // It should not throw any exception
-                return;
+                return null;
             }
             throw e;
         }
@@ -390,12 +517,30 @@ public class GroupsHandler extends AbstractHandler {
 
         for (BoxGroup.Info info : groups) {
             if (info.getName().equalsIgnoreCase(name.getNameValue())) {
-                handler.handle(groupToConnectorObject(info, attributesToGet, allowPartialAttributeValues));
+                handler.handle(groupToConnectorObject(info, groupProjection.compile(attributesToGet), allowPartialAttributeValues));
                 break;
             }
         }
     }
 
+    private void getGroups(List<Uid> uids, ResultsHandler handler, OperationOptions ops, Set<String> attributesToGet, boolean allowPartialAttributeValues) {
+        // Fetch the groups concurrently, unknown uids are skipped
+        lookupAll(lookupRunner, uids, uid -> fetchGroup(uid, attributesToGet, allowPartialAttributeValues), handler);
+    }
+
+    private void getGroupsByNamePrefix(String prefix, ResultsHandler handler, OperationOptions ops, Set<String> attributesToGet, boolean allowPartialAttributeValues) {
+        Iterable<BoxGroup.Info> groups = BoxGroup.getAllGroupsByName(boxAPI, prefix, toFetchFields(attributesToGet, ASSOCIATION_ATTRS_SET));
+        ProjectionPlan<BoxGroup.Info> plan = groupProjection.compile(attributesToGet);
+
+        for (BoxGroup.Info info : groups) {
+            if (info.getName().regionMatches(true, 0, prefix, 0, prefix.length())) {
+                if (!handler.handle(groupToConnectorObject(info, plan, allowPartialAttributeValues))) {
+                    return;
+                }
+            }
+        }
+    }
+
     public void deleteGroup(Uid uid) {
         try {
             BoxGroup group = new BoxGroup(boxAPI, uid.getUidValue());
@@ -409,7 +554,24 @@ public class GroupsHandler extends AbstractHandler {
         }
     }
 
-    private ConnectorObject groupToConnectorObject(BoxGroup.Info info, Set<String> attributesToGet, boolean allowPartialAttributeValues) {
+    private boolean requiresMembers(Set<String> attributesToGet) {
+        return attributesToGet.contains(ATTR_MEMBER) || attributesToGet.contains(ATTR_ADMIN_MEMBER);
+    }
+
+    ProjectionPlan<BoxGroup.Info> compileProjection(Set<String> attributesToGet) {
+        return groupProjection.compile(attributesToGet);
+    }
+
+    ConnectorObject groupToConnectorObject(BoxGroup.Info info, ProjectionPlan<BoxGroup.Info> plan, boolean allowPartialAttributeValues) {
+        return groupToConnectorObject(info, plan, allowPartialAttributeValues, null);
+    }
+
+    private ConnectorObject groupToConnectorObject(BoxGroup.Info info, ProjectionPlan<BoxGroup.Info> plan, boolean allowPartialAttributeValues,
+                                                   GroupMembersFetcher.GroupMembers groupMembers) {
+        Set<String> attributesToGet = plan.getAttributesToGet();
+        boolean wantsMember = attributesToGet.contains(ATTR_MEMBER);
+        boolean wantsAdminMember = attributesToGet.contains(ATTR_ADMIN_MEMBER);
+
         ConnectorObjectBuilder builder = new ConnectorObjectBuilder();
 
         builder.setObjectClass(OBJECT_CLASS_GROUP);
@@ -417,49 +579,29 @@ public class GroupsHandler extends AbstractHandler {
         builder.setUid(new Uid(info.getID(), new Name(info.getName())));
         builder.setName(info.getName());
 
-        // Mini
-        if (attributesToGet.contains(ATTR_GROUP_TYPE)) {
-            builder.addAttribute(ATTR_GROUP_TYPE, info.getGroupType().name().toLowerCase());
-        }
-
-        // Standard
-        if (attributesToGet.contains(ATTR_CREATED_AT)) {
-            builder.addAttribute(ATTR_CREATED_AT, toZonedDateTime(info.getCreatedAt()));
-        }
-        if (attributesToGet.contains(ATTR_MODIFIED_AT)) {
-            builder.addAttribute(ATTR_MODIFIED_AT, toZonedDateTime(info.getModifiedAt()));
-        }
-
-        // Full
-        if (attributesToGet.contains(ATTR_PROVENANCE)) {
-            builder.addAttribute(ATTR_PROVENANCE, toString(info.getProvenance()));
-        }
-        if (attributesToGet.contains(ATTR_DESCRIPTION)) {
-            builder.addAttribute(ATTR_DESCRIPTION, toString(info.getDescription()));
-        }
-        if (attributesToGet.contains(ATTR_EXTERNAL_SYNC_IDENTIFIER)) {
-            builder.addAttribute(ATTR_EXTERNAL_SYNC_IDENTIFIER, toString(info.getExternalSyncIdentifier()));
-        }
-        if (attributesToGet.contains(ATTR_INVITABILITY_LEVEL)) {
-            builder.addAttribute(ATTR_INVITABILITY_LEVEL, toString(info.getInvitabilityLevel()));
-        }
-        if (attributesToGet.contains(ATTR_MEMBER_VIEWABILITY_LEVEL)) {
-            builder.addAttribute(ATTR_MEMBER_VIEWABILITY_LEVEL, toString(info.getMemberViewabilityLevel()));
-        }
+        plan.apply(info, builder);
 
         // Association
-        if (attributesToGet.contains(ATTR_MEMBER) || attributesToGet.contains(ATTR_ADMIN_MEMBER)) {
-            if (allowPartialAttributeValues) {
+        if (wantsMember || wantsAdminMember) {
+            if (groupMembers != null) {
+                // Already fetched in bulk
+                if (wantsMember) {
+                    builder.addAttribute(ATTR_MEMBER, groupMembers.getMembers());
+                }
+                if (wantsAdminMember) {
+                    builder.addAttribute(ATTR_ADMIN_MEMBER, groupMembers.getAdmins());
+                }
+            } else if (allowPartialAttributeValues) {
                 // Suppress fetching group member
                 LOGGER.ok("Suppress fetching group member because return partial attribute values is requested");
 
-                if (attributesToGet.contains(ATTR_MEMBER)) {
+                if (wantsMember) {
                     AttributeBuilder ab = new AttributeBuilder();
                     ab.setName(ATTR_MEMBER).setAttributeValueCompleteness(AttributeValueCompleteness.INCOMPLETE);
                     ab.addValue(Collections.emptyList());
                     builder.addAttribute(ab.build());
                 }
-                if (attributesToGet.contains(ATTR_ADMIN_MEMBER)) {
+                if (wantsAdminMember) {
                     AttributeBuilder ab = new AttributeBuilder();
                     ab.setName(ATTR_ADMIN_MEMBER).setAttributeValueCompleteness(AttributeValueCompleteness.INCOMPLETE);
                     ab.addValue(Collections.emptyList());
@@ -471,16 +613,16 @@ public class GroupsHandler extends AbstractHandler {
                 List<String> member = new ArrayList<>();
                 List<String> admin = new ArrayList<>();
                 for (BoxGroupMembership.Info membershipInfo : memberships) {
-                    if (membershipInfo.getGroupRole().equals(BoxGroupMembership.GroupRole.MEMBER) && attributesToGet.contains(ATTR_MEMBER)) {
+                    if (membershipInfo.getGroupRole().equals(BoxGroupMembership.GroupRole.MEMBER) && wantsMember) {
                         member.add(membershipInfo.getUser().getID());
-                    } else if (membershipInfo.getGroupRole().equals(BoxGroupMembership.GroupRole.ADMIN) && attributesToGet.contains(ATTR_ADMIN_MEMBER)) {
-                        admin.add(membershipInfo.getGroup().getID());
+                    } else if (membershipInfo.getGroupRole().equals(BoxGroupMembership.GroupRole.ADMIN) && wantsAdminMember) {
+                        admin.add(membershipInfo.getUser().getID());
                     }
                 }
-                if (attributesToGet.contains(ATTR_MEMBER)) {
+                if (wantsMember) {
                     builder.addAttribute(ATTR_MEMBER, member);
                 }
-                if (attributesToGet.contains(ATTR_ADMIN_MEMBER)) {
+                if (wantsAdminMember) {
                     builder.addAttribute(ATTR_ADMIN_MEMBER, admin);
                 }
             }
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import org.identityconnectors.common.logging.Log;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Metrics registry exported as an MXBean "com.exclamationlabs.connid.box:type=Metrics,name=&lt;app&gt;".
+ * It's shared by the connector instances of the same Box app (enterprise id + client id).
+ */
+public class JmxMetricsRegistry implements MetricsRegistry, BoxConnectorMetricsMXBean {
+
+    private static final Log LOGGER = Log.getLog(JmxMetricsRegistry.class);
+
+    private static final ConcurrentMap<String, JmxMetricsRegistry> REGISTRIES = new ConcurrentHashMap<>();
+
+    private volatile ConcurrentMap<String, LatencyHistogram> operations = new ConcurrentHashMap<>();
+    private final LongAdder httpRequests = new LongAdder();
+    private final LongAdder retryableResponses = new LongAdder();
+    private final LongAdder throttledResponses = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder avoidedMembershipInfoCalls = new LongAdder();
+    private final ConcurrentMap<String, LongAdder> scannedPages = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongAdder> scannedObjects = new ConcurrentHashMap<>();
+
+    public static JmxMetricsRegistry getInstance(String key) {
+        return REGISTRIES.computeIfAbsent(key, k -> {
+            JmxMetricsRegistry registry = new JmxMetricsRegistry();
+            register(k, registry);
+            return registry;
+        });
+    }
+
+    private static void register(String key, JmxMetricsRegistry registry) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("com.exclamationlabs.connid.box:type=Metrics,name=" + ObjectName.quote(key));
+            if (!server.isRegistered(name)) {
+                server.registerMBean(registry, name);
+            }
+        } catch (JMException e) {
+            // The metrics are still recorded
+            LOGGER.warn(e, "Failed to register the metrics MBean for {0}", key);
+        }
+    }
+
+    @Override
+    public void recordOperation(String operation, long elapsedNanos, boolean success, long httpRequests) {
+        operations.computeIfAbsent(operation, k -> new LatencyHistogram()).record(elapsedNanos, success, httpRequests);
+    }
+
+    @Override
+    public void recordHttpResponse(int statusCode, long bytesReceived) {
+        httpRequests.increment();
+        if (statusCode == 429) {
+            throttledResponses.increment();
+        }
+        // The SDK retries these responses within maxRetryAttempts
+        if (statusCode == 429 || statusCode >= 500) {
+            retryableResponses.increment();
+        }
+        if (bytesReceived > 0) {
+            this.bytesReceived.add(bytesReceived);
+        }
+    }
+
+    @Override
+    public void recordPage(String objectClass, int objects) {
+        scannedPages.computeIfAbsent(objectClass, k -> new LongAdder()).increment();
+        scannedObjects.computeIfAbsent(objectClass, k -> new LongAdder()).add(objects);
+    }
+
+    @Override
+    public void recordAvoidedMembershipInfoCall() {
+        avoidedMembershipInfoCalls.increment();
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts() {
+        return collect(LatencyHistogram::getCount);
+    }
+
+    @Override
+    public Map<String, Long> getOperationErrorCounts() {
+        return collect(LatencyHistogram::getErrorCount);
+    }
+
+    @Override
+    public Map<String, Double> getOperationMeanLatencyMillis() {
+        return collect(LatencyHistogram::getMeanMillis);
+    }
+
+    @Override
+    public Map<String, Long> getOperationMaxLatencyMillis() {
+        return collect(LatencyHistogram::getMaxMillis);
+    }
+
+    @Override
+    public Map<String, long[]> getOperationLatencyHistograms() {
+        return collect(LatencyHistogram::getBucketCounts);
+    }
+
+    @Override
+    public long[] getLatencyBucketUpperBoundsMillis() {
+        return LatencyHistogram.BUCKET_UPPER_BOUNDS_MILLIS.clone();
+    }
+
+    @Override
+    public Map<String, Double> getOperationMeanHttpRequests() {
+        return collect(LatencyHistogram::getMeanHttpRequests);
+    }
+
+    @Override
+    public long getHttpRequestCount() {
+        return httpRequests.sum();
+    }
+
+    @Override
+    public long getRetryableResponseCount() {
+        return retryableResponses.sum();
+    }
+
+    @Override
+    public long getThrottledResponseCount() {
+        return throttledResponses.sum();
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    @Override
+    public Map<String, Long> getScannedPageCounts() {
+        return sum(scannedPages);
+    }
+
+    @Override
+    public Map<String, Long> getScannedObjectCounts() {
+        return sum(scannedObjects);
+    }
+
+    @Override
+    public long getAvoidedMembershipInfoCallCount() {
+        return avoidedMembershipInfoCalls.sum();
+    }
+
+    @Override
+    public void reset() {
+        operations = new ConcurrentHashMap<>();
+        httpRequests.reset();
+        retryableResponses.reset();
+        throttledResponses.reset();
+        bytesReceived.reset();
+        avoidedMembershipInfoCalls.reset();
+        scannedPages.clear();
+        scannedObjects.clear();
+    }
+
+    private static Map<String, Long> sum(Map<String, LongAdder> counters) {
+        Map<String, Long> map = new TreeMap<>();
+        counters.forEach((objectClass, counter) -> map.put(objectClass, counter.sum()));
+        return map;
+    }
+
+    private <T> Map<String, T> collect(Function<LatencyHistogram, T> getter) {
+        Map<String, T> map = new TreeMap<>();
+        operations.forEach((operation, histogram) -> map.put(operation, getter.apply(histogram)));
+        return map;
+    }
+}
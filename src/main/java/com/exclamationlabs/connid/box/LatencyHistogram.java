@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with fixed buckets in milliseconds.
+ */
+public class LatencyHistogram {
+
+    // Upper bounds (inclusive) of the buckets. The last bucket counts the rest.
+    static final long[] BUCKET_UPPER_BOUNDS_MILLIS = {10, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000};
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_UPPER_BOUNDS_MILLIS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final LongAdder totalMillis = new LongAdder();
+    private final LongAdder totalHttpRequests = new LongAdder();
+    private final LongAccumulator maxMillis = new LongAccumulator(Long::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long elapsedNanos, boolean success, long httpRequests) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        buckets[indexOf(millis)].increment();
+        count.increment();
+        if (!success) {
+            errorCount.increment();
+        }
+        totalMillis.add(millis);
+        totalHttpRequests.add(httpRequests);
+        maxMillis.accumulate(millis);
+    }
+
+    static int indexOf(long millis) {
+        for (int i = 0; i < BUCKET_UPPER_BOUNDS_MILLIS.length; i++) {
+            if (millis <= BUCKET_UPPER_BOUNDS_MILLIS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_UPPER_BOUNDS_MILLIS.length;
+    }
+
+    public long[] getBucketCounts() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    public double getMeanMillis() {
+        long c = count.sum();
+        return c == 0 ? 0 : (double) totalMillis.sum() / c;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis.get();
+    }
+
+    public double getMeanHttpRequests() {
+        long c = count.sum();
+        return c == 0 ? 0 : (double) totalHttpRequests.sum() / c;
+    }
+}
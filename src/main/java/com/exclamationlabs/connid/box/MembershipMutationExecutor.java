@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import com.box.sdk.BoxAPIException;
+import org.identityconnectors.common.logging.Log;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+import org.identityconnectors.framework.common.exceptions.RetryableException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Execute independent group membership mutations (add, remove and update) with bounded parallelism.
+ * All the mutations are executed even if some of them fail, then the failures are reported as a single exception.
+ * When the parallelism is 1, the mutations are executed sequentially in the caller thread.
+ */
+public class MembershipMutationExecutor {
+
+    private static final Log LOGGER = Log.getLog(MembershipMutationExecutor.class);
+
+    private final String instanceName;
+    private final BoundedTaskRunner runner;
+
+    public MembershipMutationExecutor(String instanceName, int parallelism, int maxRetryAttempts) {
+        this.instanceName = instanceName;
+        this.runner = new BoundedTaskRunner(instanceName, "box-membership", parallelism, maxRetryAttempts);
+    }
+
+    public static class Mutation {
+        final String groupId;
+        final String action;
+        final Runnable task;
+
+        public Mutation(String groupId, String action, Runnable task) {
+            this.groupId = groupId;
+            this.action = action;
+            this.task = task;
+        }
+
+        @Override
+        public String toString() {
+            return action + " " + groupId;
+        }
+    }
+
+    public void execute(List<Mutation> mutations) {
+        if (mutations.isEmpty()) {
+            return;
+        }
+
+        if (runner.getParallelism() > 1 && mutations.size() > 1) {
+            LOGGER.ok("[{0}] Execute {1} membership mutations with parallelism {2}", instanceName, mutations.size(), runner.getParallelism());
+        }
+
+        List<Runnable> tasks = mutations.stream().map(m -> m.task).collect(Collectors.toList());
+        List<RuntimeException> results = runner.runAll(tasks);
+
+        List<Failure> failures = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i) != null) {
+                failures.add(new Failure(mutations.get(i), results.get(i)));
+            }
+        }
+
+        if (failures.isEmpty()) {
+            return;
+        }
+        if (failures.size() == 1) {
+            // Keep the original exception to map the error correctly
+            throw failures.get(0).exception;
+        }
+
+        String message = String.format("Failed %d of %d group membership operations: %s", failures.size(), mutations.size(),
+                failures.stream().map(Failure::toString).collect(Collectors.joining("; ")));
+        LOGGER.error("[{0}] {1}", instanceName, message);
+
+        ConnectorException aggregated;
+        if (failures.stream().allMatch(Failure::isRetryable)) {
+            aggregated = RetryableException.wrap(message, failures.get(0).exception);
+        } else {
+            aggregated = new ConnectorException(message, failures.get(0).exception);
+        }
+        for (int i = 1; i < failures.size(); i++) {
+            aggregated.addSuppressed(failures.get(i).exception);
+        }
+        throw aggregated;
+    }
+
+    private static class Failure {
+        final Mutation mutation;
+        final RuntimeException exception;
+
+        Failure(Mutation mutation, RuntimeException exception) {
+            this.mutation = mutation;
+            this.exception = exception;
+        }
+
+        boolean isRetryable() {
+            if (exception instanceof BoxAPIException) {
+                int code = ((BoxAPIException) exception).getResponseCode();
+                return code == 412 || code == 429 || code == 500 || code == 502 || code == 503;
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return mutation + ": " + exception.getMessage();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Record every HTTP response of a connection to the metrics registry.
+ * It also counts the requests of the connection to attribute them to the running connector operation.
+ */
+public class MetricsInterceptor implements Interceptor {
+
+    private final MetricsRegistry registry;
+    private final AtomicLong requestCount = new AtomicLong();
+
+    public MetricsInterceptor(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        requestCount.incrementAndGet();
+
+        Response response = chain.proceed(chain.request());
+
+        registry.recordHttpResponse(response.code(), toContentLength(response.header("Content-Length")));
+        return response;
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    private static long toContentLength(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
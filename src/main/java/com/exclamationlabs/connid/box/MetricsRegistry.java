@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+/**
+ * Receiver of the connector metrics. The default is {@link #NOOP}; enable "metricsEnabled" to export them via JMX,
+ * or override {@link BoxConnector#createMetricsRegistry(String)} to plug another implementation.
+ */
+public interface MetricsRegistry {
+
+    MetricsRegistry NOOP = new MetricsRegistry() {
+        @Override
+        public void recordOperation(String operation, long elapsedNanos, boolean success, long httpRequests) {
+        }
+
+        @Override
+        public void recordHttpResponse(int statusCode, long bytesReceived) {
+        }
+    };
+
+    /**
+     * Record a connector operation (create, updateDelta, delete, executeQuery, sync).
+     *
+     * @param operation    name of the operation
+     * @param elapsedNanos latency of the operation
+     * @param success      false if the operation threw an exception
+     * @param httpRequests number of HTTP requests sent to Box during the operation
+     */
+    void recordOperation(String operation, long elapsedNanos, boolean success, long httpRequests);
+
+    /**
+     * Record an HTTP response from Box, including the responses retried by the SDK.
+     *
+     * @param statusCode    HTTP status code
+     * @param bytesReceived length of the response body, or -1 if unknown
+     */
+    void recordHttpResponse(int statusCode, long bytesReceived);
+
+    /**
+     * Record a page fetched by a full scan, to track the progress of a long-running reconciliation.
+     *
+     * @param objectClass object class of the scan
+     * @param objects     number of the objects emitted from the page
+     */
+    default void recordPage(String objectClass, int objects) {
+    }
+
+    /**
+     * Record a group membership API call avoided by reading "configurable_permissions" from the membership listing.
+     */
+    default void recordAvoidedMembershipInfoCall() {
+    }
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import org.identityconnectors.common.logging.Log;
+import org.identityconnectors.framework.common.objects.ConnectorObject;
+import org.identityconnectors.framework.common.objects.ObjectClass;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Read-through cache of the users and groups fetched by uid, keyed by object class + uid + attributes to get.
+ * The entries expire after the TTL and the least recently used entry is evicted when the size bound is reached.
+ * All the projections of an object are invalidated when this connector creates, updates or deletes it.
+ * A read-through fetch takes a generation before fetching, and {@link #put} drops its object if the object
+ * was invalidated in the meantime, so a slow fetch doesn't cache the state before the change.
+ * It's shared by the connector instances of the same Box app and exported as an MXBean
+ * "com.exclamationlabs.connid.box:type=ObjectCache,name=&lt;app&gt;" to tune the TTL against staleness.
+ */
+public class ObjectCache implements ObjectCacheMXBean {
+
+    private static final Log LOGGER = Log.getLog(ObjectCache.class);
+
+    private static final ConcurrentMap<String, ObjectCache> CACHES = new ConcurrentHashMap<>();
+
+    /**
+     * The cache which never keeps any object.
+     */
+    public static final ObjectCache DISABLED = new ObjectCache(0, 0, System::nanoTime);
+
+    // The invalidations remembered to check the in-flight fetches
+    private static final int MAX_INVALIDATION_RECORDS = 1024;
+
+    private volatile int maxSize;
+    private volatile long ttlNanos;
+    private final LongSupplier clock;
+
+    // Guarded by this
+    private final LinkedHashMap<Key, Entry> entries;
+    // Key: object class + uid, to invalidate all the projections of the object
+    private final Map<String, Set<Key>> projections = new HashMap<>();
+    // Incremented by each invalidation
+    private long generation;
+    // Key: object class + uid or object class, value: the generation of the last invalidation
+    private final LinkedHashMap<String, Long> invalidatedAt = new LinkedHashMap<>();
+    // The fetches started before this generation are dropped since their invalidation records were pruned
+    private long minGeneration;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public static ObjectCache getInstance(String key, int maxSize, long ttlInMilliseconds) {
+        long ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlInMilliseconds);
+        ObjectCache cache = CACHES.computeIfAbsent(key, k -> {
+            ObjectCache c = new ObjectCache(maxSize, ttlNanos, System::nanoTime);
+            register(k, c);
+            return c;
+        });
+        if (cache.maxSize != maxSize || cache.ttlNanos != ttlNanos) {
+            // The configuration was changed
+            cache.reconfigure(maxSize, ttlNanos);
+        }
+        return cache;
+    }
+
+    private static void register(String key, ObjectCache cache) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("com.exclamationlabs.connid.box:type=ObjectCache,name=" + ObjectName.quote(key));
+            if (!server.isRegistered(name)) {
+                server.registerMBean(cache, name);
+            }
+        } catch (JMException e) {
+            // The cache still works
+            LOGGER.warn(e, "Failed to register the object cache MBean for {0}", key);
+        }
+    }
+
+    ObjectCache(int maxSize, long ttlNanos, LongSupplier clock) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlNanos;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > ObjectCache.this.maxSize) {
+                    unindex(eldest.getKey());
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Apply the new size bound and TTL. The least recently used entries are evicted if the cache shrinks, and
+     * the TTL applies to the cached entries too.
+     */
+    synchronized void reconfigure(int maxSize, long ttlNanos) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlNanos;
+        Iterator<Key> it = entries.keySet().iterator();
+        while (entries.size() > Math.max(maxSize, 0) && it.hasNext()) {
+            Key key = it.next();
+            it.remove();
+            unindex(key);
+            evictions.increment();
+        }
+        LOGGER.info("Reconfigured the object cache, maxSize: {0}, ttl: {1}ms", maxSize,
+                TimeUnit.NANOSECONDS.toMillis(ttlNanos));
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0 && ttlNanos > 0;
+    }
+
+    /**
+     * @return the cached object, or null if it's not cached or expired
+     */
+    public ConnectorObject get(ObjectClass objectClass, String uid, Set<String> attributesToGet, boolean allowPartialAttributeValues) {
+        if (!isEnabled()) {
+            return null;
+        }
+        Key key = new Key(objectClass, uid, attributesToGet, allowPartialAttributeValues);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (clock.getAsLong() - entry.createdAt < ttlNanos) {
+                    hits.increment();
+                    return entry.object;
+                }
+                entries.remove(key);
+                unindex(key);
+                evictions.increment();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Returns the generation to pass to {@link #put}. Take it before fetching the object from Box.
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Cache the fetched object unless it was invalidated after the generation was taken.
+     *
+     * @param generation the value of {@link #getGeneration()} taken before fetching the object
+     */
+    public void put(ObjectClass objectClass, String uid, Set<String> attributesToGet, boolean allowPartialAttributeValues,
+                    ConnectorObject object, long generation) {
+        if (!isEnabled()) {
+            return;
+        }
+        Key key = new Key(objectClass, uid, attributesToGet, allowPartialAttributeValues);
+        synchronized (this) {
+            if (isInvalidatedSince(key.objectKey, objectClass.getObjectClassValue(), generation)) {
+                LOGGER.ok("Skip caching {0} invalidated while fetching", key.objectKey);
+                return;
+            }
+            // Index first since putting might evict the eldest projection of the same object
+            projections.computeIfAbsent(key.objectKey, k -> new HashSet<>()).add(key);
+            entries.put(key, new Entry(object, clock.getAsLong()));
+        }
+    }
+
+    /**
+     * Drop all the cached projections of the object.
+     */
+    public void invalidate(ObjectClass objectClass, String uid) {
+        if (!isEnabled()) {
+            return;
+        }
+        String objectKey = toObjectKey(objectClass, uid);
+        synchronized (this) {
+            Set<Key> keys = projections.remove(objectKey);
+            if (keys != null) {
+                entries.keySet().removeAll(keys);
+            }
+            recordInvalidation(objectKey);
+        }
+        invalidations.increment();
+    }
+
+    /**
+     * Drop all the cached objects of the object class. It's used when a change affects the association
+     * attributes of other objects, e.g. the members of groups.
+     */
+    public void invalidateAll(ObjectClass objectClass) {
+        if (!isEnabled()) {
+            return;
+        }
+        String prefix = objectClass.getObjectClassValue() + ":";
+        synchronized (this) {
+            Iterator<Map.Entry<String, Set<Key>>> it = projections.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Set<Key>> e = it.next();
+                if (e.getKey().startsWith(prefix)) {
+                    entries.keySet().removeAll(e.getValue());
+                    it.remove();
+                }
+            }
+            recordInvalidation(objectClass.getObjectClassValue());
+        }
+        invalidations.increment();
+    }
+
+    private boolean isInvalidatedSince(String objectKey, String objectClassKey, long generation) {
+        return generation < minGeneration
+                || invalidatedAt.getOrDefault(objectKey, 0L) > generation
+                || invalidatedAt.getOrDefault(objectClassKey, 0L) > generation;
+    }
+
+    private void recordInvalidation(String key) {
+        generation++;
+        // Move the key to the end to prune the oldest invalidation first
+        invalidatedAt.remove(key);
+        invalidatedAt.put(key, generation);
+        if (invalidatedAt.size() > MAX_INVALIDATION_RECORDS) {
+            Iterator<Map.Entry<String, Long>> it = invalidatedAt.entrySet().iterator();
+            minGeneration = it.next().getValue();
+            it.remove();
+        }
+    }
+
+    private void unindex(Key key) {
+        Set<Key> keys = projections.get(key.objectKey);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                projections.remove(key.objectKey);
+            }
+        }
+    }
+
+    private static String toObjectKey(ObjectClass objectClass, String uid) {
+        return objectClass.getObjectClassValue() + ":" + uid;
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public double getHitRate() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    @Override
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    @Override
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public long getTtlInMilliseconds() {
+        return TimeUnit.NANOSECONDS.toMillis(ttlNanos);
+    }
+
+    @Override
+    public void reset() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+        invalidations.reset();
+    }
+
+    @Override
+    public synchronized void clear() {
+        entries.clear();
+        projections.clear();
+        // Drop the objects being fetched too
+        generation++;
+        minGeneration = generation;
+        invalidatedAt.clear();
+    }
+
+    private static class Key {
+        final String objectKey;
+        final Set<String> attributesToGet;
+        final boolean allowPartialAttributeValues;
+
+        Key(ObjectClass objectClass, String uid, Set<String> attributesToGet, boolean allowPartialAttributeValues) {
+            this.objectKey = toObjectKey(objectClass, uid);
+            this.attributesToGet = attributesToGet;
+            this.allowPartialAttributeValues = allowPartialAttributeValues;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return allowPartialAttributeValues == key.allowPartialAttributeValues &&
+                    objectKey.equals(key.objectKey) &&
+                    attributesToGet.equals(key.attributesToGet);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(objectKey, attributesToGet, allowPartialAttributeValues);
+        }
+    }
+
+    private static class Entry {
+        final ConnectorObject object;
+        final long createdAt;
+
+        Entry(ConnectorObject object, long createdAt) {
+            this.object = object;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+/**
+ * JMX view of the read-through cache of users and groups for a Box app.
+ */
+public interface ObjectCacheMXBean {
+
+    long getHitCount();
+
+    long getMissCount();
+
+    /**
+     * Returns hits / (hits + misses), or 0 if there is no lookup yet.
+     */
+    double getHitRate();
+
+    /**
+     * Returns the number of the entries dropped by the size bound or the TTL.
+     */
+    long getEvictionCount();
+
+    /**
+     * Returns the number of the objects invalidated by create/update/delete of this connector.
+     */
+    long getInvalidationCount();
+
+    int getSize();
+
+    int getMaxSize();
+
+    long getTtlInMilliseconds();
+
+    /**
+     * Reset the counters. The cached objects are kept.
+     */
+    void reset();
+
+    /**
+     * Drop all the cached objects.
+     */
+    void clear();
+}
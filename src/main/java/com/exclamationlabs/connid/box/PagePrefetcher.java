@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import org.identityconnectors.common.logging.Log;
+import org.identityconnectors.framework.common.exceptions.ConnectorIOException;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+/**
+ * Enumerate the pages of a Box collection API in order, fetching the next pages in a background thread while
+ * the current page is being handled. The pages are chained by a cursor, e.g. the marker or the next offset, so
+ * only one request is in flight at a time. Each request takes a permit that is returned when the page is taken
+ * by the handler, so the queued and in-flight pages never exceed "depth".
+ * When the page handler returns false, no more pages are requested. A request already in flight is not aborted
+ * because a blocked socket read doesn't respond to the interrupt; its page is discarded when it completes.
+ * With depth 0, the pages are fetched in the calling thread one after another.
+ */
+public class PagePrefetcher {
+
+    private static final Log LOGGER = Log.getLog(PagePrefetcher.class);
+
+    private final String instanceName;
+    private final int depth;
+
+    public PagePrefetcher(String instanceName, int depth) {
+        this.instanceName = instanceName;
+        this.depth = depth;
+    }
+
+    /**
+     * A fetched page and the cursor of the next page.
+     */
+    public static class Page<T> {
+        private final List<T> entries;
+        private final String nextCursor;
+
+        public Page(List<T> entries, String nextCursor) {
+            this.entries = entries;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<T> getEntries() {
+            return entries;
+        }
+
+        /**
+         * @return the cursor of the next page, or null if it's the last page
+         */
+        public String getNextCursor() {
+            return nextCursor;
+        }
+    }
+
+    @FunctionalInterface
+    public interface PageLoader<T> {
+        Page<T> load(String cursor);
+    }
+
+    /**
+     * Fetch and handle all pages from the cursor.
+     *
+     * @param cursor      cursor of the first page, can be null
+     * @param loader      loader of a page
+     * @param pageHandler handler for each page. Return false to stop fetching.
+     * @return true if all pages were handled, false if stopped by the page handler
+     */
+    public <T> boolean fetchAll(String cursor, PageLoader<T> loader, Predicate<Page<T>> pageHandler) {
+        if (depth <= 0) {
+            while (true) {
+                Page<T> page = loader.load(cursor);
+                if (!pageHandler.test(page)) {
+                    return false;
+                }
+                if (page.getNextCursor() == null) {
+                    return true;
+                }
+                cursor = page.getNextCursor();
+            }
+        }
+
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<>(depth);
+        Semaphore permits = new Semaphore(depth);
+        AtomicBoolean stopped = new AtomicBoolean();
+        ExecutorService executor = Executors.newSingleThreadExecutor(new DaemonThreadFactory("box-page-prefetcher", instanceName));
+        String firstCursor = cursor;
+        Future<?> producer = executor.submit(() -> produce(firstCursor, loader, queue, permits, stopped));
+        try {
+            while (true) {
+                Object next = take(queue);
+                permits.release();
+                if (next instanceof RuntimeException) {
+                    throw (RuntimeException) next;
+                }
+                if (next instanceof Error) {
+                    throw (Error) next;
+                }
+                @SuppressWarnings("unchecked")
+                Page<T> page = (Page<T>) next;
+                if (!pageHandler.test(page)) {
+                    LOGGER.ok("[{0}] Stop fetching pages because the handler returned false", instanceName);
+                    return false;
+                }
+                if (page.getNextCursor() == null) {
+                    return true;
+                }
+            }
+        } finally {
+            // Don't request any more pages after the handler stopped or failed
+            stopped.set(true);
+            producer.cancel(true);
+            executor.shutdownNow();
+        }
+    }
+
+    private <T> void produce(String cursor, PageLoader<T> loader, BlockingQueue<Object> queue, Semaphore permits,
+                             AtomicBoolean stopped) {
+        try {
+            while (true) {
+                permits.acquire();
+                if (stopped.get()) {
+                    return;
+                }
+                Page<T> page;
+                try {
+                    page = loader.load(cursor);
+                } catch (RuntimeException | Error e) {
+                    queue.put(e);
+                    return;
+                }
+                queue.put(page);
+                if (page.getNextCursor() == null) {
+                    return;
+                }
+                cursor = page.getNextCursor();
+            }
+        } catch (InterruptedException e) {
+            // Cancelled by the consumer
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Object take(BlockingQueue<Object> queue) {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectorIOException("Interrupted while fetching pages", e);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import com.box.sdk.*;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
+import org.identityconnectors.common.logging.Log;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+import org.identityconnectors.framework.common.exceptions.ConnectorIOException;
+
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.*;
+import java.util.function.Predicate;
+
+/**
+ * Enumerate the entries of an offset-based Box collection API with concurrent page requests.
+ * The first page is fetched to discover "total_count", then the remaining pages are requested with
+ * bounded parallelism. The entries are delivered to the entry handler in the original order.
+ */
+public class ParallelPageFetcher {
+
+    private static final Log LOGGER = Log.getLog(ParallelPageFetcher.class);
+
+    private static final int PAGE_SIZE = 1000;
+
+    private final String instanceName;
+    private final BoxAPIConnection boxAPI;
+    private final int parallelism;
+
+    // Shared by all workers to pause sending requests after receiving "429 Too Many Requests"
+    private final Throttle throttle;
+
+    public ParallelPageFetcher(String instanceName, BoxAPIConnection boxAPI, int parallelism) {
+        this.instanceName = instanceName;
+        this.boxAPI = boxAPI;
+        this.parallelism = parallelism;
+        this.throttle = new Throttle(instanceName, boxAPI.getMaxRetryAttempts());
+    }
+
+    /**
+     * Fetch all entries of the collection.
+     *
+     * @param template     URL template of the collection API
+     * @param fields       fields to fetch
+     * @param entryHandler handler for each entry. Return false to stop fetching.
+     */
+    public void fetchAll(URLTemplate template, String[] fields, Predicate<JsonObject> entryHandler) {
+        JsonObject firstPage = fetchPage(template, fields, 0, PAGE_SIZE);
+        if (!handleEntries(firstPage, entryHandler)) {
+            return;
+        }
+
+        long totalCount = firstPage.getLong("total_count", 0);
+        // The server may return a smaller limit than requested
+        int limit = firstPage.getInt("limit", PAGE_SIZE);
+        if (limit <= 0 || limit >= totalCount) {
+            return;
+        }
+
+        LOGGER.ok("[{0}] Fetch remaining pages concurrently, total_count: {1}, limit: {2}, parallelism: {3}",
+                instanceName, totalCount, limit, parallelism);
+
+        ExecutorService executor = DaemonThreadFactory.newFixedThreadPool("box-page-fetcher", instanceName, parallelism);
+        Deque<Future<JsonObject>> inFlight = new ArrayDeque<>();
+        try {
+            long nextOffset = limit;
+            while (nextOffset < totalCount && inFlight.size() < parallelism) {
+                inFlight.add(submit(executor, template, fields, nextOffset, limit));
+                nextOffset += limit;
+            }
+
+            while (!inFlight.isEmpty()) {
+                // Wait for the head page to keep the original order
+                JsonObject page = await(inFlight.poll());
+
+                if (nextOffset < totalCount) {
+                    inFlight.add(submit(executor, template, fields, nextOffset, limit));
+                    nextOffset += limit;
+                }
+
+                if (!handleEntries(page, entryHandler)) {
+                    return;
+                }
+            }
+        } finally {
+            for (Future<JsonObject> future : inFlight) {
+                future.cancel(true);
+            }
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean handleEntries(JsonObject page, Predicate<JsonObject> entryHandler) {
+        for (JsonValue entry : page.get("entries").asArray()) {
+            if (!entryHandler.test(entry.asObject())) {
+                LOGGER.ok("[{0}] Stop fetching pages because the handler returned false", instanceName);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Future<JsonObject> submit(ExecutorService executor, URLTemplate template, String[] fields, long offset, int limit) {
+        return executor.submit(() -> fetchPage(template, fields, offset, limit));
+    }
+
+    private JsonObject await(Future<JsonObject> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectorIOException("Interrupted while fetching pages", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new ConnectorException(e.getCause());
+        }
+    }
+
+    private JsonObject fetchPage(URLTemplate template, String[] fields, long offset, int limit) {
+        URL url = template.buildWithQuery(boxAPI.getBaseURL(), toQuery(fields, offset, limit));
+
+        // The SDK already retried the request. Back off all workers and try again within the retry limit.
+        return throttle.call(() -> {
+            BoxJSONResponse response = (BoxJSONResponse) new BoxAPIRequest(boxAPI, url, "GET").send();
+            return response.getJsonObject();
+        });
+    }
+
+    private String toQuery(String[] fields, long offset, int limit) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("?limit=").append(limit).append("&offset=").append(offset);
+        if (fields != null && fields.length > 0) {
+            sb.append("&fields=").append(AbstractHandler.encodeQueryParam(String.join(",", fields)));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import org.identityconnectors.framework.common.objects.ConnectorObjectBuilder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The attribute extractors selected by the attributes to get of a query. It's compiled once per query and
+ * applied to each fetched object, instead of checking the attributes to get per object and per attribute.
+ *
+ * @param <T> type of the fetched object
+ */
+public class ProjectionPlan<T> {
+
+    @FunctionalInterface
+    public interface Extractor<T> {
+        void extract(T source, ConnectorObjectBuilder builder);
+    }
+
+    private final Set<String> attributesToGet;
+    private final Extractor<T>[] extractors;
+
+    private ProjectionPlan(Set<String> attributesToGet, Extractor<T>[] extractors) {
+        this.attributesToGet = attributesToGet;
+        this.extractors = extractors;
+    }
+
+    public void apply(T source, ConnectorObjectBuilder builder) {
+        for (Extractor<T> extractor : extractors) {
+            extractor.extract(source, builder);
+        }
+    }
+
+    public Set<String> getAttributesToGet() {
+        return attributesToGet;
+    }
+
+    public int size() {
+        return extractors.length;
+    }
+
+    /**
+     * The extractors of all supported attributes. The compiled plans are cached per shape of the attributes to get.
+     *
+     * @param <T> type of the fetched object
+     */
+    public static class Catalog<T> {
+        // Key: the attribute name in the attributes to get
+        private final Map<String, Extractor<T>> extractors = new LinkedHashMap<>();
+        private final Map<Set<String>, ProjectionPlan<T>> plans = new ConcurrentHashMap<>();
+
+        public Catalog<T> add(String attrName, Extractor<T> extractor) {
+            extractors.put(attrName, extractor);
+            return this;
+        }
+
+        public ProjectionPlan<T> compile(Set<String> attributesToGet) {
+            ProjectionPlan<T> plan = plans.get(attributesToGet);
+            if (plan == null) {
+                List<Extractor<T>> selected = new ArrayList<>();
+                extractors.forEach((attrName, extractor) -> {
+                    if (attributesToGet.contains(attrName)) {
+                        selected.add(extractor);
+                    }
+                });
+                @SuppressWarnings({"unchecked", "rawtypes"})
+                Extractor<T>[] array = selected.toArray(new Extractor[0]);
+                plan = new ProjectionPlan<>(attributesToGet, array);
+                if (plans.size() < AbstractHandler.MAX_CACHED_ATTRIBUTES_SHAPES) {
+                    plans.put(attributesToGet, plan);
+                }
+            }
+            return plan;
+        }
+    }
+}
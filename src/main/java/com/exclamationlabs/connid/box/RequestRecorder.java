@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.identityconnectors.common.logging.Log;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Record the recent HTTP requests to Box in a lock-free ring buffer and aggregate them per endpoint.
+ * It's shared by the connector instances of the same Box app and exported as an MXBean
+ * "com.exclamationlabs.connid.box:type=RequestRecorder,name=&lt;app&gt;" for diagnostics.
+ */
+public class RequestRecorder implements Interceptor, RequestRecorderMXBean {
+
+    private static final Log LOGGER = Log.getLog(RequestRecorder.class);
+
+    private static final ConcurrentMap<String, RequestRecorder> RECORDERS = new ConcurrentHashMap<>();
+
+    // Replace ids in the path to aggregate the requests per endpoint
+    private static final Pattern ID_IN_PATH = Pattern.compile("/\\d+(?=/|$)");
+
+    private volatile Ring ring;
+    private volatile int size;
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentMap<String, EndpointStats> stats = new ConcurrentHashMap<>();
+
+    RequestRecorder(int size) {
+        this.ring = new Ring(size);
+        this.size = size;
+    }
+
+    public static RequestRecorder getInstance(String key, int size) {
+        RequestRecorder recorder = RECORDERS.computeIfAbsent(key, k -> {
+            RequestRecorder r = new RequestRecorder(size);
+            register(k, r);
+            return r;
+        });
+        if (recorder.size != size) {
+            // The configuration was changed
+            recorder.resize(size);
+        }
+        return recorder;
+    }
+
+    /**
+     * Replace the ring buffer with one of the new size. The most recent requests are kept; a request recorded
+     * concurrently with the resize might be lost, which is acceptable for diagnostics.
+     */
+    synchronized void resize(int size) {
+        Ring oldRing = ring;
+        Ring newRing = new Ring(size);
+        long last = sequence.get();
+        long first = Math.max(0, last - Math.min(oldRing.buffer.length(), newRing.buffer.length()));
+        for (long i = first; i < last; i++) {
+            newRing.buffer.set((int) (i & newRing.mask), oldRing.buffer.get((int) (i & oldRing.mask)));
+        }
+        ring = newRing;
+        this.size = size;
+    }
+
+    private static void register(String key, RequestRecorder recorder) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("com.exclamationlabs.connid.box:type=RequestRecorder,name=" + ObjectName.quote(key));
+            if (!server.isRegistered(name)) {
+                server.registerMBean(recorder, name);
+            }
+        } catch (JMException e) {
+            LOGGER.warn(e, "Failed to register the request recorder MBean for {0}", key);
+        }
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        long start = System.nanoTime();
+        int status = -1;
+        try {
+            Response response = chain.proceed(request);
+            status = response.code();
+            return response;
+        } finally {
+            record(request.method(), request.url().encodedPath(), toPaginationPosition(request),
+                    status, System.nanoTime() - start);
+        }
+    }
+
+    void record(String method, String path, String pagination, int status, long elapsedNanos) {
+        String endpoint = method + " " + ID_IN_PATH.matcher(path).replaceAll("/{id}");
+        long millis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+
+        Entry entry = new Entry(System.currentTimeMillis(), endpoint, pagination, status, millis);
+        Ring r = ring;
+        r.buffer.set((int) (sequence.getAndIncrement() & r.mask), entry);
+
+        stats.computeIfAbsent(endpoint, k -> new EndpointStats()).record(status, millis);
+    }
+
+    private static String toPaginationPosition(Request request) {
+        String offset = request.url().queryParameter("offset");
+        if (offset != null) {
+            return "offset=" + offset;
+        }
+        String marker = request.url().queryParameter("marker");
+        if (marker != null) {
+            return "marker=" + marker;
+        }
+        String streamPosition = request.url().queryParameter("stream_position");
+        if (streamPosition != null) {
+            return "stream_position=" + streamPosition;
+        }
+        return null;
+    }
+
+    @Override
+    public String dump() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Recent requests (oldest first):\n");
+        Ring r = ring;
+        long last = sequence.get();
+        long first = Math.max(0, last - r.buffer.length());
+        for (long i = first; i < last; i++) {
+            Entry entry = r.buffer.get((int) (i & r.mask));
+            if (entry != null) {
+                sb.append("  ").append(entry).append('\n');
+            }
+        }
+        sb.append("Endpoints:\n");
+        getEndpointStats().forEach((endpoint, s) -> sb.append("  ").append(endpoint).append(": ").append(s).append('\n'));
+        return sb.toString();
+    }
+
+    @Override
+    public Map<String, String> getEndpointStats() {
+        Map<String, String> map = new TreeMap<>();
+        stats.forEach((endpoint, s) -> map.put(endpoint, s.toString()));
+        return map;
+    }
+
+    @Override
+    public long getRecordedCount() {
+        return sequence.get();
+    }
+
+    @Override
+    public void reset() {
+        Ring r = ring;
+        for (int i = 0; i < r.buffer.length(); i++) {
+            r.buffer.set(i, null);
+        }
+        stats.clear();
+    }
+
+    int getCapacity() {
+        return ring.buffer.length();
+    }
+
+    private static class Ring {
+        final AtomicReferenceArray<Entry> buffer;
+        final int mask;
+
+        Ring(int size) {
+            // Round up to a power of two to compute the slot by masking
+            int capacity = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+            this.buffer = new AtomicReferenceArray<>(capacity);
+            this.mask = capacity - 1;
+        }
+    }
+
+    private static class Entry {
+        final long timestamp;
+        final String endpoint;
+        final String pagination;
+        final int status;
+        final long millis;
+
+        Entry(long timestamp, String endpoint, String pagination, int status, long millis) {
+            this.timestamp = timestamp;
+            this.endpoint = endpoint;
+            this.pagination = pagination;
+            this.status = status;
+            this.millis = millis;
+        }
+
+        @Override
+        public String toString() {
+            return Instant.ofEpochMilli(timestamp) + " " + endpoint +
+                    (pagination != null ? " [" + pagination + "]" : "") +
+                    " status=" + (status < 0 ? "error" : String.valueOf(status)) +
+                    " " + millis + "ms";
+        }
+    }
+
+    private static class EndpointStats {
+        final LongAdder count = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder totalMillis = new LongAdder();
+        final LongAccumulator maxMillis = new LongAccumulator(Long::max, 0);
+
+        void record(int status, long millis) {
+            count.increment();
+            // Including I/O errors (status -1)
+            if (status < 200 || status >= 400) {
+                errors.increment();
+            }
+            totalMillis.add(millis);
+            maxMillis.accumulate(millis);
+        }
+
+        @Override
+        public String toString() {
+            long c = count.sum();
+            return "count=" + c +
+                    " errors=" + errors.sum() +
+                    " mean=" + (c == 0 ? 0 : totalMillis.sum() / c) + "ms" +
+                    " max=" + maxMillis.get() + "ms";
+        }
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import java.util.Map;
+
+/**
+ * JMX view of the recent HTTP requests to Box for a Box app.
+ */
+public interface RequestRecorderMXBean {
+
+    /**
+     * Returns the recent requests and the statistics per endpoint as text.
+     */
+    String dump();
+
+    /**
+     * Returns the statistics keyed by the endpoint such as "GET /2.0/users/{id}".
+     */
+    Map<String, String> getEndpointStats();
+
+    long getRecordedCount();
+
+    void reset();
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import org.identityconnectors.common.logging.Log;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * File-backed checkpoint of a marker-based scan. It keeps the marker of the next page after each completed page,
+ * so an interrupted scan can resume from there instead of starting over. The checkpoint is bound to a scope,
+ * e.g. the fetched fields, and a checkpoint of another scope is ignored.
+ * A checkpoint file is owned by one scan at a time in this process, so the pooled connector instances configured
+ * with the same file don't overwrite or delete the checkpoint of each other.
+ * Reading and writing it is best-effort; a failure is logged and the scan continues.
+ */
+public class ScanCheckpoint {
+
+    private static final Log LOGGER = Log.getLog(ScanCheckpoint.class);
+
+    private static final String SCOPE = "scope";
+    private static final String MARKER = "marker";
+    private static final String PAGES = "pages";
+    private static final String OBJECTS = "objects";
+
+    // Checkpoint files owned by the running scans
+    private static final Set<Path> OWNED_FILES = ConcurrentHashMap.newKeySet();
+
+    private final Path file;
+    private final String scope;
+
+    private long pages;
+    private long objects;
+
+    private ScanCheckpoint(Path file, String scope) {
+        this.file = file;
+        this.scope = scope;
+    }
+
+    /**
+     * Take the ownership of the checkpoint file for a scan. Call {@link #release()} when the scan ends.
+     *
+     * @return the checkpoint, or null if another scan owns the file
+     */
+    public static ScanCheckpoint acquire(Path file, String scope) {
+        Path normalized = file.toAbsolutePath().normalize();
+        if (!OWNED_FILES.add(normalized)) {
+            LOGGER.info("The scan checkpoint {0} is used by another scan, continue without it", normalized);
+            return null;
+        }
+        return new ScanCheckpoint(normalized, scope);
+    }
+
+    public void release() {
+        OWNED_FILES.remove(file);
+    }
+
+    /**
+     * Load the checkpoint. The progress of the interrupted scan is restored too.
+     *
+     * @return the marker to resume from, or null if there is no checkpoint for the scope
+     */
+    public String load() {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            props.load(reader);
+        } catch (IOException e) {
+            LOGGER.warn(e, "Failed to read the scan checkpoint {0}", file);
+            return null;
+        }
+        if (!scope.equals(props.getProperty(SCOPE)) || props.getProperty(MARKER) == null) {
+            LOGGER.info("Ignored the scan checkpoint {0} of another scope: {1}", file, props.getProperty(SCOPE));
+            return null;
+        }
+        pages = Long.parseLong(props.getProperty(PAGES, "0"));
+        objects = Long.parseLong(props.getProperty(OBJECTS, "0"));
+        return props.getProperty(MARKER);
+    }
+
+    /**
+     * Save the marker of the next page. The file is replaced atomically so that a crash doesn't corrupt it.
+     */
+    public void save(String marker, long pages, long objects) {
+        this.pages = pages;
+        this.objects = objects;
+        Properties props = new Properties();
+        props.setProperty(SCOPE, scope);
+        props.setProperty(MARKER, marker);
+        props.setProperty(PAGES, String.valueOf(pages));
+        props.setProperty(OBJECTS, String.valueOf(objects));
+        try {
+            Path dir = file.toAbsolutePath().getParent();
+            Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                props.store(writer, null);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn(e, "Failed to write the scan checkpoint {0}", file);
+        }
+    }
+
+    /**
+     * Delete the checkpoint after the scan completed or was stopped by the handler.
+     */
+    public void clear() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.warn(e, "Failed to delete the scan checkpoint {0}", file);
+        }
+    }
+
+    /**
+     * @return number of the pages fetched before the checkpoint
+     */
+    public long getPages() {
+        return pages;
+    }
+
+    /**
+     * @return number of the objects emitted before the checkpoint
+     */
+    public long getObjects() {
+        return objects;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import com.box.sdk.BoxAPIConnection;
+import com.box.sdk.BoxAPIConnectionListener;
+import com.box.sdk.BoxAPIException;
+import com.box.sdk.BoxConfig;
+import org.identityconnectors.common.logging.Log;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Process-wide cache of the access token for each Box app (enterprise id + client id).
+ * Pooled connector instances with the same app share the token, so that a new instance doesn't need to
+ * authenticate and only one instance refreshes the token before it expires.
+ */
+public class SharedAccessTokenCache {
+
+    private static final Log LOGGER = Log.getLog(SharedAccessTokenCache.class);
+
+    // Refresh the token 5 minutes before the expiration, earlier than the SDK does (60 seconds before)
+    private static final long REFRESH_MARGIN_MILLIS = 5 * 60 * 1000;
+
+    private static final SharedAccessTokenCache INSTANCE = new SharedAccessTokenCache();
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<>();
+
+    public static SharedAccessTokenCache getInstance() {
+        return INSTANCE;
+    }
+
+    public static String toKey(BoxConfig boxConfig) {
+        return boxConfig.getEnterpriseId() + "/" + boxConfig.getClientId();
+    }
+
+    /**
+     * Restore the cached access token to the connection if it's still fresh.
+     *
+     * @return true if restored
+     */
+    public boolean restore(String key, BoxAPIConnection boxAPI) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.isExpiring()) {
+            return false;
+        }
+        entry.applyTo(boxAPI);
+        return true;
+    }
+
+    /**
+     * Authenticate the connection unless a fresh token is cached, then keep the cache updated with the tokens
+     * refreshed by the connection.
+     */
+    public void authenticate(String key, BoxAPIConnection boxAPI, Runnable authenticator) {
+        synchronized (lockFor(key)) {
+            if (restore(key, boxAPI)) {
+                LOGGER.ok("Restored the cached access token for {0}", key);
+            } else {
+                authenticator.run();
+                put(key, boxAPI);
+            }
+        }
+
+        boxAPI.addListener(new BoxAPIConnectionListener() {
+            @Override
+            public void onRefresh(BoxAPIConnection api) {
+                put(key, api);
+            }
+
+            @Override
+            public void onError(BoxAPIConnection api, BoxAPIException error) {
+                // Do nothing
+            }
+        });
+    }
+
+    /**
+     * Refresh the token of the connection before it expires. If another connection already refreshed it,
+     * use the cached token instead.
+     */
+    public void refreshIfNeeded(String key, BoxAPIConnection boxAPI) {
+        if (!isExpiring(boxAPI.getLastRefresh(), boxAPI.getExpires())) {
+            return;
+        }
+        synchronized (lockFor(key)) {
+            if (restore(key, boxAPI)) {
+                LOGGER.ok("Restored the access token refreshed by another connection for {0}", key);
+                return;
+            }
+            LOGGER.ok("Refresh the access token before it expires for {0}", key);
+            // The refreshed token is put into the cache by the listener
+            boxAPI.refresh();
+        }
+    }
+
+    public void invalidate(String key) {
+        if (entries.remove(key) != null) {
+            LOGGER.info("Invalidated the cached access token for {0}", key);
+        }
+    }
+
+    /**
+     * Invalidate the access token rejected by Box and expire it on the connection, so that the connection restores
+     * the token refreshed by another connection or re-authenticates before the next request.
+     */
+    public void invalidate(String key, BoxAPIConnection boxAPI) {
+        synchronized (lockFor(key)) {
+            Entry entry = entries.get(key);
+            // Keep the cached token if another connection already replaced the rejected one
+            if (entry != null && Objects.equals(entry.accessToken, boxAPI.getAccessToken())) {
+                invalidate(key);
+            }
+            boxAPI.setExpires(0);
+        }
+    }
+
+    private void put(String key, BoxAPIConnection boxAPI) {
+        Entry newEntry = new Entry(boxAPI.getAccessToken(), boxAPI.getLastRefresh(), boxAPI.getExpires());
+        // Keep the newer one
+        entries.merge(key, newEntry, (oldEntry, e) -> oldEntry.lastRefresh > e.lastRefresh ? oldEntry : e);
+    }
+
+    private Object lockFor(String key) {
+        return locks.computeIfAbsent(key, k -> new Object());
+    }
+
+    private static boolean isExpiring(long lastRefresh, long expires) {
+        return System.currentTimeMillis() - lastRefresh >= expires - REFRESH_MARGIN_MILLIS;
+    }
+
+    private static class Entry {
+        final String accessToken;
+        final long lastRefresh;
+        final long expires;
+
+        Entry(String accessToken, long lastRefresh, long expires) {
+            this.accessToken = accessToken;
+            this.lastRefresh = lastRefresh;
+            this.expires = expires;
+        }
+
+        boolean isExpiring() {
+            return SharedAccessTokenCache.isExpiring(lastRefresh, expires);
+        }
+
+        void applyTo(BoxAPIConnection boxAPI) {
+            boxAPI.setAccessToken(accessToken);
+            boxAPI.setLastRefresh(lastRefresh);
+            boxAPI.setExpires(expires);
+        }
+    }
+}
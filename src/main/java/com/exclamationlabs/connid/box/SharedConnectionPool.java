@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import okhttp3.ConnectionPool;
+import org.identityconnectors.common.logging.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Process-wide HTTP connection pool for each Box app (enterprise id + client id) and transport settings.
+ * Pooled connector instances with the same app share the keep-alive connections, so that a new instance
+ * doesn't pay the TCP and TLS handshake (through the proxy) for its first requests.
+ */
+public class SharedConnectionPool {
+
+    private static final Log LOGGER = Log.getLog(SharedConnectionPool.class);
+
+    private static final ConcurrentMap<String, SharedConnectionPool> POOLS = new ConcurrentHashMap<>();
+
+    private final ConnectionPool connectionPool;
+    private final AtomicBoolean prewarmed = new AtomicBoolean();
+
+    public static SharedConnectionPool getInstance(String key, int maxIdleConnections, long keepAliveDurationInMilliseconds) {
+        return POOLS.computeIfAbsent(key + "/" + maxIdleConnections + "/" + keepAliveDurationInMilliseconds,
+                k -> new SharedConnectionPool(maxIdleConnections, keepAliveDurationInMilliseconds));
+    }
+
+    SharedConnectionPool(int maxIdleConnections, long keepAliveDurationInMilliseconds) {
+        this.connectionPool = new ConnectionPool(maxIdleConnections, keepAliveDurationInMilliseconds, TimeUnit.MILLISECONDS);
+    }
+
+    public ConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    /**
+     * Open the connections by sending the requests concurrently, since OkHttp opens a new connection only when
+     * no idle connection is available. It's done once per pool, and a failure is only logged because the
+     * connections are opened on demand anyway.
+     *
+     * @param appKey    key of the Box app, used to name the threads and the log
+     * @param request   a lightweight authenticated request to Box API
+     * @param timeoutMillis maximum time to wait for the requests
+     */
+    public void prewarm(String appKey, int connections, Runnable request, long timeoutMillis) {
+        if (connections <= 0 || !prewarmed.compareAndSet(false, true)) {
+            return;
+        }
+        long start = System.nanoTime();
+        ExecutorService executor = DaemonThreadFactory.newFixedThreadPool("box-prewarm", appKey, connections);
+        try {
+            List<Future<?>> futures = new ArrayList<>(connections);
+            for (int i = 0; i < connections; i++) {
+                futures.add(executor.submit(request));
+            }
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            for (Future<?> future : futures) {
+                future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+            LOGGER.info("[{0}] Prewarmed {1} connections in {2}ms, idle connections: {3}", appKey, connections,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), connectionPool.idleConnectionCount());
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            LOGGER.warn(e, "[{0}] Failed to prewarm the connections", appKey);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
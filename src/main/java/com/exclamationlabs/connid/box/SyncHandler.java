@@ -0,0 +1,249 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import com.box.sdk.BoxAPIConnection;
+import com.box.sdk.BoxEvent;
+import com.box.sdk.EnterpriseEventsStreamRequest;
+import com.box.sdk.EventLog;
+import com.eclipsesource.json.JsonObject;
+import org.identityconnectors.common.logging.Log;
+import org.identityconnectors.framework.common.objects.*;
+import org.identityconnectors.framework.spi.SyncTokenResultsHandler;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+import static com.exclamationlabs.connid.box.GroupsHandler.OBJECT_CLASS_GROUP;
+import static com.exclamationlabs.connid.box.UsersHandler.OBJECT_CLASS_USER;
+
+/**
+ * Detect changes of users and groups using the enterprise event stream (admin_logs_streaming).
+ * The stream position is used as the sync token.
+ */
+public class SyncHandler extends AbstractHandler {
+
+    private static final Log LOGGER = Log.getLog(SyncHandler.class);
+
+    // Maximum "limit" of admin_logs_streaming
+    private static final int STREAM_LIMIT = 500;
+
+    // Start from the oldest position when the sync token isn't provided
+    private static final String INITIAL_POSITION = "0";
+
+    // Event types
+    protected static final String EVENT_NEW_USER = "NEW_USER";
+    protected static final String EVENT_EDIT_USER = "EDIT_USER";
+    protected static final String EVENT_DELETE_USER = "DELETE_USER";
+    protected static final String EVENT_GROUP_CREATION = "GROUP_CREATION";
+    protected static final String EVENT_GROUP_EDITED = "GROUP_EDITED";
+    protected static final String EVENT_GROUP_DELETION = "GROUP_DELETION";
+    protected static final String EVENT_GROUP_ADD_USER = "GROUP_ADD_USER";
+    protected static final String EVENT_GROUP_REMOVE_USER = "GROUP_REMOVE_USER";
+
+    protected static final String[] USER_EVENT_TYPES = new String[]{
+            EVENT_NEW_USER,
+            EVENT_EDIT_USER,
+            EVENT_DELETE_USER
+    };
+    protected static final String[] GROUP_EVENT_TYPES = new String[]{
+            EVENT_GROUP_CREATION,
+            EVENT_GROUP_EDITED,
+            EVENT_GROUP_DELETION
+    };
+    protected static final String[] MEMBERSHIP_EVENT_TYPES = new String[]{
+            EVENT_GROUP_ADD_USER,
+            EVENT_GROUP_REMOVE_USER
+    };
+
+    private final UsersHandler usersHandler;
+    private final GroupsHandler groupsHandler;
+    private final ObjectCache objectCache;
+
+    public SyncHandler(String instanceName, BoxAPIConnection boxAPI, UsersHandler usersHandler, GroupsHandler groupsHandler,
+                       ObjectCache objectCache) {
+        super(instanceName, boxAPI);
+        this.usersHandler = usersHandler;
+        this.groupsHandler = groupsHandler;
+        this.objectCache = objectCache;
+    }
+
+    public SyncToken getLatestSyncToken() {
+        // "now" returns no events and the latest stream position
+        EventLog events = EventLog.getEnterpriseEventsStream(boxAPI,
+                new EnterpriseEventsStreamRequest().position("now"));
+
+        LOGGER.info("[{0}] Latest stream position: {1}", instanceName, events.getNextStreamPosition());
+
+        return new SyncToken(events.getNextStreamPosition());
+    }
+
+    public void sync(ObjectClass objectClass, SyncToken token, SyncResultsHandler handler, OperationOptions ops) {
+        String position = token != null && token.getValue() != null ? token.getValue().toString() : INITIAL_POSITION;
+        String[] eventTypes = toEventTypes(objectClass);
+
+        // The stream may contain duplicated events
+        Set<String> handledEventIds = new HashSet<>();
+
+        while (true) {
+            LOGGER.ok("[{0}] Fetch enterprise events from stream position: {1}", instanceName, position);
+
+            EventLog events = EventLog.getEnterpriseEventsStream(boxAPI,
+                    new EnterpriseEventsStreamRequest()
+                            .position(position)
+                            .limit(STREAM_LIMIT)
+                            .typeNames(eventTypes));
+            String nextPosition = events.getNextStreamPosition();
+
+            // Objects fetched in this page, to avoid fetching the same object for each event
+            Map<String, ConnectorObject> fetched = new HashMap<>();
+            List<SyncDeltaBuilder> deltas = new ArrayList<>();
+            for (BoxEvent event : events) {
+                if (!handledEventIds.add(event.getID())) {
+                    continue;
+                }
+                SyncDeltaBuilder delta = toSyncDelta(event, objectClass, ops, fetched);
+                if (delta != null) {
+                    deltas.add(delta);
+                }
+            }
+
+            for (int i = 0; i < deltas.size(); i++) {
+                // The stream position is available for each page only. Use the current position except for the last delta
+                // so that the remaining events in the page are fetched again when the handler stops here.
+                String deltaPosition = i == deltas.size() - 1 ? nextPosition : position;
+                SyncDelta delta = deltas.get(i).setToken(new SyncToken(deltaPosition)).build();
+
+                if (!handler.handle(delta)) {
+                    LOGGER.ok("[{0}] Stop sync because the handler returned false", instanceName);
+                    return;
+                }
+            }
+
+            if (nextPosition == null || nextPosition.equals(position)) {
+                break;
+            }
+            position = nextPosition;
+
+            if (events.getSize() < STREAM_LIMIT) {
+                // Reached the latest position
+                break;
+            }
+        }
+
+        if (handler instanceof SyncTokenResultsHandler) {
+            ((SyncTokenResultsHandler) handler).handleResult(new SyncToken(position));
+        }
+    }
+
+    private String[] toEventTypes(ObjectClass objectClass) {
+        if (objectClass.equals(OBJECT_CLASS_USER)) {
+            return Stream.of(USER_EVENT_TYPES, MEMBERSHIP_EVENT_TYPES).flatMap(Arrays::stream).toArray(String[]::new);
+        }
+        if (objectClass.equals(OBJECT_CLASS_GROUP)) {
+            return Stream.of(GROUP_EVENT_TYPES, MEMBERSHIP_EVENT_TYPES).flatMap(Arrays::stream).toArray(String[]::new);
+        }
+        return Stream.of(USER_EVENT_TYPES, GROUP_EVENT_TYPES, MEMBERSHIP_EVENT_TYPES).flatMap(Arrays::stream).toArray(String[]::new);
+    }
+
+    private SyncDeltaBuilder toSyncDelta(BoxEvent event, ObjectClass objectClass, OperationOptions ops,
+                                         Map<String, ConnectorObject> fetched) {
+        JsonObject source = event.getSourceJSON();
+        if (source == null || source.get(ATTR_ID) == null) {
+            LOGGER.ok("[{0}] Ignore the event {1} which doesn't have the source", instanceName, event.getID());
+            return null;
+        }
+        String sourceType = source.getString(ATTR_TYPE, "");
+        String sourceId = source.getString(ATTR_ID, null);
+
+        ObjectClass eventObjectClass;
+        SyncDeltaType deltaType;
+
+        switch (event.getTypeName()) {
+            case EVENT_NEW_USER:
+                eventObjectClass = OBJECT_CLASS_USER;
+                deltaType = SyncDeltaType.CREATE;
+                break;
+            case EVENT_EDIT_USER:
+                eventObjectClass = OBJECT_CLASS_USER;
+                deltaType = SyncDeltaType.UPDATE;
+                break;
+            case EVENT_DELETE_USER:
+                eventObjectClass = OBJECT_CLASS_USER;
+                deltaType = SyncDeltaType.DELETE;
+                break;
+            case EVENT_GROUP_CREATION:
+                eventObjectClass = OBJECT_CLASS_GROUP;
+                deltaType = SyncDeltaType.CREATE;
+                break;
+            case EVENT_GROUP_EDITED:
+                eventObjectClass = OBJECT_CLASS_GROUP;
+                deltaType = SyncDeltaType.UPDATE;
+                break;
+            case EVENT_GROUP_DELETION:
+                eventObjectClass = OBJECT_CLASS_GROUP;
+                deltaType = SyncDeltaType.DELETE;
+                break;
+            case EVENT_GROUP_ADD_USER:
+            case EVENT_GROUP_REMOVE_USER:
+                // The membership change is treated as an update of the source object
+                if (sourceType.equals("user")) {
+                    eventObjectClass = OBJECT_CLASS_USER;
+                } else if (sourceType.equals("group")) {
+                    eventObjectClass = OBJECT_CLASS_GROUP;
+                } else {
+                    return null;
+                }
+                deltaType = SyncDeltaType.UPDATE;
+                break;
+            default:
+                LOGGER.ok("[{0}] Ignore the unsupported event type: {1}", instanceName, event.getTypeName());
+                return null;
+        }
+
+        if (!objectClass.is(ObjectClass.ALL_NAME) && !objectClass.equals(eventObjectClass)) {
+            return null;
+        }
+
+        // The event is a change made outside of this connector, which didn't invalidate the cached objects
+        objectCache.invalidate(eventObjectClass, sourceId);
+        if (event.getTypeName().equals(EVENT_GROUP_ADD_USER) || event.getTypeName().equals(EVENT_GROUP_REMOVE_USER)) {
+            objectCache.invalidateAll(eventObjectClass.equals(OBJECT_CLASS_USER) ? OBJECT_CLASS_GROUP : OBJECT_CLASS_USER);
+        }
+
+        SyncDeltaBuilder builder = new SyncDeltaBuilder()
+                .setDeltaType(deltaType)
+                .setObjectClass(eventObjectClass);
+
+        if (deltaType == SyncDeltaType.DELETE) {
+            builder.setUid(new Uid(sourceId));
+            return builder;
+        }
+
+        String key = eventObjectClass.getObjectClassValue() + ":" + sourceId;
+        ConnectorObject object = fetched.computeIfAbsent(key, k -> fetchObject(eventObjectClass, new Uid(sourceId), ops));
+        if (object == null) {
+            // The object was already deleted. The deletion will be handled by the following DELETE event.
+            LOGGER.ok("[{0}] Ignore the event {1} because the object {2} is not found", instanceName, event.getID(), key);
+            return null;
+        }
+
+        builder.setObject(object);
+        return builder;
+    }
+
+    private ConnectorObject fetchObject(ObjectClass objectClass, Uid uid, OperationOptions ops) {
+        List<ConnectorObject> result = new ArrayList<>(1);
+        if (objectClass.equals(OBJECT_CLASS_USER)) {
+            usersHandler.query(BoxFilter.By(uid), result::add, ops);
+        } else {
+            groupsHandler.query(BoxFilter.By(uid), result::add, ops);
+        }
+        return result.isEmpty() ? null : result.get(0);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import com.box.sdk.BoxAPIException;
+import org.identityconnectors.common.logging.Log;
+import org.identityconnectors.framework.common.exceptions.ConnectorIOException;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Back-pressure for concurrent API calls. When a call receives "429 Too Many Requests" even after the SDK retries,
+ * all calls sharing this throttle pause for the "Retry-After" period, then the call is retried.
+ */
+public class Throttle {
+
+    private static final Log LOGGER = Log.getLog(Throttle.class);
+
+    static final long DEFAULT_RETRY_AFTER_MILLIS = 1000;
+
+    private final String instanceName;
+    private final int maxRetryAttempts;
+
+    private volatile long pauseUntil = 0;
+
+    public Throttle(String instanceName, int maxRetryAttempts) {
+        this.instanceName = instanceName;
+        this.maxRetryAttempts = maxRetryAttempts;
+    }
+
+    public <T> T call(Supplier<T> supplier) {
+        int attempts = 0;
+        while (true) {
+            waitIfPaused();
+            try {
+                return supplier.get();
+
+            } catch (BoxAPIException e) {
+                if (e.getResponseCode() != 429 || attempts++ >= maxRetryAttempts) {
+                    throw e;
+                }
+                long retryAfter = getRetryAfterMillis(e);
+                pauseUntil = Math.max(pauseUntil, System.currentTimeMillis() + retryAfter);
+
+                LOGGER.info("[{0}] Rate limited, retry after {1} ms", instanceName, retryAfter);
+            }
+        }
+    }
+
+    public void run(Runnable runnable) {
+        call(() -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    private void waitIfPaused() {
+        long wait = pauseUntil - System.currentTimeMillis();
+        if (wait <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(wait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectorIOException("Interrupted while waiting for the rate limit", e);
+        }
+    }
+
+    static long getRetryAfterMillis(BoxAPIException e) {
+        if (e.getHeaders() != null) {
+            List<String> values = e.getHeaders().get("Retry-After");
+            if (values != null && !values.isEmpty()) {
+                return getRetryAfterMillis(values.get(0));
+            }
+        }
+        return DEFAULT_RETRY_AFTER_MILLIS;
+    }
+
+    /**
+     * @param retryAfter value of the "Retry-After" header in seconds, can be null
+     */
+    static long getRetryAfterMillis(String retryAfter) {
+        if (retryAfter != null) {
+            try {
+                return Long.parseLong(retryAfter.trim()) * 1000;
+            } catch (NumberFormatException ignore) {
+                // Use the default
+            }
+        }
+        return DEFAULT_RETRY_AFTER_MILLIS;
+    }
+}
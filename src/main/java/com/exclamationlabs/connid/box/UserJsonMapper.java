@@ -0,0 +1,400 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import com.box.sdk.BoxDateFormat;
+import com.box.sdk.BoxDeserializationException;
+import com.eclipsesource.json.JsonHandler;
+import com.eclipsesource.json.JsonParser;
+import org.identityconnectors.framework.common.objects.ConnectorObjectBuilder;
+import org.identityconnectors.framework.common.objects.Name;
+import org.identityconnectors.framework.common.objects.OperationalAttributes;
+import org.identityconnectors.framework.common.objects.Uid;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.text.ParseException;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.exclamationlabs.connid.box.UsersHandler.*;
+
+/**
+ * Map the users of a Box user list response to ConnectorObjectBuilders with a streaming JSON parser.
+ * The fields are mapped by the plan compiled for the attributes to get, without building the JsonObject and
+ * the BoxUser.Info of each user. The fields are defined by UsersHandler#USER_ATTRIBUTES, which the plans for
+ * BoxUser.Info use too, so the mapped values are the same as UsersHandler#userToConnectorObject.
+ */
+class UserJsonMapper {
+
+    interface EntryHandler {
+        /**
+         * Handle a mapped user. The associations aren't mapped yet.
+         *
+         * @return false to skip the remaining users of the page
+         */
+        boolean handle(String id, ConnectorObjectBuilder builder);
+    }
+
+    /**
+     * The type of a field in the user JSON.
+     */
+    enum Kind {
+        STRING,
+        // Empty string is mapped to null
+        OPTIONAL_STRING,
+        DATE,
+        LONG,
+        BOOLEAN,
+        STRING_LIST,
+        TRACKING_CODES,
+        // The nested object mapped to "enterprise.id" and "enterprise.name"
+        ENTERPRISE
+    }
+
+    private static final class Slot {
+        final int index;
+        final String attrName;
+        final Kind kind;
+
+        Slot(int index, String attrName, Kind kind) {
+            this.index = index;
+            this.attrName = attrName;
+            this.kind = kind;
+        }
+    }
+
+    // Ordered by the slot index
+    private final Slot[] slots;
+    // Key: the field name of the user JSON
+    private final Map<String, Slot> slotsByField;
+    // Mapped from the nested "enterprise" object
+    private final Slot enterpriseId;
+    private final Slot enterpriseName;
+
+    private UserJsonMapper(Slot[] slots, Map<String, Slot> slotsByField, Slot enterpriseId, Slot enterpriseName) {
+        this.slots = slots;
+        this.slotsByField = slotsByField;
+        this.enterpriseId = enterpriseId;
+        this.enterpriseName = enterpriseName;
+    }
+
+    /**
+     * Compile the mapping plan for the attributes to get. The associations are ignored.
+     */
+    static UserJsonMapper compile(Set<String> attributesToGet) {
+        List<Slot> slots = new ArrayList<>();
+        Map<String, Slot> slotsByField = new HashMap<>();
+        Slot enterpriseId = null;
+        Slot enterpriseName = null;
+        for (UserAttribute attribute : USER_ATTRIBUTES) {
+            if (!attributesToGet.contains(attribute.attrName)) {
+                continue;
+            }
+            if (attribute.kind == Kind.ENTERPRISE) {
+                enterpriseId = new Slot(slots.size(), ATTR_ENTERPRISE_ID, Kind.OPTIONAL_STRING);
+                slots.add(enterpriseId);
+                enterpriseName = new Slot(slots.size(), ATTR_ENTERPRISE_NAME, Kind.OPTIONAL_STRING);
+                slots.add(enterpriseName);
+            } else {
+                Slot slot = new Slot(slots.size(), attribute.attrName, attribute.kind);
+                slots.add(slot);
+                slotsByField.put(attribute.attrName, slot);
+            }
+        }
+        return new UserJsonMapper(slots.toArray(new Slot[0]), slotsByField, enterpriseId, enterpriseName);
+    }
+
+    /**
+     * Map the "entries" of the page.
+     *
+     * @return "next_marker" of the page, or null if it's the last page
+     */
+    String mapPage(Reader reader, EntryHandler entryHandler) throws IOException {
+        PageHandler pageHandler = new PageHandler(entryHandler);
+        new JsonParser(pageHandler).parse(reader);
+        return pageHandler.nextMarker;
+    }
+
+    private enum Scope {
+        ROOT,
+        ENTRIES,
+        ENTRY,
+        ENTERPRISE,
+        MY_TAGS,
+        TRACKING_CODES,
+        TRACKING_CODE,
+        IGNORED
+    }
+
+    private static final class Frame {
+        Scope scope;
+        // The name of the current member if the frame is an object
+        String name;
+    }
+
+    private final class PageHandler extends JsonHandler<Frame, Frame> {
+        private final EntryHandler entryHandler;
+
+        // The frames are reused by depth
+        private final List<Frame> frames = new ArrayList<>();
+        private int depth;
+
+        private String nextMarker;
+        private boolean stopped;
+
+        // The current entry
+        private final Object[] values = new Object[slots.length];
+        private String id;
+        private String login;
+        private String status;
+        private List<String> myTags;
+        private Map<String, String> trackingCodes;
+        private String trackingCodeName;
+        private String trackingCodeValue;
+
+        PageHandler(EntryHandler entryHandler) {
+            this.entryHandler = entryHandler;
+        }
+
+        @Override
+        public Frame startObject() {
+            Frame parent = current();
+            Scope scope = Scope.IGNORED;
+            if (parent == null) {
+                scope = Scope.ROOT;
+            } else if (parent.scope == Scope.ENTRIES && !stopped) {
+                scope = Scope.ENTRY;
+                Arrays.fill(values, null);
+                id = null;
+                login = null;
+                status = null;
+            } else if (parent.scope == Scope.ENTRY && ATTR_ENTERPRISE.equals(parent.name) && enterpriseId != null) {
+                scope = Scope.ENTERPRISE;
+            } else if (parent.scope == Scope.TRACKING_CODES) {
+                scope = Scope.TRACKING_CODE;
+                trackingCodeName = null;
+                trackingCodeValue = null;
+            }
+            return push(scope);
+        }
+
+        @Override
+        public void endObject(Frame frame) {
+            depth--;
+            if (frame.scope == Scope.ENTRY) {
+                if (!entryHandler.handle(id, toBuilder())) {
+                    // Skip the remaining entries, but read "next_marker"
+                    stopped = true;
+                }
+            } else if (frame.scope == Scope.TRACKING_CODE && trackingCodeName != null) {
+                trackingCodes.put(trackingCodeName, trackingCodeValue);
+            }
+        }
+
+        @Override
+        public Frame startArray() {
+            Frame parent = current();
+            Scope scope = Scope.IGNORED;
+            if (parent != null && parent.scope == Scope.ROOT && "entries".equals(parent.name)) {
+                scope = Scope.ENTRIES;
+            } else if (parent != null && parent.scope == Scope.ENTRY) {
+                Slot slot = slotsByField.get(parent.name);
+                if (slot != null && slot.kind == Kind.STRING_LIST) {
+                    scope = Scope.MY_TAGS;
+                    myTags = new ArrayList<>();
+                } else if (slot != null && slot.kind == Kind.TRACKING_CODES) {
+                    scope = Scope.TRACKING_CODES;
+                    // Same as the SDK
+                    trackingCodes = new HashMap<>();
+                }
+            }
+            return push(scope);
+        }
+
+        @Override
+        public void endArray(Frame frame) {
+            depth--;
+            if (frame.scope == Scope.MY_TAGS) {
+                values[slotsByField.get(ATTR_MY_TAGS).index] = myTags;
+            } else if (frame.scope == Scope.TRACKING_CODES) {
+                values[slotsByField.get(ATTR_TRACKING_CODES).index] = trackingCodes.entrySet().stream()
+                        .map(entry -> String.format("%s: %s", entry.getKey(), entry.getValue()))
+                        .collect(Collectors.toList());
+            }
+        }
+
+        @Override
+        public void startObjectValue(Frame frame, String name) {
+            frame.name = name;
+        }
+
+        @Override
+        public void endString(String string) {
+            handleValue(string);
+        }
+
+        @Override
+        public void endNumber(String string) {
+            handleValue(string);
+        }
+
+        @Override
+        public void endBoolean(boolean value) {
+            handleValue(value);
+        }
+
+        private void handleValue(Object value) {
+            Frame frame = current();
+            switch (frame.scope) {
+                case ROOT:
+                    if ("next_marker".equals(frame.name) && value instanceof String && !((String) value).isEmpty()) {
+                        nextMarker = (String) value;
+                    }
+                    break;
+                case ENTRY:
+                    handleEntryValue(frame.name, value);
+                    break;
+                case ENTERPRISE:
+                    if (ATTR_ID.equals(frame.name)) {
+                        values[enterpriseId.index] = toOptionalString(value);
+                    } else if (ATTR_NAME.equals(frame.name)) {
+                        values[enterpriseName.index] = toOptionalString(value);
+                    }
+                    break;
+                case MY_TAGS:
+                    myTags.add(value.toString());
+                    break;
+                case TRACKING_CODE:
+                    if ("name".equals(frame.name)) {
+                        trackingCodeName = value.toString();
+                    } else if ("value".equals(frame.name)) {
+                        trackingCodeValue = value.toString();
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void handleEntryValue(String field, Object value) {
+            if (ATTR_ID.equals(field)) {
+                id = value.toString();
+                return;
+            }
+            if (ATTR_LOGIN.equals(field)) {
+                login = value.toString();
+                return;
+            }
+            if (ATTR_STATUS.equals(field)) {
+                status = value.toString();
+            }
+            Slot slot = slotsByField.get(field);
+            if (slot == null) {
+                return;
+            }
+            switch (slot.kind) {
+                case STRING:
+                    values[slot.index] = value.toString();
+                    break;
+                case OPTIONAL_STRING:
+                    values[slot.index] = toOptionalString(value);
+                    break;
+                case DATE:
+                    values[slot.index] = toZonedDateTime(field, value.toString());
+                    break;
+                case LONG:
+                    values[slot.index] = toLong(value.toString());
+                    break;
+                case BOOLEAN:
+                    if (value instanceof Boolean) {
+                        values[slot.index] = value;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private ConnectorObjectBuilder toBuilder() {
+            ConnectorObjectBuilder builder = new ConnectorObjectBuilder();
+
+            builder.setObjectClass(OBJECT_CLASS_USER);
+
+            builder.setUid(new Uid(id, new Name(login)));
+            builder.setName(login);
+
+            for (Slot slot : slots) {
+                Object value = values[slot.index];
+                switch (slot.kind) {
+                    case LONG:
+                        // Same as the primitive of BoxUser.Info
+                        builder.addAttribute(slot.attrName, value != null ? value : 0L);
+                        break;
+                    case BOOLEAN:
+                        builder.addAttribute(slot.attrName, value != null ? value : Boolean.FALSE);
+                        break;
+                    case STRING_LIST:
+                    case TRACKING_CODES:
+                        builder.addAttribute(slot.attrName, value != null ? (Collection<?>) value : Collections.emptyList());
+                        break;
+                    default:
+                        builder.addAttribute(slot.attrName, value);
+                        break;
+                }
+            }
+
+            // __ENABLE__
+            if ("active".equals(status)) {
+                builder.addAttribute(OperationalAttributes.ENABLE_NAME, Boolean.TRUE);
+            } else if ("inactive".equals(status)) {
+                builder.addAttribute(OperationalAttributes.ENABLE_NAME, Boolean.FALSE);
+            }
+
+            return builder;
+        }
+
+        private Frame current() {
+            return depth == 0 ? null : frames.get(depth - 1);
+        }
+
+        private Frame push(Scope scope) {
+            if (frames.size() == depth) {
+                frames.add(new Frame());
+            }
+            Frame frame = frames.get(depth++);
+            frame.scope = scope;
+            frame.name = null;
+            return frame;
+        }
+    }
+
+    private static String toOptionalString(Object value) {
+        String s = value.toString();
+        return s.isEmpty() ? null : s;
+    }
+
+    private static ZonedDateTime toZonedDateTime(String field, String value) {
+        try {
+            return ZonedDateTime.ofInstant(BoxDateFormat.parse(value).toInstant(), ZoneId.systemDefault());
+        } catch (ParseException e) {
+            throw new BoxDeserializationException(field, value, e);
+        }
+    }
+
+    private static Long toLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            // e.g. "1.0E15"
+            return Double.valueOf(value).longValue();
+        }
+    }
+}
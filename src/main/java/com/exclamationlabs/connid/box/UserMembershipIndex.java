@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import com.box.sdk.BoxAPIConnection;
+import com.box.sdk.BoxGroup;
+import com.box.sdk.BoxGroupMembership;
+import org.identityconnectors.common.logging.Log;
+
+import java.util.*;
+
+/**
+ * In-memory index of user id to the group memberships of the user.
+ * It's built by enumerating all groups and their memberships once, so that a full user search
+ * doesn't need to fetch the memberships of each user.
+ */
+public class UserMembershipIndex {
+
+    private static final Log LOGGER = Log.getLog(UserMembershipIndex.class);
+
+    private final Map<String, List<BoxGroupMembership.Info>> membershipsByUser;
+
+    private UserMembershipIndex(Map<String, List<BoxGroupMembership.Info>> membershipsByUser) {
+        this.membershipsByUser = membershipsByUser;
+    }
+
+    public static UserMembershipIndex build(String instanceName, BoxAPIConnection boxAPI, String... membershipFields) {
+        Map<String, List<BoxGroupMembership.Info>> membershipsByUser = new HashMap<>();
+        int groupCount = 0;
+        int membershipCount = 0;
+
+        // We only need the group id to fetch the memberships
+        for (BoxGroup.Info groupInfo : BoxGroup.getAllGroups(boxAPI, AbstractHandler.ATTR_ID)) {
+            groupCount++;
+            for (BoxGroupMembership.Info membershipInfo : groupInfo.getResource().getAllMemberships(membershipFields)) {
+                membershipCount++;
+                membershipsByUser.computeIfAbsent(membershipInfo.getUser().getID(), k -> new ArrayList<>())
+                        .add(membershipInfo);
+            }
+        }
+
+        LOGGER.ok("[{0}] Prefetched {1} memberships of {2} groups for {3} users",
+                instanceName, membershipCount, groupCount, membershipsByUser.size());
+
+        return new UserMembershipIndex(membershipsByUser);
+    }
+
+    public List<BoxGroupMembership.Info> getMemberships(String userId) {
+        return membershipsByUser.getOrDefault(userId, Collections.emptyList());
+    }
+}
@@ -16,8 +16,13 @@ import org.identityconnectors.framework.common.exceptions.ConnectorIOException;
 import org.identityconnectors.framework.common.exceptions.InvalidAttributeValueException;
 import org.identityconnectors.framework.common.objects.*;
 
+import java.nio.file.Paths;
 import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -29,6 +34,12 @@ public class UsersHandler extends AbstractHandler {
     // https://developer.box.com/reference/resources/user/
     public static final ObjectClass OBJECT_CLASS_USER = new ObjectClass("user");
 
+    /**
+     * Operation option (Boolean) to resume searching all users from the checkpoint saved by the interrupted search.
+     * The result is partial; the users before the checkpoint are returned by the interrupted search only.
+     */
+    public static final String OPTION_RESUME_FROM_CHECKPOINT = "resumeFromCheckpoint";
+
     // Mini
     protected static final String ATTR_LOGIN = "login";
     protected static final String ATTR_NAME = "name";
@@ -132,11 +143,104 @@ public class UsersHandler extends AbstractHandler {
                     ASSOCIATION_ATTRS
             ).flatMap(Arrays::stream).collect(Collectors.toSet()));
 
+    // Request "configurable_permissions" with the membership listing to avoid fetching each admin membership
+    protected static final String[] MEMBERSHIP_WITH_PERMISSION_FIELDS = new String[]{
+            "user",
+            "group",
+            "role",
+            "configurable_permissions"
+    };
+
+    /**
+     * An attribute mapped from a user except the associations.
+     */
+    static final class UserAttribute {
+        final String attrName;
+        // The type of the field in the user JSON
+        final UserJsonMapper.Kind kind;
+        final ProjectionPlan.Extractor<BoxUser.Info> extractor;
+
+        private UserAttribute(String attrName, UserJsonMapper.Kind kind, ProjectionPlan.Extractor<BoxUser.Info> extractor) {
+            this.attrName = attrName;
+            this.kind = kind;
+            this.extractor = extractor;
+        }
+
+        private static UserAttribute of(String attrName, UserJsonMapper.Kind kind, Function<BoxUser.Info, ?> getter) {
+            if (kind == UserJsonMapper.Kind.STRING_LIST || kind == UserJsonMapper.Kind.TRACKING_CODES) {
+                return new UserAttribute(attrName, kind,
+                        (info, builder) -> builder.addAttribute(attrName, (Collection<?>) getter.apply(info)));
+            }
+            return new UserAttribute(attrName, kind, (info, builder) -> builder.addAttribute(attrName, getter.apply(info)));
+        }
+    }
+
+    // Both the plans for BoxUser.Info and the streaming JSON mapper of the user listing are built from this,
+    // so that a user is mapped to the same attributes by either path
+    static final List<UserAttribute> USER_ATTRIBUTES = Collections.unmodifiableList(Arrays.asList(
+            // Mini
+            UserAttribute.of(ATTR_NAME, UserJsonMapper.Kind.STRING, BoxUser.Info::getName),
+            // Standard
+            UserAttribute.of(ATTR_CREATED_AT, UserJsonMapper.Kind.DATE, info -> toZonedDateTime(info.getCreatedAt())),
+            UserAttribute.of(ATTR_MODIFIED_AT, UserJsonMapper.Kind.DATE, info -> toZonedDateTime(info.getModifiedAt())),
+            UserAttribute.of(ATTR_LANGUAGE, UserJsonMapper.Kind.OPTIONAL_STRING, info -> toString(info.getLanguage())),
+            UserAttribute.of(ATTR_TIMEZONE, UserJsonMapper.Kind.OPTIONAL_STRING, info -> toString(info.getTimezone())),
+            UserAttribute.of(ATTR_SPACE_AMOUNT, UserJsonMapper.Kind.LONG, BoxUser.Info::getSpaceAmount),
+            UserAttribute.of(ATTR_SPACE_USED, UserJsonMapper.Kind.LONG, BoxUser.Info::getSpaceUsed),
+            UserAttribute.of(ATTR_STATUS, UserJsonMapper.Kind.STRING, info -> toString(info.getStatus())),
+            UserAttribute.of(ATTR_MAX_UPLOAD_SIZE, UserJsonMapper.Kind.LONG, BoxUser.Info::getMaxUploadSize),
+            UserAttribute.of(ATTR_JOB_TITLE, UserJsonMapper.Kind.OPTIONAL_STRING, info -> toString(info.getJobTitle())),
+            UserAttribute.of(ATTR_PHONE, UserJsonMapper.Kind.OPTIONAL_STRING, info -> toString(info.getPhone())),
+            UserAttribute.of(ATTR_ADDRESS, UserJsonMapper.Kind.OPTIONAL_STRING, info -> toString(info.getAddress())),
+            UserAttribute.of(ATTR_AVATAR_URL, UserJsonMapper.Kind.OPTIONAL_STRING, info -> toString(info.getAvatarURL())),
+            // Box SDK for Java can't handle ATTR_NOTIFICATION_EMAIL_EMAIL and ATTR_NOTIFICATION_EMAIL_ISCONFIRMED currently
+            // Full
+            UserAttribute.of(ATTR_CAN_SEE_MANAGED_USERS, UserJsonMapper.Kind.BOOLEAN, BoxUser.Info::getCanSeeManagedUsers),
+            new UserAttribute(ATTR_ENTERPRISE, UserJsonMapper.Kind.ENTERPRISE, (info, builder) -> {
+                builder.addAttribute(ATTR_ENTERPRISE_ID, toString(info.getEnterprise().getID()));
+                builder.addAttribute(ATTR_ENTERPRISE_NAME, toString(info.getEnterprise().getName()));
+            }),
+            UserAttribute.of(ATTR_EXTERNAL_APP_USER_ID, UserJsonMapper.Kind.OPTIONAL_STRING, info -> toString(info.getExternalAppUserId())),
+            UserAttribute.of(ATTR_HOSTNAME, UserJsonMapper.Kind.OPTIONAL_STRING, info -> toString(info.getHostname())),
+            UserAttribute.of(ATTR_IS_EXEMPT_FROM_DEVICE_LIMITS, UserJsonMapper.Kind.BOOLEAN, BoxUser.Info::getIsExemptFromDeviceLimits),
+            UserAttribute.of(ATTR_IS_EXEMPT_FROM_LOGIN_VERIFICATION, UserJsonMapper.Kind.BOOLEAN, BoxUser.Info::getIsExemptFromLoginVerification),
+            UserAttribute.of(ATTR_IS_EXEMPT_COLLAB_RESTRICTED, UserJsonMapper.Kind.BOOLEAN, BoxUser.Info::getIsExternalCollabRestricted),
+            UserAttribute.of(ATTR_IS_PLATFORM_ACCESS_ONLY, UserJsonMapper.Kind.BOOLEAN, BoxUser.Info::getIsPlatformAccessOnly),
+            UserAttribute.of(ATTR_IS_SYNC_ENABLED, UserJsonMapper.Kind.BOOLEAN, BoxUser.Info::getIsSyncEnabled),
+            UserAttribute.of(ATTR_MY_TAGS, UserJsonMapper.Kind.STRING_LIST, BoxUser.Info::getMyTags),
+            UserAttribute.of(ATTR_ROLE, UserJsonMapper.Kind.STRING, info -> toString(info.getRole())),
+            UserAttribute.of(ATTR_TRACKING_CODES, UserJsonMapper.Kind.TRACKING_CODES, info -> toString(info.getTrackingCodes()))
+    ));
+
     private final BoxConfiguration configuration;
+    private final ObjectCache objectCache;
+    private final MetricsRegistry metricsRegistry;
+    private final MembershipMutationExecutor membershipMutationExecutor;
+    private final BoundedTaskRunner bulkCreateRunner;
+    private final BoundedTaskRunner lookupRunner;
+    private final BoundedTaskRunner scanRunner;
+
+    // Key: the cached attributes to get
+    private final Map<Set<String>, UserJsonMapper> userJsonMappers = new ConcurrentHashMap<>();
+
+    // The attributes mapped from BoxUser.Info except the associations
+    private final ProjectionPlan.Catalog<BoxUser.Info> userProjection = new ProjectionPlan.Catalog<>();
 
-    public UsersHandler(String instanceName, BoxAPIConnection boxAPI, BoxConfiguration configuration) {
+    public UsersHandler(String instanceName, BoxAPIConnection boxAPI, BoxConfiguration configuration, ObjectCache objectCache,
+                        MetricsRegistry metricsRegistry) {
         super(instanceName, boxAPI);
         this.configuration = configuration;
+        this.objectCache = objectCache;
+        USER_ATTRIBUTES.forEach(attribute -> userProjection.add(attribute.attrName, attribute.extractor));
+        this.metricsRegistry = metricsRegistry;
+        this.membershipMutationExecutor = new MembershipMutationExecutor(instanceName,
+                configuration.getMembershipMutationParallelism(), configuration.getMaxRetryAttempts());
+        this.bulkCreateRunner = new BoundedTaskRunner(instanceName, "box-bulk-create",
+                configuration.getBulkCreateParallelism(), configuration.getMaxRetryAttempts());
+        this.lookupRunner = new BoundedTaskRunner(instanceName, "box-user-lookup",
+                configuration.getLookupParallelism(), configuration.getMaxRetryAttempts());
+        this.scanRunner = new BoundedTaskRunner(instanceName, "box-user-scan",
+                configuration.getSearchParallelism(), configuration.getMaxRetryAttempts());
     }
 
     public ObjectClassInfo getUserSchema() {
@@ -398,7 +502,7 @@ public class UsersHandler extends AbstractHandler {
 
         ObjectClassInfo userSchemaInfo = builder.build();
 
-        LOGGER.info("[{0}] The constructed User core schema: {1}", instanceName, userSchemaInfo);
+        LOGGER.ok("[{0}] The constructed User core schema: {1}", instanceName, userSchemaInfo);
 
         return userSchemaInfo;
     }
@@ -406,42 +510,158 @@ public class UsersHandler extends AbstractHandler {
     public void query(BoxFilter query, ResultsHandler handler, OperationOptions ops) {
         LOGGER.info("[{0}] UserHandler query VALUE: {1}", instanceName, query);
 
-        Set<String> attributesToGet = createFullAttributesToGetSet(STANDARD_ATTRS_SET, ops);
+        Set<String> attributesToGet = getAttributesToGet(STANDARD_ATTRS_SET, ops);
         boolean allowPartialAttributeValues = shouldAllowPartialAttributeValues(ops);
 
         if (query == null) {
-            getAllUsers(handler, ops, attributesToGet, allowPartialAttributeValues);
+            if (isPagedSearch(ops)) {
+                getUsersPage(handler, ops, attributesToGet, allowPartialAttributeValues);
+            } else {
+                getAllUsers(handler, ops, attributesToGet, allowPartialAttributeValues);
+            }
         } else {
             if (query.isByUid()) {
                 getUser(query.uid, handler, ops, attributesToGet, allowPartialAttributeValues);
-            } else {
+            } else if (query.isByUids()) {
+                getUsers(query.uids, handler, ops, attributesToGet, allowPartialAttributeValues);
+            } else if (query.isByName()) {
                 getUser(query.name, handler, ops, attributesToGet, allowPartialAttributeValues);
+            } else {
+                getUsersByAttribute(query, handler, ops, attributesToGet, allowPartialAttributeValues);
             }
         }
     }
 
     private void getAllUsers(ResultsHandler handler, OperationOptions ops, Set<String> attributesToGet, boolean allowPartialAttributeValues) {
-        Iterable<BoxUser.Info> users = BoxUser.getAllEnterpriseUsers(boxAPI, null,
-                toFetchFields(attributesToGet, UsersHandler.ASSOCIATION_ATTRS_SET));
+        UserMembershipIndex membershipIndex = null;
+        if (configuration.isMembershipPrefetch() && !allowPartialAttributeValues && requiresMemberships(attributesToGet)) {
+            // Fetch the memberships of all groups at once instead of fetching them per user
+            membershipIndex = UserMembershipIndex.build(instanceName, boxAPI, toMembershipFetchFields(attributesToGet));
+        }
+        final UserMembershipIndex index = membershipIndex;
+
+        String[] fields = toFetchFields(attributesToGet, UsersHandler.ASSOCIATION_ATTRS_SET);
+
+        // The pages are chained by the markers, so "searchParallelism" applies to the membership calls of each user
+        BoundedTaskRunner associationRunner = scanRunner.getParallelism() > 1 && index == null
+                && !allowPartialAttributeValues && requiresMemberships(attributesToGet) ? scanRunner : null;
+
+        // Offset-based pagination slows down for large offsets, so follow the markers instead.
+        // The marker of the next page is the checkpoint to resume the scan from.
+        // https://developer.box.com/guides/api-calls/pagination/marker-based/
+        ScanCheckpoint checkpoint = StringUtil.isBlank(configuration.getUserScanCheckpointFile()) ? null :
+                ScanCheckpoint.acquire(Paths.get(configuration.getUserScanCheckpointFile()),
+                        OBJECT_CLASS_USER.getObjectClassValue() + ":" + String.join(",", new TreeSet<>(Arrays.asList(fields)))
+                                + (allowPartialAttributeValues ? ":partial" : ""));
+        try {
+            UserScan scan = new UserScan(handler, attributesToGet, allowPartialAttributeValues, index, associationRunner, checkpoint);
+            PageCookie cookie = PageCookie.parse(ops.getPagedResultsCookie());
+            String marker = scan.start(cookie.marker,
+                    Boolean.TRUE.equals(ops.getOptions().get(OPTION_RESUME_FROM_CHECKPOINT)));
+            // Skip the users of the first page returned before the handler stopped
+            int[] skip = {cookie.skip};
+
+            // Map the pages with the streaming parser in the prefetching thread, but fetch the associations in this thread
+            UserJsonMapper mapper = getUserJsonMapper(attributesToGet);
+            String fieldsParam = toFieldsParam(fields);
+            PagePrefetcher.PageLoader<Map.Entry<String, ConnectorObjectBuilder>> loader = cursor ->
+                    fetchPage(BoxUser.USERS_URL_TEMPLATE, "?usemarker=true&limit=" + MAX_PAGE_SIZE
+                            + (cursor != null ? "&marker=" + encodeQueryParam(cursor) : "") + fieldsParam, reader -> {
+                        List<Map.Entry<String, ConnectorObjectBuilder>> entries = new ArrayList<>();
+                        String nextMarker = mapper.mapPage(reader, (id, builder) ->
+                                skip[0] > 0 ? --skip[0] >= 0 : entries.add(new AbstractMap.SimpleImmutableEntry<>(id, builder)));
+                        return new PagePrefetcher.Page<>(entries, nextMarker);
+                    });
+            PagePrefetcher prefetcher = new PagePrefetcher(instanceName, configuration.getPagePrefetchDepth());
+
+            boolean completed;
+            try {
+                completed = prefetcher.fetchAll(marker, loader, scan::handlePage);
+            } catch (BoxAPIException e) {
+                if (!scan.isResumed() || e.getResponseCode() != 400) {
+                    throw e;
+                }
+                // The saved marker is no longer valid
+                LOGGER.warn("[{0}] Discard the invalid checkpoint and search all users from the beginning: {1}", instanceName, e.getMessage());
+                scan.restart();
+                completed = prefetcher.fetchAll(null, loader, scan::handlePage);
+            }
 
-        for (BoxUser.Info info : users) {
-            handler.handle(userToConnectorObject(info, attributesToGet, allowPartialAttributeValues));
+            // Keep the checkpoint only when the search failed; the handler stopped it on purpose otherwise
+            scan.finish(completed);
+        } finally {
+            if (checkpoint != null) {
+                checkpoint.release();
+            }
         }
     }
 
+    private void getUsersPage(ResultsHandler handler, OperationOptions ops, Set<String> attributesToGet, boolean allowPartialAttributeValues) {
+        // "List enterprise users" supports marker-based pagination. The marker is used as the paged results cookie.
+        // https://developer.box.com/guides/api-calls/pagination/marker-based/
+        PageCookie start = PageCookie.parse(ops.getPagedResultsCookie());
+        StringBuilder query = new StringBuilder("?usemarker=true&limit=").append(toPageLimit(ops));
+        if (start.marker != null) {
+            query.append("&marker=").append(encodeQueryParam(start.marker));
+        } else if (ops.getPagedResultsOffset() != null && ops.getPagedResultsOffset() > 1) {
+            LOGGER.warn("[{0}] Paged results offset isn't supported for users, ignored: {1}", instanceName, ops.getPagedResultsOffset());
+        }
+        query.append(toFieldsParam(toFetchFields(attributesToGet, UsersHandler.ASSOCIATION_ATTRS_SET)));
+
+        // Map the page with the streaming parser instead of building BoxUser.Info for each user
+        UserJsonMapper mapper = getUserJsonMapper(attributesToGet);
+        int[] index = {0};
+        boolean[] stopped = {false};
+        String nextMarker = fetchPage(BoxUser.USERS_URL_TEMPLATE, query.toString(), reader ->
+                mapper.mapPage(reader, (id, builder) -> {
+                    if (index[0]++ < start.skip) {
+                        // Already returned before the handler stopped
+                        return true;
+                    }
+                    addAssociationAttributes(builder, id, attributesToGet, allowPartialAttributeValues, null);
+                    if (!handler.handle(builder.build())) {
+                        stopped[0] = true;
+                        return false;
+                    }
+                    return true;
+                }));
+
+        // If the handler stopped in the middle of the page, the next search continues from the next user of the page
+        String cookie = stopped[0] ? PageCookie.format(start.marker, index[0]) : nextMarker;
+
+        // Marker-based pagination doesn't return total_count
+        handleSearchResult(handler, cookie, -1);
+    }
+
     private void getUser(Uid uid, ResultsHandler handler, OperationOptions ops, Set<String> attributesToGet, boolean allowPartialAttributeValues) {
+        ConnectorObject connectorObject = fetchUser(uid, attributesToGet, allowPartialAttributeValues);
+        if (connectorObject != null) {
+            handler.handle(connectorObject);
+        }
+    }
+
+    private ConnectorObject fetchUser(Uid uid, Set<String> attributesToGet, boolean allowPartialAttributeValues) {
+        // Taken before the lookup not to cache an object invalidated while fetching it
+        long generation = objectCache.getGeneration();
+        ConnectorObject cached = objectCache.get(OBJECT_CLASS_USER, uid.getUidValue(), attributesToGet, allowPartialAttributeValues);
+        if (cached != null) {
+            return cached;
+        }
+
         BoxUser user = new BoxUser(boxAPI, uid.getUidValue());
         try {
             // Fetch an user
             BoxUser.Info info = user.getInfo(toFetchFields(attributesToGet, UsersHandler.ASSOCIATION_ATTRS_SET));
 
-            handler.handle(userToConnectorObject(info, attributesToGet, allowPartialAttributeValues));
+            ConnectorObject connectorObject = userToConnectorObject(info, userProjection.compile(attributesToGet), allowPartialAttributeValues);
+            objectCache.put(OBJECT_CLASS_USER, uid.getUidValue(), attributesToGet, allowPartialAttributeValues, connectorObject, generation);
+            return connectorObject;
 
         } catch (BoxAPIException e) {
             if (isNotFoundError(e)) {
                 LOGGER.warn("[{0}] Unknown uid: {1}", instanceName, user.getID());
                 // It should not throw any exception
-                return;
+                return null;
             }
             throw e;
         }
@@ -455,14 +675,85 @@ public class UsersHandler extends AbstractHandler {
 
         for (BoxUser.Info info : users) {
             if (info.getLogin().equalsIgnoreCase(name.getNameValue())) {
-                handler.handle(userToConnectorObject(info, attributesToGet, allowPartialAttributeValues));
+                handler.handle(userToConnectorObject(info, userProjection.compile(attributesToGet), allowPartialAttributeValues));
                 // Break the loop to stop fetching remaining users if found
                 return;
             }
         }
     }
 
+    private void getUsers(List<Uid> uids, ResultsHandler handler, OperationOptions ops, Set<String> attributesToGet, boolean allowPartialAttributeValues) {
+        // Fetch the users concurrently, unknown uids are skipped
+        lookupAll(lookupRunner, uids, uid -> fetchUser(uid, attributesToGet, allowPartialAttributeValues), handler);
+    }
+
+    private void getUsersByAttribute(BoxFilter query, ResultsHandler handler, OperationOptions ops, Set<String> attributesToGet, boolean allowPartialAttributeValues) {
+        String[] fields = toFetchFields(attributesToGet, UsersHandler.ASSOCIATION_ATTRS_SET);
+        ProjectionPlan<BoxUser.Info> plan = userProjection.compile(attributesToGet);
+
+        Iterable<BoxUser.Info> users;
+        if (query.attrName.equals(ATTR_EXTERNAL_APP_USER_ID)) {
+            users = BoxUser.getAppUsersByExternalAppUserID(boxAPI, query.attrValue, fields);
+        } else {
+            // "filter_term" matches the prefix of the name or login, so narrow down the results here
+            users = BoxUser.getAllEnterpriseUsers(boxAPI, query.attrValue, fields);
+        }
+
+        for (BoxUser.Info info : users) {
+            if (matches(query, info)) {
+                if (!handler.handle(userToConnectorObject(info, plan, allowPartialAttributeValues))) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean matches(BoxFilter query, BoxUser.Info info) {
+        if (query.attrName.equals(ATTR_EXTERNAL_APP_USER_ID)) {
+            // Box matches it exactly, and it isn't fetched unless requested
+            return true;
+        }
+        String value = query.attrName.equals(Name.NAME) ? info.getLogin() : info.getName();
+        if (value == null) {
+            return false;
+        }
+        if (query.isStartsWith()) {
+            return value.regionMatches(true, 0, query.attrValue, 0, query.attrValue.length());
+        }
+        return value.equals(query.attrValue);
+    }
+
     public Uid createUser(Set<Attribute> attributes) {
+        NewUser newUser = toNewUser(attributes);
+
+        try {
+            BoxUser.Info createdUserInfo = BoxUser.createEnterpriseUser(boxAPI, newUser.login, newUser.name, newUser.params);
+
+            membershipMutationExecutor.execute(toMembershipMutations(newUser, createdUserInfo.getResource()));
+
+            return new Uid(createdUserInfo.getID(), new Name(createdUserInfo.getLogin()));
+
+        } catch (BoxAPIResponseException e) {
+            if (isUserAlreadyExistsError(e)) {
+                throw new AlreadyExistsException(e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Parsed attributes of a user to create.
+     */
+    private static class NewUser {
+        String login;
+        String name;
+        CreateUserParams params;
+        List<String> groupsToAdd;
+        List<String> groupAdminsToAdd;
+        Map<String, Map<BoxGroupMembership.Permission, Boolean>> groupAdminPermissionsToAdd;
+    }
+
+    private NewUser toNewUser(Set<Attribute> attributes) {
         if (attributes == null || attributes.isEmpty()) {
             throw new InvalidAttributeValueException("attributes not provided or empty");
         }
@@ -566,34 +857,122 @@ public class UsersHandler extends AbstractHandler {
             throw new InvalidAttributeValueException("Missing mandatory attribute " + ATTR_NAME);
         }
 
-        try {
-            BoxUser.Info createdUserInfo = BoxUser.createEnterpriseUser(boxAPI, login, name, createUserParams);
+        NewUser newUser = new NewUser();
+        newUser.login = login;
+        newUser.name = name;
+        newUser.params = createUserParams;
+        newUser.groupsToAdd = groupsToAdd;
+        newUser.groupAdminsToAdd = groupAdminsToAdd;
+        newUser.groupAdminPermissionsToAdd = groupAdminPermissionsToAdd;
+        return newUser;
+    }
 
-            if (!CollectionUtil.isEmpty(groupsToAdd)) {
-                BoxUser user = createdUserInfo.getResource();
-                for (String group : groupsToAdd) {
-                    BoxGroup boxGroup = new BoxGroup(boxAPI, group);
-                    boxGroup.addMembership(user);
-                }
+    private List<MembershipMutationExecutor.Mutation> toMembershipMutations(NewUser newUser, BoxUser user) {
+        List<MembershipMutationExecutor.Mutation> mutations = new ArrayList<>();
+        if (!CollectionUtil.isEmpty(newUser.groupsToAdd)) {
+            for (String group : newUser.groupsToAdd) {
+                BoxGroup boxGroup = new BoxGroup(boxAPI, group);
+                mutations.add(new MembershipMutationExecutor.Mutation(group, "add member",
+                        () -> boxGroup.addMembership(user)));
             }
-            if (!CollectionUtil.isEmpty(groupAdminsToAdd)) {
-                BoxUser user = createdUserInfo.getResource();
-                Map<BoxGroupMembership.Permission, Boolean> defaultPermissions = configureDefaultGroupAdminPermissions();
+        }
+        if (!CollectionUtil.isEmpty(newUser.groupAdminsToAdd)) {
+            Map<BoxGroupMembership.Permission, Boolean> defaultPermissions = configureDefaultGroupAdminPermissions();
 
-                for (String group : groupAdminsToAdd) {
-                    BoxGroup boxGroup = new BoxGroup(boxAPI, group);
-                    boxGroup.addMembership(user, BoxGroupMembership.GroupRole.ADMIN, getOrDefaultPermissions(groupAdminPermissionsToAdd, group, defaultPermissions));
-                }
+            for (String group : newUser.groupAdminsToAdd) {
+                BoxGroup boxGroup = new BoxGroup(boxAPI, group);
+                Map<BoxGroupMembership.Permission, Boolean> permissions = getOrDefaultPermissions(newUser.groupAdminPermissionsToAdd, group, defaultPermissions);
+                mutations.add(new MembershipMutationExecutor.Mutation(group, "add admin",
+                        () -> boxGroup.addMembership(user, BoxGroupMembership.GroupRole.ADMIN, permissions)));
             }
+        }
+        return mutations;
+    }
 
-            return new Uid(createdUserInfo.getID(), new Name(createdUserInfo.getLogin()));
+    /**
+     * Create users in bulk. The users are created with bounded parallelism ("bulkCreateParallelism"),
+     * then the membership adds are coalesced per group: the adds for the same group are sent sequentially,
+     * and different groups are processed concurrently.
+     *
+     * @return the result of each user in the same order
+     */
+    public List<BulkCreateResult> createUsers(List<Set<Attribute>> attributesList) {
+        int size = attributesList.size();
+        NewUser[] newUsers = new NewUser[size];
+        BoxUser.Info[] createdUsers = new BoxUser.Info[size];
+        RuntimeException[] errors = new RuntimeException[size];
+
+        // Validate all the users before sending any request
+        List<Integer> valid = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            try {
+                newUsers[i] = toNewUser(attributesList.get(i));
+                valid.add(i);
+            } catch (RuntimeException e) {
+                errors[i] = e;
+            }
+        }
 
-        } catch (BoxAPIResponseException e) {
-            if (isUserAlreadyExistsError(e)) {
-                throw new AlreadyExistsException(e);
+        LOGGER.info("[{0}] Create {1} users in bulk with parallelism {2}", instanceName, valid.size(), bulkCreateRunner.getParallelism());
+
+        List<Runnable> creates = new ArrayList<>(valid.size());
+        for (int i : valid) {
+            NewUser newUser = newUsers[i];
+            creates.add(() -> createdUsers[i] = BoxUser.createEnterpriseUser(boxAPI, newUser.login, newUser.name, newUser.params));
+        }
+        List<RuntimeException> createErrors = bulkCreateRunner.runAll(creates);
+        for (int j = 0; j < valid.size(); j++) {
+            RuntimeException e = createErrors.get(j);
+            if (e instanceof BoxAPIResponseException && isUserAlreadyExistsError((BoxAPIResponseException) e)) {
+                e = new AlreadyExistsException(e);
             }
-            throw e;
+            errors[valid.get(j)] = e;
+        }
+
+        // Coalesce the membership adds per group
+        Map<String, List<Integer>> ownersByGroup = new LinkedHashMap<>();
+        Map<String, List<MembershipMutationExecutor.Mutation>> mutationsByGroup = new LinkedHashMap<>();
+        for (int i : valid) {
+            if (createdUsers[i] == null) {
+                continue;
+            }
+            for (MembershipMutationExecutor.Mutation mutation : toMembershipMutations(newUsers[i], createdUsers[i].getResource())) {
+                mutationsByGroup.computeIfAbsent(mutation.groupId, k -> new ArrayList<>()).add(mutation);
+                ownersByGroup.computeIfAbsent(mutation.groupId, k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        List<String> groupIds = new ArrayList<>(mutationsByGroup.keySet());
+        List<Runnable> groupTasks = new ArrayList<>(groupIds.size());
+        // The failures are reported per user inside the group task, so they never reach the runner.
+        // Each add goes through the throttle of the runner instead.
+        Throttle throttle = bulkCreateRunner.getThrottle();
+        for (String groupId : groupIds) {
+            List<MembershipMutationExecutor.Mutation> mutations = mutationsByGroup.get(groupId);
+            List<Integer> owners = ownersByGroup.get(groupId);
+            groupTasks.add(() -> {
+                for (int k = 0; k < mutations.size(); k++) {
+                    try {
+                        throttle.run(mutations.get(k).task);
+                    } catch (RuntimeException e) {
+                        // Report the failure on the user and continue with the other users of the group
+                        synchronized (errors) {
+                            if (errors[owners.get(k)] == null) {
+                                errors[owners.get(k)] = e;
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        bulkCreateRunner.runAll(groupTasks);
+
+        List<BulkCreateResult> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Uid uid = createdUsers[i] != null ? new Uid(createdUsers[i].getID(), new Name(createdUsers[i].getLogin())) : null;
+            results.add(new BulkCreateResult(uid, errors[i]));
         }
+        return results;
     }
 
     private Map<String, Map<BoxGroupMembership.Permission, Boolean>> toGroupAdminPermissionMap(List<Object> attrValues) {
@@ -790,8 +1169,11 @@ public class UsersHandler extends AbstractHandler {
             }
         }
 
+        // Fetch the user's memberships at most once for removing and switching group role
+        MembershipSnapshot snapshot = new MembershipSnapshot(new BoxUser(boxAPI, uid.getUidValue()));
+
         if (groupsToAdd != null || groupsToRemove != null) {
-            updateMemberships(uid, groupsToAdd, groupsToRemove, groupToUpdate);
+            updateMemberships(uid, groupsToAdd, groupsToRemove, groupToUpdate, snapshot);
         }
 
         if (groupAdminsToAdd != null || groupAdminsToRemove != null || groupAdminPermissionsToUpdate != null) {
@@ -809,103 +1191,272 @@ public class UsersHandler extends AbstractHandler {
                 }
             }
 
-            updateAdminMemberships(uid, mergedgroupAdminsToAdd, groupAdminsToRemove, groupAdminPermissionsToUpdate);
+            updateAdminMemberships(uid, mergedgroupAdminsToAdd, groupAdminsToRemove, groupAdminPermissionsToUpdate, snapshot);
         }
 
         // Box doesn't support to modify user's id
         return null;
     }
 
-    private void updateMemberships(Uid uid, Set<String> groupsToAdd, Set<String> groupsToRemove, Set<String> groupToUpdate) {
+    private void updateMemberships(Uid uid, Set<String> groupsToAdd, Set<String> groupsToRemove, Set<String> groupToUpdate,
+                                   MembershipSnapshot snapshot) {
         BoxUser user = new BoxUser(boxAPI, uid.getUidValue());
 
         if (!CollectionUtil.isEmpty(groupsToAdd)) {
+            List<MembershipMutationExecutor.Mutation> mutations = new ArrayList<>();
             for (String group : groupsToAdd) {
                 BoxGroup boxGroup = new BoxGroup(boxAPI, group);
-                boxGroup.addMembership(user);
+                mutations.add(new MembershipMutationExecutor.Mutation(group, "add member",
+                        () -> boxGroup.addMembership(user)));
             }
+            membershipMutationExecutor.execute(mutations);
         }
         if (!CollectionUtil.isEmpty(groupsToRemove)) {
-            Iterable<BoxGroupMembership.Info> memberships = user.getAllMemberships();
-            for (BoxGroupMembership.Info membershipInfo : memberships) {
+            List<MembershipMutationExecutor.Mutation> mutations = new ArrayList<>();
+            for (BoxGroupMembership.Info membershipInfo : snapshot.get(groupsToRemove)) {
+                String groupId = membershipInfo.getGroup().getID();
                 // Don't delete if the group role is not "member"
-                if (membershipInfo.getGroupRole().equals(BoxGroupMembership.GroupRole.MEMBER) && groupsToRemove.contains(membershipInfo.getGroup().getID())) {
-                    membershipInfo.getResource().delete();
+                if (membershipInfo.getGroupRole().equals(BoxGroupMembership.GroupRole.MEMBER)) {
+                    mutations.add(new MembershipMutationExecutor.Mutation(groupId, "remove member",
+                            () -> membershipInfo.getResource().delete()));
                 }
             }
+            membershipMutationExecutor.execute(mutations);
         }
         if (!CollectionUtil.isEmpty(groupToUpdate)) {
-            // We need to fetch membership of the user to update the membership
-            Iterable<BoxGroupMembership.Info> allMemberships = user.getAllMemberships();
-            List<BoxGroupMembership.Info> updateMembership = new ArrayList<>();
-
-            for (BoxGroupMembership.Info membership : allMemberships) {
+            List<MembershipMutationExecutor.Mutation> mutations = new ArrayList<>();
+            for (BoxGroupMembership.Info membership : snapshot.get(groupToUpdate)) {
                 String groupId = membership.getGroup().getID();
-                if (groupToUpdate.contains(groupId)) {
-                    groupToUpdate.remove(groupId);
-                    if (!membership.getGroupRole().equals(BoxGroupMembership.GroupRole.MEMBER)) {
-                        membership.setGroupRole(BoxGroupMembership.GroupRole.MEMBER);
-                        updateMembership.add(membership);
-                    }
+                if (!membership.getGroupRole().equals(BoxGroupMembership.GroupRole.MEMBER)) {
+                    membership.setGroupRole(BoxGroupMembership.GroupRole.MEMBER);
+                    mutations.add(new MembershipMutationExecutor.Mutation(groupId, "update role",
+                            () -> new BoxGroupMembership(boxAPI, membership.getID()).updateInfo(membership)));
                 }
-                if (groupToUpdate.isEmpty()) {
-                    // Stop fetching remaining membership
-                    break;
-                }
-            }
-
-            for (BoxGroupMembership.Info membership : updateMembership) {
-                new BoxGroupMembership(boxAPI, membership.getID()).updateInfo(membership);
             }
+            membershipMutationExecutor.execute(mutations);
         }
     }
 
     private void updateAdminMemberships(Uid uid, Map<String, Map<BoxGroupMembership.Permission, Boolean>> groupAdminsToAdd,
                                         Set<String> groupAdminsToRemove,
-                                        Map<String, Map<BoxGroupMembership.Permission, Boolean>> groupAdminsToUpdate) {
+                                        Map<String, Map<BoxGroupMembership.Permission, Boolean>> groupAdminsToUpdate,
+                                        MembershipSnapshot snapshot) {
         BoxUser user = new BoxUser(boxAPI, uid.getUidValue());
 
         if (groupAdminsToAdd != null) {
+            List<MembershipMutationExecutor.Mutation> mutations = new ArrayList<>();
             for (Map.Entry<String, Map<BoxGroupMembership.Permission, Boolean>> entry : groupAdminsToAdd.entrySet()) {
                 String groupId = entry.getKey();
                 Map<BoxGroupMembership.Permission, Boolean> permissions = entry.getValue();
                 BoxGroup boxGroup = new BoxGroup(boxAPI, groupId);
-                boxGroup.addMembership(user, BoxGroupMembership.GroupRole.ADMIN, permissions == null || permissions.isEmpty() ? null : permissions);
+                mutations.add(new MembershipMutationExecutor.Mutation(groupId, "add admin",
+                        () -> boxGroup.addMembership(user, BoxGroupMembership.GroupRole.ADMIN, permissions == null || permissions.isEmpty() ? null : permissions)));
             }
+            membershipMutationExecutor.execute(mutations);
         }
         if (!CollectionUtil.isEmpty(groupAdminsToRemove)) {
-            Iterable<BoxGroupMembership.Info> memberships = user.getAllMemberships();
-            for (BoxGroupMembership.Info membershipInfo : memberships) {
+            List<MembershipMutationExecutor.Mutation> mutations = new ArrayList<>();
+            for (BoxGroupMembership.Info membershipInfo : snapshot.get(groupAdminsToRemove)) {
+                String groupId = membershipInfo.getGroup().getID();
                 // Don't delete if the group role is not "admin"
-                if (membershipInfo.getGroupRole().equals(BoxGroupMembership.GroupRole.ADMIN) && groupAdminsToRemove.contains(membershipInfo.getGroup().getID())) {
-                    membershipInfo.getResource().delete();
+                if (membershipInfo.getGroupRole().equals(BoxGroupMembership.GroupRole.ADMIN)) {
+                    mutations.add(new MembershipMutationExecutor.Mutation(groupId, "remove admin",
+                            () -> membershipInfo.getResource().delete()));
                 }
             }
+            membershipMutationExecutor.execute(mutations);
         }
         if (groupAdminsToUpdate != null && !groupAdminsToUpdate.isEmpty()) {
-            // We need to fetch membership of the user to update the membership
-            Iterable<BoxGroupMembership.Info> allMemberships = user.getAllMemberships();
-            List<BoxGroupMembership.Info> updateMembership = new ArrayList<>();
-
-            for (BoxGroupMembership.Info membership : allMemberships) {
+            List<MembershipMutationExecutor.Mutation> mutations = new ArrayList<>();
+            for (BoxGroupMembership.Info membership : snapshot.get(groupAdminsToUpdate.keySet())) {
                 String groupId = membership.getGroup().getID();
-                if (groupAdminsToUpdate.containsKey(groupId)) {
-                    Map<BoxGroupMembership.Permission, Boolean> permission = groupAdminsToUpdate.remove(groupId);
-                    membership.setGroupRole(BoxGroupMembership.GroupRole.ADMIN);
-                    if (permission != null && !permission.isEmpty()) {
-                        membership.setConfigurablePermissions(permission);
+                Map<BoxGroupMembership.Permission, Boolean> permission = groupAdminsToUpdate.get(groupId);
+                membership.setGroupRole(BoxGroupMembership.GroupRole.ADMIN);
+                if (permission != null && !permission.isEmpty()) {
+                    membership.setConfigurablePermissions(permission);
+                }
+                mutations.add(new MembershipMutationExecutor.Mutation(groupId, "update role",
+                        () -> new BoxGroupMembership(boxAPI, membership.getID()).updateInfo(membership)));
+            }
+            membershipMutationExecutor.execute(mutations);
+        }
+    }
+
+    /**
+     * Paged results cookie of users. It's the marker of the next page, or "&lt;n&gt;:&lt;marker&gt;" if the handler
+     * stopped after the first n users of the page of the marker, so that the next search doesn't miss the rest.
+     */
+    static class PageCookie {
+        private static final Pattern PARTIAL = Pattern.compile("^(\\d+):(.*)$");
+
+        final String marker;
+        final int skip;
+
+        private PageCookie(String marker, int skip) {
+            this.marker = marker;
+            this.skip = skip;
+        }
+
+        static PageCookie parse(String cookie) {
+            if (cookie == null) {
+                return new PageCookie(null, 0);
+            }
+            Matcher m = PARTIAL.matcher(cookie);
+            if (m.matches()) {
+                return new PageCookie(m.group(2).isEmpty() ? null : m.group(2), Integer.parseInt(m.group(1)));
+            }
+            return new PageCookie(cookie, 0);
+        }
+
+        static String format(String marker, int skip) {
+            return skip + ":" + (marker != null ? marker : "");
+        }
+    }
+
+    /**
+     * Progress of searching all users. The marker of the next page is saved to the checkpoint after each page,
+     * and it's deleted when the search ends without an error.
+     */
+    private class UserScan {
+        private final ResultsHandler handler;
+        private final Set<String> attributesToGet;
+        private final boolean allowPartialAttributeValues;
+        private final UserMembershipIndex membershipIndex;
+        // Fetch the memberships of the users in parallel if not null
+        private final BoundedTaskRunner associationRunner;
+        private final ScanCheckpoint checkpoint;
+
+        // True until the first page after resuming from the checkpoint is handled
+        private boolean resumed;
+        private long pages;
+        private long objects;
+
+        UserScan(ResultsHandler handler, Set<String> attributesToGet, boolean allowPartialAttributeValues,
+                 UserMembershipIndex membershipIndex, BoundedTaskRunner associationRunner, ScanCheckpoint checkpoint) {
+            this.handler = handler;
+            this.attributesToGet = attributesToGet;
+            this.allowPartialAttributeValues = allowPartialAttributeValues;
+            this.membershipIndex = membershipIndex;
+            this.associationRunner = associationRunner;
+            this.checkpoint = checkpoint;
+        }
+
+        /**
+         * @return the marker to start from; the paged results cookie if specified, or the checkpoint if requested
+         */
+        String start(String pagedResultsCookie, boolean resumeFromCheckpoint) {
+            if (pagedResultsCookie != null || !resumeFromCheckpoint || checkpoint == null) {
+                return pagedResultsCookie;
+            }
+            String marker = checkpoint.load();
+            if (marker != null) {
+                resumed = true;
+                pages = checkpoint.getPages();
+                objects = checkpoint.getObjects();
+                LOGGER.info("[{0}] Resume searching all users from the checkpoint, pages: {1}, users: {2}", instanceName, pages, objects);
+            }
+            return marker;
+        }
+
+        boolean isResumed() {
+            return resumed;
+        }
+
+        void restart() {
+            checkpoint.clear();
+            resumed = false;
+            pages = 0;
+            objects = 0;
+        }
+
+        boolean handlePage(PagePrefetcher.Page<Map.Entry<String, ConnectorObjectBuilder>> page) {
+            resumed = false;
+            pages++;
+            int count = 0;
+            List<Map.Entry<String, ConnectorObjectBuilder>> entries = page.getEntries();
+            // Fetch the memberships of a batch at a time, not to waste the calls when the handler stops
+            int batchSize = associationRunner != null ? associationRunner.getParallelism() : 1;
+            try {
+                for (int from = 0; from < entries.size(); from += batchSize) {
+                    List<Map.Entry<String, ConnectorObjectBuilder>> batch = entries.subList(from, Math.min(from + batchSize, entries.size()));
+                    addAssociationAttributes(batch);
+                    for (Map.Entry<String, ConnectorObjectBuilder> entry : batch) {
+                        count++;
+                        if (!handler.handle(entry.getValue().build())) {
+                            LOGGER.ok("[{0}] Stop searching all users because the handler returned false, pages: {1}, users: {2}",
+                                    instanceName, pages, objects + count);
+                            return false;
+                        }
                     }
-                    updateMembership.add(membership);
                 }
-                if (groupAdminsToUpdate.isEmpty()) {
-                    // Stop fetching remaining membership
-                    break;
+            } finally {
+                objects += count;
+                metricsRegistry.recordPage(OBJECT_CLASS_USER.getObjectClassValue(), count);
+            }
+
+            LOGGER.ok("[{0}] Fetched users page, pages: {1}, users: {2}", instanceName, pages, objects);
+            if (checkpoint != null && page.getNextCursor() != null) {
+                checkpoint.save(page.getNextCursor(), pages, objects);
+            }
+            return true;
+        }
+
+        private void addAssociationAttributes(List<Map.Entry<String, ConnectorObjectBuilder>> batch) {
+            if (associationRunner == null) {
+                for (Map.Entry<String, ConnectorObjectBuilder> entry : batch) {
+                    UsersHandler.this.addAssociationAttributes(entry.getValue(), entry.getKey(), attributesToGet,
+                            allowPartialAttributeValues, membershipIndex);
+                }
+                return;
+            }
+            List<Runnable> tasks = new ArrayList<>(batch.size());
+            for (Map.Entry<String, ConnectorObjectBuilder> entry : batch) {
+                tasks.add(() -> UsersHandler.this.addAssociationAttributes(entry.getValue(), entry.getKey(), attributesToGet,
+                        allowPartialAttributeValues, membershipIndex));
+            }
+            for (RuntimeException failure : associationRunner.runAll(tasks)) {
+                if (failure != null) {
+                    throw failure;
                 }
             }
+        }
+
+        void finish(boolean completed) {
+            if (checkpoint != null) {
+                checkpoint.clear();
+            }
+            if (completed) {
+                LOGGER.info("[{0}] Completed searching all users, pages: {1}, users: {2}", instanceName, pages, objects);
+            }
+        }
+    }
 
-            for (BoxGroupMembership.Info membership : updateMembership) {
-                new BoxGroupMembership(boxAPI, membership.getID()).updateInfo(membership);
+    /**
+     * Memberships of the user fetched lazily by a single listing and indexed by group id.
+     * A user has at most one membership (member or admin) for each group.
+     */
+    private static class MembershipSnapshot {
+        private final BoxUser user;
+        private Map<String, BoxGroupMembership.Info> byGroupId;
+
+        MembershipSnapshot(BoxUser user) {
+            this.user = user;
+        }
+
+        /**
+         * Return the memberships of the given groups in the listing order.
+         */
+        List<BoxGroupMembership.Info> get(Set<String> groupIds) {
+            if (byGroupId == null) {
+                byGroupId = new LinkedHashMap<>();
+                for (BoxGroupMembership.Info membership : user.getAllMemberships()) {
+                    byGroupId.put(membership.getGroup().getID(), membership);
+                }
             }
+            return byGroupId.entrySet().stream()
+                    .filter(e -> groupIds.contains(e.getKey()))
+                    .map(Map.Entry::getValue)
+                    .collect(Collectors.toList());
         }
     }
 
@@ -987,7 +1538,36 @@ public class UsersHandler extends AbstractHandler {
         user.delete(false, false);
     }
 
-    private ConnectorObject userToConnectorObject(BoxUser.Info info, Set<String> attributesToGet, boolean allowPartialAttributeValues) {
+    private boolean requiresMemberships(Set<String> attributesToGet) {
+        return attributesToGet.contains(ATTR_GROUP_MEMBERSHIP) ||
+                attributesToGet.contains(ATTR_GROUP_ADMIN_MEMBERSHIP) ||
+                attributesToGet.contains(ATTR_GROUP_ADMIN_MEMBERSHIP_PERMISSION);
+    }
+
+    private String[] toMembershipFetchFields(Set<String> attributesToGet) {
+        if (attributesToGet.contains(ATTR_GROUP_ADMIN_MEMBERSHIP_PERMISSION)) {
+            return MEMBERSHIP_WITH_PERMISSION_FIELDS;
+        }
+        // Use the default fields
+        return new String[]{};
+    }
+
+    private UserJsonMapper getUserJsonMapper(Set<String> attributesToGet) {
+        UserJsonMapper mapper = userJsonMappers.get(attributesToGet);
+        if (mapper == null) {
+            mapper = UserJsonMapper.compile(attributesToGet);
+            if (userJsonMappers.size() < MAX_CACHED_ATTRIBUTES_SHAPES) {
+                userJsonMappers.put(attributesToGet, mapper);
+            }
+        }
+        return mapper;
+    }
+
+    ProjectionPlan<BoxUser.Info> compileProjection(Set<String> attributesToGet) {
+        return userProjection.compile(attributesToGet);
+    }
+
+    ConnectorObject userToConnectorObject(BoxUser.Info info, ProjectionPlan<BoxUser.Info> plan, boolean allowPartialAttributeValues) {
         ConnectorObjectBuilder builder = new ConnectorObjectBuilder();
 
         builder.setObjectClass(OBJECT_CLASS_USER);
@@ -995,94 +1575,7 @@ public class UsersHandler extends AbstractHandler {
         builder.setUid(new Uid(info.getID(), new Name(info.getLogin())));
         builder.setName(info.getLogin());
 
-        // Mini
-        if (attributesToGet.contains(ATTR_NAME)) {
-            builder.addAttribute(ATTR_NAME, info.getName());
-        }
-
-        // Standard
-        if (attributesToGet.contains(ATTR_CREATED_AT)) {
-            builder.addAttribute(ATTR_CREATED_AT, toZonedDateTime(info.getCreatedAt()));
-        }
-        if (attributesToGet.contains(ATTR_MODIFIED_AT)) {
-            builder.addAttribute(ATTR_MODIFIED_AT, toZonedDateTime(info.getModifiedAt()));
-        }
-        if (attributesToGet.contains(ATTR_LANGUAGE)) {
-            builder.addAttribute(ATTR_LANGUAGE, toString(info.getLanguage()));
-        }
-        if (attributesToGet.contains(ATTR_TIMEZONE)) {
-            builder.addAttribute(ATTR_TIMEZONE, toString(info.getTimezone()));
-        }
-        if (attributesToGet.contains(ATTR_SPACE_AMOUNT)) {
-            builder.addAttribute(ATTR_SPACE_AMOUNT, info.getSpaceAmount());
-        }
-        if (attributesToGet.contains(ATTR_SPACE_USED)) {
-            builder.addAttribute(ATTR_SPACE_USED, info.getSpaceUsed());
-        }
-        if (attributesToGet.contains(ATTR_STATUS)) {
-            builder.addAttribute(ATTR_STATUS, toString(info.getStatus()));
-        }
-        if (attributesToGet.contains(ATTR_MAX_UPLOAD_SIZE)) {
-            builder.addAttribute(ATTR_MAX_UPLOAD_SIZE, info.getMaxUploadSize());
-        }
-        if (attributesToGet.contains(ATTR_JOB_TITLE)) {
-            builder.addAttribute(ATTR_JOB_TITLE, toString(info.getJobTitle()));
-        }
-        if (attributesToGet.contains(ATTR_PHONE)) {
-            builder.addAttribute(ATTR_PHONE, toString(info.getPhone()));
-        }
-        if (attributesToGet.contains(ATTR_ADDRESS)) {
-            builder.addAttribute(ATTR_ADDRESS, toString(info.getAddress()));
-        }
-        if (attributesToGet.contains(ATTR_AVATAR_URL)) {
-            builder.addAttribute(ATTR_AVATAR_URL, toString(info.getAvatarURL()));
-        }
-        // Box SDK for Java can't handle them currently
-//        if (attributesToGet.contains(ATTR_NOTIFICATION_EMAIL_EMAIL)) {
-//        }
-//        if (attributesToGet.contains(ATTR_NOTIFICATION_EMAIL_ISCONFIRMED)) {
-//        }
-
-        // Full
-        if (attributesToGet.contains(ATTR_CAN_SEE_MANAGED_USERS)) {
-            builder.addAttribute(ATTR_CAN_SEE_MANAGED_USERS, info.getCanSeeManagedUsers());
-        }
-        if (attributesToGet.contains(ATTR_ENTERPRISE)) {
-            builder.addAttribute(ATTR_ENTERPRISE_ID, toString(info.getEnterprise().getID()));
-        }
-        if (attributesToGet.contains(ATTR_ENTERPRISE)) {
-            builder.addAttribute(ATTR_ENTERPRISE_NAME, toString(info.getEnterprise().getName()));
-        }
-        if (attributesToGet.contains(ATTR_EXTERNAL_APP_USER_ID)) {
-            builder.addAttribute(ATTR_EXTERNAL_APP_USER_ID, toString(info.getExternalAppUserId()));
-        }
-        if (attributesToGet.contains(ATTR_HOSTNAME)) {
-            builder.addAttribute(ATTR_HOSTNAME, toString(info.getHostname()));
-        }
-        if (attributesToGet.contains(ATTR_IS_EXEMPT_FROM_DEVICE_LIMITS)) {
-            builder.addAttribute(ATTR_IS_EXEMPT_FROM_DEVICE_LIMITS, info.getIsExemptFromDeviceLimits());
-        }
-        if (attributesToGet.contains(ATTR_IS_EXEMPT_FROM_LOGIN_VERIFICATION)) {
-            builder.addAttribute(ATTR_IS_EXEMPT_FROM_LOGIN_VERIFICATION, info.getIsExemptFromLoginVerification());
-        }
-        if (attributesToGet.contains(ATTR_IS_EXEMPT_COLLAB_RESTRICTED)) {
-            builder.addAttribute(ATTR_IS_EXEMPT_COLLAB_RESTRICTED, info.getIsExternalCollabRestricted());
-        }
-        if (attributesToGet.contains(ATTR_IS_PLATFORM_ACCESS_ONLY)) {
-            builder.addAttribute(ATTR_IS_PLATFORM_ACCESS_ONLY, info.getIsPlatformAccessOnly());
-        }
-        if (attributesToGet.contains(ATTR_IS_SYNC_ENABLED)) {
-            builder.addAttribute(ATTR_IS_SYNC_ENABLED, info.getIsSyncEnabled());
-        }
-        if (attributesToGet.contains(ATTR_MY_TAGS)) {
-            builder.addAttribute(ATTR_MY_TAGS, info.getMyTags());
-        }
-        if (attributesToGet.contains(ATTR_ROLE)) {
-            builder.addAttribute(ATTR_ROLE, toString(info.getRole()));
-        }
-        if (attributesToGet.contains(ATTR_TRACKING_CODES)) {
-            builder.addAttribute(ATTR_TRACKING_CODES, toString(info.getTrackingCodes()));
-        }
+        plan.apply(info, builder);
 
         // __ENABLE__
         if (info.getStatus().equals(BoxUser.Status.ACTIVE)) {
@@ -1092,9 +1585,15 @@ public class UsersHandler extends AbstractHandler {
         }
 
         // Association
-        if (attributesToGet.contains(ATTR_GROUP_MEMBERSHIP) ||
-                attributesToGet.contains(ATTR_GROUP_ADMIN_MEMBERSHIP) ||
-                attributesToGet.contains(ATTR_GROUP_ADMIN_MEMBERSHIP_PERMISSION)) {
+        addAssociationAttributes(builder, info.getID(), plan.getAttributesToGet(), allowPartialAttributeValues, null);
+
+        ConnectorObject connectorObject = builder.build();
+        return connectorObject;
+    }
+
+    private void addAssociationAttributes(ConnectorObjectBuilder builder, String userId, Set<String> attributesToGet,
+                                          boolean allowPartialAttributeValues, UserMembershipIndex membershipIndex) {
+        if (requiresMemberships(attributesToGet)) {
             if (allowPartialAttributeValues) {
                 // Suppress fetching group membership
                 LOGGER.ok("Suppress fetching group membership because return partial attribute values is requested");
@@ -1118,24 +1617,37 @@ public class UsersHandler extends AbstractHandler {
                     builder.addAttribute(ab.build());
                 }
             } else {
-                // Fetch groups
-                Iterable<BoxGroupMembership.Info> memberships = info.getResource().getAllMemberships();
+                // Fetch groups if not prefetched
+                Iterable<BoxGroupMembership.Info> memberships = membershipIndex != null ?
+                        membershipIndex.getMemberships(userId) :
+                        new BoxUser(boxAPI, userId).getAllMemberships(toMembershipFetchFields(attributesToGet));
 
                 List<String> groupMemberships = new ArrayList<>();
                 List<String> groupAdminMemberships = new ArrayList<>();
                 List<String> groupAdminMembershipPermissions = new ArrayList<>();
 
+                boolean wantsMemberships = attributesToGet.contains(ATTR_GROUP_MEMBERSHIP);
+                boolean wantsAdminMemberships = attributesToGet.contains(ATTR_GROUP_ADMIN_MEMBERSHIP);
+                boolean wantsAdminPermissions = attributesToGet.contains(ATTR_GROUP_ADMIN_MEMBERSHIP_PERMISSION);
+
                 for (BoxGroupMembership.Info membershipInfo : memberships) {
                     LOGGER.info("[{0}] Group INFO getID {1}, role {2}", instanceName, membershipInfo.getGroup().getID(), membershipInfo.getGroupRole());
-                    if (attributesToGet.contains(ATTR_GROUP_MEMBERSHIP) && membershipInfo.getGroupRole().equals(BoxGroupMembership.GroupRole.MEMBER)) {
+                    if (wantsMemberships && membershipInfo.getGroupRole().equals(BoxGroupMembership.GroupRole.MEMBER)) {
                         groupMemberships.add(membershipInfo.getGroup().getID());
                     }
-                    if (attributesToGet.contains(ATTR_GROUP_ADMIN_MEMBERSHIP) && membershipInfo.getGroupRole().equals(BoxGroupMembership.GroupRole.ADMIN)) {
+                    if (wantsAdminMemberships && membershipInfo.getGroupRole().equals(BoxGroupMembership.GroupRole.ADMIN)) {
                         groupAdminMemberships.add(membershipInfo.getGroup().getID());
                     }
-                    if (attributesToGet.contains(ATTR_GROUP_ADMIN_MEMBERSHIP_PERMISSION) && membershipInfo.getGroupRole().equals(BoxGroupMembership.GroupRole.ADMIN)) {
-                        // We need to call group membership API to fetch "configurable_permission"
-                        Map<BoxGroupMembership.Permission, Boolean> permissions = membershipInfo.getResource().getInfo().getConfigurablePermissions();
+                    if (wantsAdminPermissions && membershipInfo.getGroupRole().equals(BoxGroupMembership.GroupRole.ADMIN)) {
+                        Map<BoxGroupMembership.Permission, Boolean> permissions = membershipInfo.getConfigurablePermissions();
+                        if (permissions == null) {
+                            // Fallback: we need to call group membership API to fetch "configurable_permission"
+                            permissions = membershipInfo.getResource().getInfo().getConfigurablePermissions();
+                        } else {
+                            metricsRegistry.recordAvoidedMembershipInfoCall();
+                            LOGGER.ok("[{0}] Use configurable_permissions of the membership listing for group {1}",
+                                    instanceName, membershipInfo.getGroup().getID());
+                        }
                         if (permissions != null) {
                             String params = permissions.entrySet().stream()
                                     .sorted(Map.Entry.comparingByKey())
@@ -1146,23 +1658,20 @@ public class UsersHandler extends AbstractHandler {
                         }
                     }
                 }
-                if (attributesToGet.contains(ATTR_GROUP_MEMBERSHIP)) {
+                if (wantsMemberships) {
                     builder.addAttribute(ATTR_GROUP_MEMBERSHIP, groupMemberships);
                 }
-                if (attributesToGet.contains(ATTR_GROUP_ADMIN_MEMBERSHIP)) {
+                if (wantsAdminMemberships) {
                     builder.addAttribute(ATTR_GROUP_ADMIN_MEMBERSHIP, groupAdminMemberships);
                 }
-                if (attributesToGet.contains(ATTR_GROUP_ADMIN_MEMBERSHIP_PERMISSION)) {
+                if (wantsAdminPermissions) {
                     builder.addAttribute(ATTR_GROUP_ADMIN_MEMBERSHIP_PERMISSION, groupAdminMembershipPermissions);
                 }
             }
         }
-
-        ConnectorObject connectorObject = builder.build();
-        return connectorObject;
     }
 
-    private String toString(BoxUser.Status status) {
+    private static String toString(BoxUser.Status status) {
         switch (status) {
             case ACTIVE:
                 return "active";
@@ -1176,13 +1685,13 @@ public class UsersHandler extends AbstractHandler {
         throw new InvalidAttributeValueException("Unknown status: " + status);
     }
 
-    private List<String> toString(Map<String, String> map) {
+    private static List<String> toString(Map<String, String> map) {
         return map.entrySet().stream()
                 .map(entry -> String.format("%s: %s", entry.getKey(), entry.getValue()))
                 .collect(Collectors.toList());
     }
 
-    private String toString(BoxUser.Role role) {
+    private static String toString(BoxUser.Role role) {
         switch (role) {
             case USER:
                 return "user";
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Hiroyuki Wada
+ */
+class AdaptiveRateLimiterTests {
+
+    @Test
+    void waitWhenTokensRunOut() {
+        // Given
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter("enterprise-1/client-1", 2);
+        long now = System.nanoTime();
+
+        // When
+        long first = limiter.tryAcquire(now);
+        long second = limiter.tryAcquire(now);
+        long third = limiter.tryAcquire(now);
+
+        // Then
+        assertEquals(0, first);
+        assertEquals(0, second);
+        // 2 requests per second
+        assertTrue(third > 0);
+        assertTrue(third <= 500_000_000L);
+    }
+
+    @Test
+    void decreaseAndIncreaseRate() {
+        // Given
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter("enterprise-2/client-2", 10);
+
+        // When
+        limiter.onThrottled(0);
+
+        // Then
+        assertEquals(5.0, limiter.getRate());
+
+        // When
+        for (int i = 0; i < 100; i++) {
+            limiter.onSuccess();
+        }
+
+        // Then
+        assertEquals(10.0, limiter.getRate());
+    }
+
+    @Test
+    void pauseAfterThrottled() {
+        // Given
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter("enterprise-3/client-3", 10);
+
+        // When
+        limiter.onThrottled(60 * 1000);
+
+        // Then
+        assertTrue(limiter.tryAcquire(System.nanoTime()) > 59 * 1_000_000_000L);
+    }
+
+    @Test
+    void notLowerThanMinRate() {
+        // Given
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter("enterprise-4/client-4", 1);
+
+        // When
+        limiter.onThrottled(0);
+
+        // Then
+        assertEquals(AdaptiveRateLimiter.MIN_RATE, limiter.getRate());
+    }
+
+    @Test
+    void retryAfter() {
+        // The limiter shares the parser of the Throttle
+        assertEquals(3000, Throttle.getRetryAfterMillis("3"));
+        assertEquals(Throttle.DEFAULT_RETRY_AFTER_MILLIS, Throttle.getRetryAfterMillis((String) null));
+        assertEquals(Throttle.DEFAULT_RETRY_AFTER_MILLIS, Throttle.getRetryAfterMillis("invalid"));
+    }
+}
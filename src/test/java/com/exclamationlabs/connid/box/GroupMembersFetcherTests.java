@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Hiroyuki Wada
+ */
+class GroupMembersFetcherTests {
+
+    @Test
+    void keepNumericIds() {
+        // Given
+        GroupMembersFetcher.IdList ids = new GroupMembersFetcher.IdList();
+
+        // When
+        for (int i = 0; i < 100; i++) {
+            ids.add(String.valueOf(11446498 + i));
+        }
+
+        // Then
+        assertEquals(100, ids.toList().size());
+        assertEquals("11446498", ids.toList().get(0));
+        assertEquals("11446597", ids.toList().get(99));
+    }
+
+    @Test
+    void fallbackToStringsForNonCanonicalIds() {
+        // Given
+        GroupMembersFetcher.IdList ids = new GroupMembersFetcher.IdList();
+
+        // When
+        ids.add("11446498");
+        ids.add("0123");
+        ids.add("abc");
+        ids.add("12345678");
+
+        // Then
+        assertEquals(Arrays.asList("11446498", "0123", "abc", "12345678"), ids.toList());
+    }
+}
@@ -12,6 +12,7 @@ import com.exclamationlabs.connid.box.testutil.AbstractTests;
 import com.exclamationlabs.connid.box.testutil.TestUtils;
 import org.identityconnectors.framework.common.objects.*;
 import org.identityconnectors.framework.common.objects.filter.EqualsFilter;
+import org.identityconnectors.framework.common.objects.filter.StartsWithFilter;
 import org.junit.jupiter.api.Test;
 
 import java.io.UnsupportedEncodingException;
@@ -135,6 +136,55 @@ class GroupSearchTests extends AbstractTests {
         assertEquals("12345678", adminMember.get(0).toString());
     }
 
+    @Test
+    void searchAllGroup_1_members() {
+        // Given
+        List<BoxAPIRequest> requests = new ArrayList<>();
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("group-list-1.json");
+        });
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("group-member-admin-1.json");
+        });
+
+        List<ConnectorObject> groups = new ArrayList<>();
+        ResultsHandler handler = connectorObject -> {
+            groups.add(connectorObject);
+            return true;
+        };
+
+        // When
+        connector.search(OBJECT_CLASS_GROUP,
+                null,
+                handler,
+                new OperationOptionsBuilder()
+                        .setAttributesToGet(ATTR_MEMBER, ATTR_ADMIN_MEMBER)
+                        .build());
+
+        // Then
+        assertEquals(2, requests.size());
+        assertEquals("/2.0/groups/11446498/memberships", requests.get(1).getUrl().getPath());
+        Map<String, String> query = TestUtils.parseQuery(requests.get(1));
+        assertEquals("1000", query.get("limit"));
+        assertEquals(TestUtils.parseFields("user,role"), TestUtils.parseFields(query.get("fields")));
+
+        assertEquals(1, groups.size());
+        ConnectorObject result = groups.get(0);
+
+        List<Object> member = result.getAttributeByName(GroupsHandler.ATTR_MEMBER).getValue();
+        assertEquals(1, member.size());
+        assertEquals("11446498", member.get(0).toString());
+
+        // The admin member is the user id, not the group id
+        List<Object> adminMember = result.getAttributeByName(GroupsHandler.ATTR_ADMIN_MEMBER).getValue();
+        assertEquals(1, adminMember.size());
+        assertEquals("87654321", adminMember.get(0).toString());
+    }
+
     @Test
     void searchAllGroup_1_fullAttributes_incomplete() {
         // Given
@@ -240,6 +290,107 @@ class GroupSearchTests extends AbstractTests {
 //        assertEquals("Foo Group", groups.get(1).getAttributeByName("description").getValue().get(0));
     }
 
+    @Test
+    void searchAllGroup_2_stopByHandler() {
+        // Given
+        mockAPI.push(req -> ok("group-list-2.json"));
+
+        List<ConnectorObject> groups = new ArrayList<>();
+
+        // When
+        connector.search(OBJECT_CLASS_GROUP,
+                null,
+                connectorObject -> {
+                    groups.add(connectorObject);
+                    return false;
+                },
+                new OperationOptionsBuilder()
+                        .build());
+
+        // Then
+        assertEquals(1, groups.size());
+        assertEquals("11446498", groups.get(0).getUid().getUidValue());
+    }
+
+    @Test
+    void searchAllGroup_paged_firstPage() {
+        // Given
+        List<BoxAPIRequest> requests = new ArrayList<>();
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("group-list-page-1.json");
+        });
+        mockAPI.push(req -> {
+            fail("Shouldn't be called more than once");
+            return null;
+        });
+
+        List<ConnectorObject> groups = new ArrayList<>();
+        ResultsHandler handler = connectorObject -> {
+            groups.add(connectorObject);
+            return true;
+        };
+
+        // When
+        SearchResult result = connector.search(OBJECT_CLASS_GROUP,
+                null,
+                handler,
+                new OperationOptionsBuilder()
+                        .setPageSize(1)
+                        .build());
+
+        // Then
+        assertEquals(1, requests.size());
+        assertEquals("/2.0/groups", requests.get(0).getUrl().getPath());
+        Map<String, String> query = TestUtils.parseQuery(requests.get(0));
+        assertEquals("1", query.get("limit"));
+        assertEquals("0", query.get("offset"));
+
+        assertEquals(1, groups.size());
+        assertEquals("11446498", groups.get(0).getUid().getUidValue());
+
+        assertEquals("1", result.getPagedResultsCookie());
+        assertEquals(1, result.getRemainingPagedResults());
+    }
+
+    @Test
+    void searchAllGroup_paged_lastPage() {
+        // Given
+        List<BoxAPIRequest> requests = new ArrayList<>();
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("group-list-page-2.json");
+        });
+
+        List<ConnectorObject> groups = new ArrayList<>();
+        ResultsHandler handler = connectorObject -> {
+            groups.add(connectorObject);
+            return true;
+        };
+
+        // When
+        SearchResult result = connector.search(OBJECT_CLASS_GROUP,
+                null,
+                handler,
+                new OperationOptionsBuilder()
+                        .setPageSize(1)
+                        .setPagedResultsCookie("1")
+                        .build());
+
+        // Then
+        assertEquals(1, requests.size());
+        Map<String, String> query = TestUtils.parseQuery(requests.get(0));
+        assertEquals("1", query.get("offset"));
+
+        assertEquals(1, groups.size());
+        assertEquals("12345678", groups.get(0).getUid().getUidValue());
+
+        assertNull(result.getPagedResultsCookie());
+        assertEquals(0, result.getRemainingPagedResults());
+    }
+
     @Test
     void searchAllGroup_empty() {
         // Given
@@ -408,4 +559,36 @@ class GroupSearchTests extends AbstractTests {
         assertNotNull(request.get());
         assertEquals(0, groups.size());
     }
+
+    @Test
+    void searchGroupByNamePrefix() {
+        // Given
+        AtomicReference<BoxAPIRequest> request = new AtomicReference<>();
+        mockAPI.push(req -> {
+            request.set(req);
+
+            return ok("group-list-2.json");
+        });
+
+        List<ConnectorObject> groups = new ArrayList<>();
+        ResultsHandler handler = connectorObject -> {
+            groups.add(connectorObject);
+            return true;
+        };
+
+        // When
+        connector.search(OBJECT_CLASS_GROUP,
+                new StartsWithFilter(new Name("Sup")),
+                handler,
+                new OperationOptionsBuilder()
+                        .build());
+
+        // Then
+        assertNotNull(request.get());
+        assertEquals("Sup", TestUtils.parseQuery(request.get()).get("filter_term"));
+
+        assertEquals(1, groups.size());
+        assertEquals("11446498", groups.get(0).getUid().getUidValue());
+        assertEquals("Support", groups.get(0).getName().getNameValue());
+    }
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Hiroyuki Wada
+ */
+class JmxMetricsRegistryTests {
+
+    @Test
+    void recordOperations() {
+        // Given
+        JmxMetricsRegistry registry = JmxMetricsRegistry.getInstance("enterprise-1/client-1");
+        registry.reset();
+
+        // When
+        registry.recordOperation("executeQuery", TimeUnit.MILLISECONDS.toNanos(30), true, 3);
+        registry.recordOperation("executeQuery", TimeUnit.MILLISECONDS.toNanos(90), false, 1);
+        registry.recordOperation("create", TimeUnit.MILLISECONDS.toNanos(5), true, 2);
+
+        // Then
+        assertEquals(2L, registry.getOperationCounts().get("executeQuery"));
+        assertEquals(1L, registry.getOperationErrorCounts().get("executeQuery"));
+        assertEquals(60.0, registry.getOperationMeanLatencyMillis().get("executeQuery"));
+        assertEquals(90L, registry.getOperationMaxLatencyMillis().get("executeQuery"));
+        assertEquals(2.0, registry.getOperationMeanHttpRequests().get("executeQuery"));
+
+        long[] histogram = registry.getOperationLatencyHistograms().get("executeQuery");
+        assertEquals(registry.getLatencyBucketUpperBoundsMillis().length + 1, histogram.length);
+        // 30ms <= 50ms, 90ms <= 100ms
+        assertEquals(1, histogram[1]);
+        assertEquals(1, histogram[2]);
+
+        assertEquals(1L, registry.getOperationCounts().get("create"));
+    }
+
+    @Test
+    void recordHttpResponses() {
+        // Given
+        JmxMetricsRegistry registry = JmxMetricsRegistry.getInstance("enterprise-2/client-2");
+        registry.reset();
+
+        // When
+        registry.recordHttpResponse(200, 100);
+        registry.recordHttpResponse(429, 20);
+        registry.recordHttpResponse(503, -1);
+
+        // Then
+        assertEquals(3, registry.getHttpRequestCount());
+        assertEquals(1, registry.getThrottledResponseCount());
+        assertEquals(2, registry.getRetryableResponseCount());
+        assertEquals(120, registry.getBytesReceived());
+    }
+
+    @Test
+    void recordAvoidedMembershipInfoCalls() {
+        // Given
+        JmxMetricsRegistry registry = JmxMetricsRegistry.getInstance("enterprise-4/client-4");
+        registry.reset();
+
+        // When
+        registry.recordAvoidedMembershipInfoCall();
+        registry.recordAvoidedMembershipInfoCall();
+
+        // Then
+        assertEquals(2, registry.getAvoidedMembershipInfoCallCount());
+
+        registry.reset();
+        assertEquals(0, registry.getAvoidedMembershipInfoCallCount());
+    }
+
+    @Test
+    void exportedViaJmx() throws Exception {
+        // Given
+        JmxMetricsRegistry registry = JmxMetricsRegistry.getInstance("enterprise-3/client-3");
+        registry.reset();
+        registry.recordHttpResponse(200, 100);
+
+        // When
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.exclamationlabs.connid.box:type=Metrics,name=" + ObjectName.quote("enterprise-3/client-3"));
+
+        // Then
+        assertTrue(server.isRegistered(name));
+        assertEquals(1L, server.getAttribute(name, "HttpRequestCount"));
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import com.exclamationlabs.connid.box.testutil.FakeBoxConnector;
+import com.exclamationlabs.connid.box.testutil.FakeBoxDataset;
+import com.exclamationlabs.connid.box.testutil.FakeBoxServer;
+import org.identityconnectors.common.logging.Log;
+import org.identityconnectors.common.security.GuardedString;
+import org.identityconnectors.framework.api.APIConfiguration;
+import org.identityconnectors.framework.api.ConnectorFacade;
+import org.identityconnectors.framework.api.ConnectorFacadeFactory;
+import org.identityconnectors.framework.common.objects.*;
+import org.identityconnectors.test.common.TestHelpers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.exclamationlabs.connid.box.GroupsHandler.OBJECT_CLASS_GROUP;
+import static com.exclamationlabs.connid.box.UsersHandler.OBJECT_CLASS_USER;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * End-to-end throughput of reconciliation and provisioning against {@link FakeBoxServer} through a pooled
+ * ConnectorFacade. They are excluded from the default build; run them with "mvn test -P load".
+ * The size of the dataset and the network conditions are configurable by the system properties:
+ * load.users, load.groups, load.membershipsPerUser, load.rttMillis, load.jitterMillis and load.threads.
+ *
+ * @author Hiroyuki Wada
+ */
+@Tag("load")
+class LoadTests {
+
+    private static final Log LOGGER = Log.getLog(LoadTests.class);
+
+    private static final int USERS = Integer.getInteger("load.users", 50000);
+    private static final int GROUPS = Integer.getInteger("load.groups", 100);
+    private static final int MEMBERSHIPS_PER_USER = Integer.getInteger("load.membershipsPerUser", 3);
+    private static final int RTT_MILLIS = Integer.getInteger("load.rttMillis", 20);
+    private static final int JITTER_MILLIS = Integer.getInteger("load.jitterMillis", 10);
+    private static final int THREADS = Integer.getInteger("load.threads", 8);
+
+    private FakeBoxServer server;
+
+    @AfterEach
+    void teardown() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private FakeBoxServer startServer(int users, int maxRequestsPerSecond) throws IOException {
+        server = new FakeBoxServer(FakeBoxDataset.generate(users, GROUPS, MEMBERSHIPS_PER_USER))
+                .latency(RTT_MILLIS, JITTER_MILLIS)
+                .rateLimit(maxRequestsPerSecond, 1)
+                .start();
+        FakeBoxConnector.use(server);
+        return server;
+    }
+
+    private ConnectorFacade newFacade(BoxConfiguration configuration) {
+        configuration.setConfigJson(new GuardedString(server.getConfigJson().toCharArray()));
+        ConnectorFacadeFactory factory = ConnectorFacadeFactory.getInstance();
+        APIConfiguration impl = TestHelpers.createTestConfiguration(FakeBoxConnector.class, configuration);
+        impl.getConnectorPoolConfiguration().setMaxObjects(THREADS);
+        impl.getConnectorPoolConfiguration().setMaxIdle(THREADS);
+        impl.getResultsHandlerConfiguration().setEnableAttributesToGetSearchResultsHandler(false);
+        impl.getResultsHandlerConfiguration().setEnableNormalizingResultsHandler(false);
+        impl.getResultsHandlerConfiguration().setEnableFilteredResultsHandler(false);
+        return factory.newInstance(impl);
+    }
+
+    private static void report(String name, long count, long startNanos, FakeBoxServer server) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        LOGGER.info("[load] {0}: {1} objects in {2}s ({3}/s), {4} requests, {5} throttled",
+                name, count, String.format("%.2f", seconds), String.format("%.1f", count / seconds),
+                server.getRequestCount(), server.getThrottledCount());
+    }
+
+    @Test
+    void reconcileAllUsers() throws IOException {
+        // Given
+        FakeBoxServer server = startServer(USERS, 0);
+        BoxConfiguration configuration = new BoxConfiguration();
+        configuration.setSearchParallelism(THREADS);
+        ConnectorFacade connector = newFacade(configuration);
+
+        // When
+        long start = System.nanoTime();
+        AtomicLong count = new AtomicLong();
+        connector.search(OBJECT_CLASS_USER, null, o -> {
+            count.incrementAndGet();
+            return true;
+        }, new OperationOptionsBuilder().build());
+
+        // Then
+        report("reconcileAllUsers", count.get(), start, server);
+        assertEquals(USERS, count.get());
+        // The full scan follows the markers even with searchParallelism
+        assertTrue(server.getUserListRequestCount() > 0);
+        assertEquals(server.getUserListRequestCount(), server.getMarkerUserListRequestCount());
+    }
+
+    @Test
+    void reconcileAllUsersWithMembershipLookups() throws IOException {
+        // Given
+        int users = Math.min(USERS, 2000);
+        FakeBoxServer server = startServer(users, 0);
+        BoxConfiguration configuration = new BoxConfiguration();
+        // The memberships of the users in each page are fetched in parallel
+        configuration.setSearchParallelism(THREADS);
+        ConnectorFacade connector = newFacade(configuration);
+
+        // When
+        long start = System.nanoTime();
+        AtomicLong memberships = new AtomicLong();
+        AtomicLong count = new AtomicLong();
+        connector.search(OBJECT_CLASS_USER, null, o -> {
+            count.incrementAndGet();
+            memberships.addAndGet(o.getAttributeByName(UsersHandler.ATTR_GROUP_MEMBERSHIP).getValue().size());
+            return true;
+        }, new OperationOptionsBuilder()
+                .setAttributesToGet(UsersHandler.ATTR_GROUP_MEMBERSHIP)
+                .build());
+
+        // Then
+        report("reconcileAllUsersWithMembershipLookups", count.get(), start, server);
+        assertEquals(users, count.get());
+        assertEquals((long) users * Math.min(MEMBERSHIPS_PER_USER, GROUPS), memberships.get());
+        assertEquals(server.getUserListRequestCount(), server.getMarkerUserListRequestCount());
+    }
+
+    @Test
+    void reconcileAllUsersWithMemberships() throws IOException {
+        // Given
+        FakeBoxServer server = startServer(USERS, 0);
+        BoxConfiguration configuration = new BoxConfiguration();
+        configuration.setSearchParallelism(THREADS);
+        configuration.setMembershipPrefetch(true);
+        ConnectorFacade connector = newFacade(configuration);
+
+        // When
+        long start = System.nanoTime();
+        AtomicLong memberships = new AtomicLong();
+        AtomicLong count = new AtomicLong();
+        connector.search(OBJECT_CLASS_USER, null, o -> {
+            count.incrementAndGet();
+            memberships.addAndGet(o.getAttributeByName(UsersHandler.ATTR_GROUP_MEMBERSHIP).getValue().size());
+            return true;
+        }, new OperationOptionsBuilder()
+                .setAttributesToGet(UsersHandler.ATTR_GROUP_MEMBERSHIP)
+                .build());
+
+        // Then
+        report("reconcileAllUsersWithMemberships", count.get(), start, server);
+        assertEquals(USERS, count.get());
+        assertEquals((long) USERS * Math.min(MEMBERSHIPS_PER_USER, GROUPS), memberships.get());
+    }
+
+    @Test
+    void reconcileAllGroupsWithMembers() throws IOException {
+        // Given
+        FakeBoxServer server = startServer(USERS, 0);
+        BoxConfiguration configuration = new BoxConfiguration();
+        configuration.setSearchParallelism(THREADS);
+        ConnectorFacade connector = newFacade(configuration);
+
+        // When
+        long start = System.nanoTime();
+        AtomicLong members = new AtomicLong();
+        AtomicLong count = new AtomicLong();
+        connector.search(OBJECT_CLASS_GROUP, null, o -> {
+            count.incrementAndGet();
+            members.addAndGet(o.getAttributeByName(GroupsHandler.ATTR_MEMBER).getValue().size());
+            return true;
+        }, new OperationOptionsBuilder()
+                .setAttributesToGet(GroupsHandler.ATTR_MEMBER)
+                .build());
+
+        // Then
+        report("reconcileAllGroupsWithMembers", count.get(), start, server);
+        assertEquals(GROUPS, count.get());
+        assertEquals((long) USERS * Math.min(MEMBERSHIPS_PER_USER, GROUPS), members.get());
+    }
+
+    @Test
+    void provisionUsersConcurrently() throws Exception {
+        // Given
+        FakeBoxServer server = startServer(0, 0);
+        ConnectorFacade connector = newFacade(new BoxConfiguration());
+        int users = Math.min(USERS, 1000);
+
+        // When
+        long start = System.nanoTime();
+        provision(connector, users);
+
+        // Then
+        report("provisionUsersConcurrently", users, start, server);
+        assertEquals(0, server.getDataset().getUserCount());
+        assertEquals(0, server.getThrottledCount());
+    }
+
+    @Test
+    void provisionUsersConcurrently_throttled() throws Exception {
+        // Given
+        FakeBoxServer server = startServer(0, 50);
+        BoxConfiguration configuration = new BoxConfiguration();
+        configuration.setMaxRetryAttempts(10);
+        ConnectorFacade connector = newFacade(configuration);
+        int users = Math.min(USERS, 200);
+
+        // When
+        long start = System.nanoTime();
+        provision(connector, users);
+
+        // Then
+        report("provisionUsersConcurrently_throttled", users, start, server);
+        assertEquals(0, server.getDataset().getUserCount());
+        assertTrue(server.getThrottledCount() > 0);
+    }
+
+    /**
+     * Create a user in a group, update and delete it per task with the concurrent callers.
+     */
+    private void provision(ConnectorFacade connector, int users) throws Exception {
+        Uid group = connector.create(OBJECT_CLASS_GROUP,
+                Collections.singleton(AttributeBuilder.build(Name.NAME, "load-" + UUID.randomUUID())),
+                new OperationOptionsBuilder().build());
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < users; i++) {
+                String login = "load" + i + "@example.com";
+                futures.add(executor.submit(() -> {
+                    Set<Attribute> attrs = new HashSet<>();
+                    attrs.add(AttributeBuilder.build(Name.NAME, login));
+                    attrs.add(AttributeBuilder.build(UsersHandler.ATTR_NAME, "Load User"));
+                    attrs.add(AttributeBuilder.build(UsersHandler.ATTR_GROUP_MEMBERSHIP, group.getUidValue()));
+                    Uid uid = connector.create(OBJECT_CLASS_USER, attrs, new OperationOptionsBuilder().build());
+
+                    connector.updateDelta(OBJECT_CLASS_USER, uid,
+                            Collections.singleton(AttributeDeltaBuilder.build(UsersHandler.ATTR_JOB_TITLE, "Updated")),
+                            new OperationOptionsBuilder().build());
+
+                    connector.delete(OBJECT_CLASS_USER, uid, new OperationOptionsBuilder().build());
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
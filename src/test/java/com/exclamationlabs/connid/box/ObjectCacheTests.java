@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import org.identityconnectors.framework.common.objects.ConnectorObject;
+import org.identityconnectors.framework.common.objects.ConnectorObjectBuilder;
+import org.identityconnectors.framework.common.objects.ObjectClass;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.exclamationlabs.connid.box.GroupsHandler.OBJECT_CLASS_GROUP;
+import static com.exclamationlabs.connid.box.UsersHandler.OBJECT_CLASS_USER;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Hiroyuki Wada
+ */
+class ObjectCacheTests {
+
+    private static final Set<String> MINI = Collections.singleton("name");
+    private static final Set<String> FULL = new HashSet<>(Arrays.asList("name", "group_membership"));
+
+    private final AtomicLong now = new AtomicLong();
+
+    private static ConnectorObject object(ObjectClass objectClass, String uid) {
+        return new ConnectorObjectBuilder()
+                .setObjectClass(objectClass)
+                .setUid(uid)
+                .setName(uid + "@example.com")
+                .build();
+    }
+
+    @Test
+    void hitUntilExpired() {
+        // Given
+        ObjectCache cache = new ObjectCache(10, TimeUnit.SECONDS.toNanos(30), now::get);
+        ConnectorObject user = object(OBJECT_CLASS_USER, "11446498");
+
+        // When
+        assertNull(cache.get(OBJECT_CLASS_USER, "11446498", MINI, false));
+        cache.put(OBJECT_CLASS_USER, "11446498", MINI, false, user, cache.getGeneration());
+        ConnectorObject hit = cache.get(OBJECT_CLASS_USER, "11446498", MINI, false);
+        ConnectorObject otherProjection = cache.get(OBJECT_CLASS_USER, "11446498", FULL, false);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        ConnectorObject expired = cache.get(OBJECT_CLASS_USER, "11446498", MINI, false);
+
+        // Then
+        assertSame(user, hit);
+        assertNull(otherProjection);
+        assertNull(expired);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(0.25, cache.getHitRate());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    void evictLeastRecentlyUsed() {
+        // Given
+        ObjectCache cache = new ObjectCache(2, TimeUnit.SECONDS.toNanos(30), now::get);
+
+        // When
+        cache.put(OBJECT_CLASS_USER, "1", MINI, false, object(OBJECT_CLASS_USER, "1"), cache.getGeneration());
+        cache.put(OBJECT_CLASS_USER, "2", MINI, false, object(OBJECT_CLASS_USER, "2"), cache.getGeneration());
+        cache.get(OBJECT_CLASS_USER, "1", MINI, false);
+        cache.put(OBJECT_CLASS_USER, "3", MINI, false, object(OBJECT_CLASS_USER, "3"), cache.getGeneration());
+
+        // Then
+        assertEquals(2, cache.getSize());
+        assertEquals(1, cache.getEvictionCount());
+        assertNotNull(cache.get(OBJECT_CLASS_USER, "1", MINI, false));
+        assertNull(cache.get(OBJECT_CLASS_USER, "2", MINI, false));
+        assertNotNull(cache.get(OBJECT_CLASS_USER, "3", MINI, false));
+    }
+
+    @Test
+    void invalidateAllProjections() {
+        // Given
+        ObjectCache cache = new ObjectCache(10, TimeUnit.SECONDS.toNanos(30), now::get);
+        cache.put(OBJECT_CLASS_USER, "1", MINI, false, object(OBJECT_CLASS_USER, "1"), cache.getGeneration());
+        cache.put(OBJECT_CLASS_USER, "1", FULL, false, object(OBJECT_CLASS_USER, "1"), cache.getGeneration());
+        cache.put(OBJECT_CLASS_USER, "2", MINI, false, object(OBJECT_CLASS_USER, "2"), cache.getGeneration());
+        cache.put(OBJECT_CLASS_GROUP, "1", MINI, false, object(OBJECT_CLASS_GROUP, "1"), cache.getGeneration());
+        cache.put(OBJECT_CLASS_GROUP, "2", MINI, false, object(OBJECT_CLASS_GROUP, "2"), cache.getGeneration());
+
+        // When
+        cache.invalidate(OBJECT_CLASS_USER, "1");
+        cache.invalidateAll(OBJECT_CLASS_GROUP);
+
+        // Then
+        assertEquals(1, cache.getSize());
+        assertEquals(2, cache.getInvalidationCount());
+        assertNull(cache.get(OBJECT_CLASS_USER, "1", MINI, false));
+        assertNull(cache.get(OBJECT_CLASS_USER, "1", FULL, false));
+        assertNotNull(cache.get(OBJECT_CLASS_USER, "2", MINI, false));
+        assertNull(cache.get(OBJECT_CLASS_GROUP, "1", MINI, false));
+    }
+
+    @Test
+    void disabled() {
+        // When
+        ObjectCache.DISABLED.put(OBJECT_CLASS_USER, "1", MINI, false, object(OBJECT_CLASS_USER, "1"), ObjectCache.DISABLED.getGeneration());
+
+        // Then
+        assertFalse(ObjectCache.DISABLED.isEnabled());
+        assertNull(ObjectCache.DISABLED.get(OBJECT_CLASS_USER, "1", MINI, false));
+        assertEquals(0, ObjectCache.DISABLED.getMissCount());
+    }
+
+    @Test
+    void dropObjectInvalidatedWhileFetching() {
+        // Given
+        ObjectCache cache = new ObjectCache(10, TimeUnit.SECONDS.toNanos(30), now::get);
+        long userGeneration = cache.getGeneration();
+        long groupGeneration = cache.getGeneration();
+        long otherGeneration = cache.getGeneration();
+
+        // When
+        // Changed by this connector while fetching the objects
+        cache.invalidate(OBJECT_CLASS_USER, "1");
+        cache.invalidateAll(OBJECT_CLASS_GROUP);
+        cache.put(OBJECT_CLASS_USER, "1", MINI, false, object(OBJECT_CLASS_USER, "1"), userGeneration);
+        cache.put(OBJECT_CLASS_GROUP, "1", MINI, false, object(OBJECT_CLASS_GROUP, "1"), groupGeneration);
+        cache.put(OBJECT_CLASS_USER, "2", MINI, false, object(OBJECT_CLASS_USER, "2"), otherGeneration);
+        cache.put(OBJECT_CLASS_USER, "1", FULL, false, object(OBJECT_CLASS_USER, "1"), cache.getGeneration());
+
+        // Then
+        assertEquals(2, cache.getSize());
+        assertNull(cache.get(OBJECT_CLASS_USER, "1", MINI, false));
+        assertNull(cache.get(OBJECT_CLASS_GROUP, "1", MINI, false));
+        assertNotNull(cache.get(OBJECT_CLASS_USER, "2", MINI, false));
+        assertNotNull(cache.get(OBJECT_CLASS_USER, "1", FULL, false));
+    }
+
+    @Test
+    void dropObjectFetchedBeforePrunedInvalidation() {
+        // Given
+        ObjectCache cache = new ObjectCache(10, TimeUnit.SECONDS.toNanos(30), now::get);
+        long generation = cache.getGeneration();
+
+        // When
+        cache.invalidate(OBJECT_CLASS_USER, "1");
+        // Prune the invalidation record of the user
+        for (int i = 0; i < 2000; i++) {
+            cache.invalidate(OBJECT_CLASS_GROUP, String.valueOf(i));
+        }
+        cache.put(OBJECT_CLASS_USER, "1", MINI, false, object(OBJECT_CLASS_USER, "1"), generation);
+
+        // Then
+        assertNull(cache.get(OBJECT_CLASS_USER, "1", MINI, false));
+    }
+
+    @Test
+    void reconfigureOnConfigurationChange() {
+        // Given
+        String key = UUID.randomUUID().toString();
+        ObjectCache cache = ObjectCache.getInstance(key, 3, 30000);
+        for (int i = 0; i < 3; i++) {
+            cache.put(OBJECT_CLASS_USER, String.valueOf(i), MINI, false, object(OBJECT_CLASS_USER, String.valueOf(i)),
+                    cache.getGeneration());
+        }
+
+        // When
+        ObjectCache reconfigured = ObjectCache.getInstance(key, 2, 60000);
+
+        // Then
+        assertSame(cache, reconfigured);
+        assertEquals(2, reconfigured.getMaxSize());
+        assertEquals(60000, reconfigured.getTtlInMilliseconds());
+        assertEquals(2, reconfigured.getSize());
+        // The least recently used one is evicted
+        assertNull(reconfigured.get(OBJECT_CLASS_USER, "0", MINI, false));
+        assertNotNull(reconfigured.get(OBJECT_CLASS_USER, "2", MINI, false));
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Hiroyuki Wada
+ */
+class PagePrefetcherTests {
+
+    private static PagePrefetcher.Page<String> page(String cursor, int lastPage) {
+        int n = Integer.parseInt(cursor);
+        return new PagePrefetcher.Page<>(Collections.singletonList("entry-" + n), n < lastPage ? String.valueOf(n + 1) : null);
+    }
+
+    @Test
+    void fetchAllInOrder() {
+        // Given
+        PagePrefetcher prefetcher = new PagePrefetcher("test", 1);
+        List<String> entries = new ArrayList<>();
+
+        // When
+        boolean completed = prefetcher.fetchAll("0", cursor -> page(cursor, 2), page -> entries.addAll(page.getEntries()));
+
+        // Then
+        assertTrue(completed);
+        assertEquals(3, entries.size());
+        assertEquals("entry-0", entries.get(0));
+        assertEquals("entry-1", entries.get(1));
+        assertEquals("entry-2", entries.get(2));
+    }
+
+    @Test
+    void fetchNextPageWhileHandling() throws InterruptedException {
+        // Given
+        PagePrefetcher prefetcher = new PagePrefetcher("test", 1);
+        CountDownLatch secondRequested = new CountDownLatch(1);
+
+        // When
+        boolean completed = prefetcher.fetchAll("0", cursor -> {
+            if (cursor.equals("1")) {
+                secondRequested.countDown();
+            }
+            return page(cursor, 1);
+        }, page -> {
+            if (page.getEntries().get(0).equals("entry-0")) {
+                // The second page is requested before the first page is handled
+                try {
+                    assertTrue(secondRequested.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    fail(e);
+                }
+            }
+            return true;
+        });
+
+        // Then
+        assertTrue(completed);
+    }
+
+    @Test
+    void stopFetchingWhenHandlerReturnsFalse() throws InterruptedException {
+        // Given
+        PagePrefetcher prefetcher = new PagePrefetcher("test", 1);
+        List<String> loaded = new CopyOnWriteArrayList<>();
+        CountDownLatch secondRequested = new CountDownLatch(1);
+        CountDownLatch secondDone = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // When
+        boolean completed = prefetcher.fetchAll("0", cursor -> {
+            loaded.add(cursor);
+            if (cursor.equals("1")) {
+                secondRequested.countDown();
+                try {
+                    // Interrupted by the consumer, the page is discarded anyway
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    secondDone.countDown();
+                }
+            }
+            return page(cursor, 10);
+        }, page -> {
+            try {
+                assertTrue(secondRequested.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                fail(e);
+            }
+            return false;
+        });
+
+        // Then
+        assertFalse(completed);
+        assertTrue(secondDone.await(10, TimeUnit.SECONDS));
+        assertEquals(2, loaded.size());
+        assertEquals("0", loaded.get(0));
+        assertEquals("1", loaded.get(1));
+    }
+
+    @Test
+    void boundRequestsAfterHandlerStops() throws InterruptedException {
+        // Given
+        int depth = 2;
+        PagePrefetcher prefetcher = new PagePrefetcher("test", depth);
+        AtomicInteger requests = new AtomicInteger();
+        CountDownLatch prefetched = new CountDownLatch(depth + 1);
+
+        // When
+        boolean completed = prefetcher.fetchAll("0", cursor -> {
+            requests.incrementAndGet();
+            prefetched.countDown();
+            return page(cursor, 100);
+        }, page -> {
+            try {
+                // Give the producer the time to run ahead while the first page is being handled
+                assertTrue(prefetched.await(10, TimeUnit.SECONDS));
+                TimeUnit.MILLISECONDS.sleep(200);
+            } catch (InterruptedException e) {
+                fail(e);
+            }
+            return false;
+        });
+        TimeUnit.MILLISECONDS.sleep(200);
+
+        // Then
+        // The handled page plus at most "depth" pages queued or in flight
+        assertFalse(completed);
+        assertEquals(depth + 1, requests.get());
+    }
+
+    @Test
+    void propagateFailure() {
+        // Given
+        PagePrefetcher prefetcher = new PagePrefetcher("test", 1);
+        List<String> entries = new ArrayList<>();
+
+        // When
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> prefetcher.fetchAll("0", cursor -> {
+            if (cursor.equals("1")) {
+                throw new IllegalStateException("Failed to fetch");
+            }
+            return page(cursor, 2);
+        }, page -> entries.addAll(page.getEntries())));
+
+        // Then
+        assertEquals("Failed to fetch", e.getMessage());
+        assertEquals(1, entries.size());
+    }
+
+    @Test
+    void fetchSequentiallyWithoutPrefetch() {
+        // Given
+        PagePrefetcher prefetcher = new PagePrefetcher("test", 0);
+        List<String> loaded = new ArrayList<>();
+
+        // When
+        boolean completed = prefetcher.fetchAll("0", cursor -> {
+            loaded.add(cursor);
+            return page(cursor, 10);
+        }, page -> false);
+
+        // Then
+        assertFalse(completed);
+        assertEquals(1, loaded.size());
+    }
+}
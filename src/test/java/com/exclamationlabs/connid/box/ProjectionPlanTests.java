@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import org.identityconnectors.framework.common.objects.ConnectorObject;
+import org.identityconnectors.framework.common.objects.ConnectorObjectBuilder;
+import org.identityconnectors.framework.common.objects.ObjectClass;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Hiroyuki Wada
+ */
+class ProjectionPlanTests {
+
+    private final ProjectionPlan.Catalog<String> catalog = new ProjectionPlan.Catalog<String>()
+            .add("upper", (s, builder) -> builder.addAttribute("upper", s.toUpperCase()))
+            .add("length", (s, builder) -> builder.addAttribute("length", s.length()))
+            .add("reversed", (s, builder) -> builder.addAttribute("reversed", new StringBuilder(s).reverse().toString()));
+
+    @Test
+    void applySelectedExtractors() {
+        // Given
+        Set<String> attributesToGet = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("upper", "reversed", "unknown")));
+
+        // When
+        ProjectionPlan<String> plan = catalog.compile(attributesToGet);
+        ConnectorObjectBuilder builder = new ConnectorObjectBuilder()
+                .setObjectClass(ObjectClass.ACCOUNT)
+                .setUid("1")
+                .setName("foo");
+        plan.apply("foo", builder);
+        ConnectorObject object = builder.build();
+
+        // Then
+        assertEquals(2, plan.size());
+        assertEquals(attributesToGet, plan.getAttributesToGet());
+        assertEquals("FOO", object.getAttributeByName("upper").getValue().get(0));
+        assertEquals("oof", object.getAttributeByName("reversed").getValue().get(0));
+        assertNull(object.getAttributeByName("length"));
+    }
+
+    @Test
+    void cachePerShape() {
+        // Given
+        Set<String> attributesToGet = new HashSet<>(Collections.singletonList("length"));
+
+        // When
+        ProjectionPlan<String> plan1 = catalog.compile(attributesToGet);
+        ProjectionPlan<String> plan2 = catalog.compile(new HashSet<>(attributesToGet));
+
+        // Then
+        assertSame(plan1, plan2);
+    }
+}
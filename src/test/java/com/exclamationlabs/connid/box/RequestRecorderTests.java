@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Hiroyuki Wada
+ */
+class RequestRecorderTests {
+
+    @Test
+    void aggregatePerEndpoint() {
+        // Given
+        RequestRecorder recorder = new RequestRecorder(8);
+
+        // When
+        recorder.record("GET", "/2.0/users/11446498", null, 200, TimeUnit.MILLISECONDS.toNanos(10));
+        recorder.record("GET", "/2.0/users/12345678", null, 404, TimeUnit.MILLISECONDS.toNanos(30));
+        recorder.record("GET", "/2.0/groups/11446498/memberships", "offset=1000", 200, TimeUnit.MILLISECONDS.toNanos(50));
+
+        // Then
+        Map<String, String> stats = recorder.getEndpointStats();
+        assertEquals(2, stats.size());
+        assertEquals("count=2 errors=1 mean=20ms max=30ms", stats.get("GET /2.0/users/{id}"));
+        assertEquals("count=1 errors=0 mean=50ms max=50ms", stats.get("GET /2.0/groups/{id}/memberships"));
+        assertTrue(recorder.dump().contains("GET /2.0/groups/{id}/memberships [offset=1000] status=200 50ms"));
+    }
+
+    @Test
+    void keepOnlyRecentRequests() {
+        // Given
+        RequestRecorder recorder = new RequestRecorder(4);
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            recorder.record("GET", "/2.0/users", "offset=" + i, 200, 0);
+        }
+
+        // Then
+        assertEquals(10, recorder.getRecordedCount());
+        String dump = recorder.dump();
+        assertFalse(dump.contains("[offset=5]"));
+        for (int i = 6; i < 10; i++) {
+            assertTrue(dump.contains("[offset=" + i + "]"));
+        }
+        assertTrue(dump.indexOf("[offset=6]") < dump.indexOf("[offset=9]"));
+    }
+
+    @Test
+    void resizeOnConfigurationChange() {
+        // Given
+        String key = "enterprise-" + UUID.randomUUID() + "/client-1";
+        RequestRecorder recorder = RequestRecorder.getInstance(key, 4);
+        for (int i = 0; i < 10; i++) {
+            recorder.record("GET", "/2.0/users", "offset=" + i, 200, 0);
+        }
+
+        // When
+        RequestRecorder resized = RequestRecorder.getInstance(key, 2);
+
+        // Then
+        // The same recorder keeps the most recent requests and the stats
+        assertSame(recorder, resized);
+        assertEquals(2, resized.getCapacity());
+        String dump = resized.dump();
+        assertFalse(dump.contains("[offset=7]"));
+        assertTrue(dump.contains("[offset=8]"));
+        assertTrue(dump.contains("[offset=9]"));
+        assertEquals("count=10 errors=0 mean=0ms max=0ms", resized.getEndpointStats().get("GET /2.0/users"));
+    }
+}
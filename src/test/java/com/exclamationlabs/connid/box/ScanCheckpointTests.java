@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Hiroyuki Wada
+ */
+class ScanCheckpointTests {
+
+    @Test
+    void saveAndLoad(@TempDir Path tempDir) {
+        // Given
+        Path file = tempDir.resolve("users.checkpoint");
+        ScanCheckpoint checkpoint = ScanCheckpoint.acquire(file, "user:id,login");
+        checkpoint.save("marker-2", 1, 1000);
+        checkpoint.release();
+
+        // When
+        ScanCheckpoint resumed = ScanCheckpoint.acquire(file, "user:id,login");
+        String marker = resumed.load();
+        resumed.release();
+
+        // Then
+        assertEquals("marker-2", marker);
+        assertEquals(1, resumed.getPages());
+        assertEquals(1000, resumed.getObjects());
+    }
+
+    @Test
+    void ignoreOtherScope(@TempDir Path tempDir) {
+        // Given
+        Path file = tempDir.resolve("users.checkpoint");
+        ScanCheckpoint checkpoint = ScanCheckpoint.acquire(file, "user:id,login");
+        checkpoint.save("marker-2", 1, 1000);
+        checkpoint.release();
+
+        // When
+        ScanCheckpoint other = ScanCheckpoint.acquire(file, "user:id,login,name");
+        String marker = other.load();
+        other.release();
+
+        // Then
+        assertNull(marker);
+    }
+
+    @Test
+    void ownedByOneScan(@TempDir Path tempDir) {
+        // Given
+        Path file = tempDir.resolve("users.checkpoint");
+        ScanCheckpoint first = ScanCheckpoint.acquire(file, "user:id,login");
+
+        // When
+        ScanCheckpoint second = ScanCheckpoint.acquire(file.getParent().resolve("./users.checkpoint"), "user:id,login");
+        first.save("marker-2", 1, 1000);
+        first.clear();
+        first.release();
+        ScanCheckpoint third = ScanCheckpoint.acquire(file, "user:id,login");
+
+        // Then
+        assertNotNull(first);
+        assertNull(second);
+        assertNotNull(third);
+        assertFalse(Files.exists(file));
+        third.release();
+    }
+}
@@ -8,6 +8,7 @@
 package com.exclamationlabs.connid.box;
 
 import com.exclamationlabs.connid.box.testutil.AbstractTests;
+import com.exclamationlabs.connid.box.testutil.LocalBoxConnector;
 import org.identityconnectors.framework.common.objects.ObjectClassInfo;
 import org.identityconnectors.framework.common.objects.Schema;
 import org.junit.jupiter.api.Test;
@@ -42,4 +43,29 @@ class SchemaTests extends AbstractTests {
         assertTrue(user.isPresent());
         assertTrue(group.isPresent());
     }
+
+    @Test
+    void schemaCached() {
+        // Given
+        LocalBoxConnector connector1 = new LocalBoxConnector();
+        connector1.init(newConfig());
+        LocalBoxConnector connector2 = new LocalBoxConnector();
+        connector2.init(newConfig());
+
+        BoxConfiguration otherConfig = newConfig();
+        otherConfig.setConfigFilePath("/path/to/other/config.json");
+        LocalBoxConnector connector3 = new LocalBoxConnector();
+        connector3.init(otherConfig);
+
+        // When
+        Schema schema1 = connector1.schema();
+        Schema schema2 = connector2.schema();
+        Schema schema3 = connector3.schema();
+
+        // Then
+        assertSame(schema1, connector1.schema());
+        assertSame(schema1, schema2);
+        assertNotSame(schema1, schema3);
+        assertEquals(schema1, schema3);
+    }
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import com.box.sdk.BoxAPIConnection;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Hiroyuki Wada
+ */
+class SharedAccessTokenCacheTests {
+
+    @Test
+    void authenticateOnce() {
+        // Given
+        String key = "enterprise-1/client-1";
+        SharedAccessTokenCache cache = SharedAccessTokenCache.getInstance();
+        cache.invalidate(key);
+
+        AtomicInteger authCount = new AtomicInteger();
+        BoxAPIConnection api1 = new BoxAPIConnection("dummy");
+        BoxAPIConnection api2 = new BoxAPIConnection("dummy");
+
+        // When
+        cache.authenticate(key, api1, () -> authenticate(api1, authCount));
+        cache.authenticate(key, api2, () -> authenticate(api2, authCount));
+
+        // Then
+        assertEquals(1, authCount.get());
+        assertEquals("token-1", api1.getAccessToken());
+        assertEquals("token-1", api2.getAccessToken());
+        assertEquals(api1.getLastRefresh(), api2.getLastRefresh());
+        assertEquals(api1.getExpires(), api2.getExpires());
+    }
+
+    @Test
+    void authenticateAgainAfterInvalidation() {
+        // Given
+        String key = "enterprise-2/client-2";
+        SharedAccessTokenCache cache = SharedAccessTokenCache.getInstance();
+        cache.invalidate(key);
+
+        AtomicInteger authCount = new AtomicInteger();
+        BoxAPIConnection api1 = new BoxAPIConnection("dummy");
+        BoxAPIConnection api2 = new BoxAPIConnection("dummy");
+
+        // When
+        cache.authenticate(key, api1, () -> authenticate(api1, authCount));
+        cache.invalidate(key);
+        cache.authenticate(key, api2, () -> authenticate(api2, authCount));
+
+        // Then
+        assertEquals(2, authCount.get());
+        assertEquals("token-1", api1.getAccessToken());
+        assertEquals("token-2", api2.getAccessToken());
+    }
+
+    @Test
+    void notRestoreExpiringToken() {
+        // Given
+        String key = "enterprise-3/client-3";
+        SharedAccessTokenCache cache = SharedAccessTokenCache.getInstance();
+        cache.invalidate(key);
+
+        AtomicInteger authCount = new AtomicInteger();
+        BoxAPIConnection api1 = new BoxAPIConnection("dummy");
+        BoxAPIConnection api2 = new BoxAPIConnection("dummy");
+
+        // When
+        cache.authenticate(key, api1, () -> {
+            authenticate(api1, authCount);
+            // Expires within the refresh margin
+            api1.setExpires(60 * 1000);
+        });
+        cache.authenticate(key, api2, () -> authenticate(api2, authCount));
+
+        // Then
+        assertEquals(2, authCount.get());
+        assertEquals("token-2", api2.getAccessToken());
+    }
+
+    @Test
+    void invalidateRejectedToken() {
+        // Given
+        String key = "enterprise-4/client-4";
+        SharedAccessTokenCache cache = SharedAccessTokenCache.getInstance();
+        cache.invalidate(key);
+
+        AtomicInteger authCount = new AtomicInteger();
+        BoxAPIConnection api1 = new BoxAPIConnection("dummy");
+        BoxAPIConnection api2 = new BoxAPIConnection("dummy");
+        cache.authenticate(key, api1, () -> authenticate(api1, authCount));
+
+        // When
+        cache.invalidate(key, api1);
+        cache.authenticate(key, api2, () -> authenticate(api2, authCount));
+
+        // Then
+        // The connection re-authenticates before the next request
+        assertTrue(api1.needsRefresh());
+        assertEquals(2, authCount.get());
+        assertEquals("token-2", api2.getAccessToken());
+    }
+
+    @Test
+    void keepTokenReplacedByAnotherConnection() {
+        // Given
+        String key = "enterprise-5/client-5";
+        SharedAccessTokenCache cache = SharedAccessTokenCache.getInstance();
+        cache.invalidate(key);
+
+        AtomicInteger authCount = new AtomicInteger();
+        BoxAPIConnection api1 = new BoxAPIConnection("dummy");
+        BoxAPIConnection api2 = new BoxAPIConnection("dummy");
+        cache.authenticate(key, api1, () -> authenticate(api1, authCount));
+
+        // When
+        // Rejected the token which was already replaced in the cache
+        BoxAPIConnection stale = new BoxAPIConnection("stale-token");
+        cache.invalidate(key, stale);
+        cache.authenticate(key, api2, () -> authenticate(api2, authCount));
+
+        // Then
+        assertTrue(stale.needsRefresh());
+        assertEquals(1, authCount.get());
+        assertEquals("token-1", api2.getAccessToken());
+    }
+
+    private void authenticate(BoxAPIConnection api, AtomicInteger authCount) {
+        api.setAccessToken("token-" + authCount.incrementAndGet());
+        api.setLastRefresh(System.currentTimeMillis());
+        api.setExpires(60 * 60 * 1000);
+    }
+}
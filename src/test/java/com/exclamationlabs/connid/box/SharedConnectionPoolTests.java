@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Hiroyuki Wada
+ */
+class SharedConnectionPoolTests {
+
+    @Test
+    void shareSamePoolForSameAppAndSettings() {
+        // When
+        SharedConnectionPool pool1 = SharedConnectionPool.getInstance("enterprise-1/client-1", 5, 300000);
+        SharedConnectionPool pool2 = SharedConnectionPool.getInstance("enterprise-1/client-1", 5, 300000);
+        SharedConnectionPool pool3 = SharedConnectionPool.getInstance("enterprise-1/client-1", 10, 300000);
+        SharedConnectionPool pool4 = SharedConnectionPool.getInstance("enterprise-2/client-2", 5, 300000);
+
+        // Then
+        assertSame(pool1, pool2);
+        assertSame(pool1.getConnectionPool(), pool2.getConnectionPool());
+        assertNotSame(pool1, pool3);
+        assertNotSame(pool1, pool4);
+    }
+
+    @Test
+    void prewarmConcurrentlyOnce() {
+        // Given
+        SharedConnectionPool pool = new SharedConnectionPool(5, 300000);
+        CountDownLatch allStarted = new CountDownLatch(3);
+        AtomicInteger requests = new AtomicInteger();
+
+        // When
+        Runnable request = () -> {
+            requests.incrementAndGet();
+            allStarted.countDown();
+            try {
+                // Each request must be in flight at the same time to open its own connection
+                assertTrue(allStarted.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        pool.prewarm("test", 3, request, 10000);
+        pool.prewarm("test", 3, request, 10000);
+
+        // Then
+        assertEquals(3, requests.get());
+        assertEquals(0, allStarted.getCount());
+    }
+
+    @Test
+    void prewarmIgnoresFailure() {
+        // Given
+        SharedConnectionPool pool = new SharedConnectionPool(5, 300000);
+
+        // When
+        pool.prewarm("test", 2, () -> {
+            throw new RuntimeException("Connection refused");
+        }, 10000);
+
+        // Then no exception
+    }
+}
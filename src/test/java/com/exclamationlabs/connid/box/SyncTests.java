@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) Exclamation Labs 2019. - All Rights Reserved
+ * Unauthorized copying of this file, via any medium is strictly prohibited
+ * Proprietary and confidential
+ *
+ */
+
+package com.exclamationlabs.connid.box;
+
+import com.box.sdk.BoxAPIRequest;
+import com.exclamationlabs.connid.box.testutil.AbstractTests;
+import com.exclamationlabs.connid.box.testutil.TestUtils;
+import org.identityconnectors.framework.common.objects.*;
+import org.identityconnectors.framework.common.objects.filter.FilterBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.exclamationlabs.connid.box.UsersHandler.OBJECT_CLASS_USER;
+import static com.exclamationlabs.connid.box.testutil.TestUtils.ok;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Hiroyuki Wada
+ */
+class SyncTests extends AbstractTests {
+
+    @Test
+    void getLatestSyncToken() {
+        // Given
+        List<BoxAPIRequest> requests = new ArrayList<>();
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("events-now.json");
+        });
+
+        // When
+        SyncToken token = connector.getLatestSyncToken(OBJECT_CLASS_USER);
+
+        // Then
+        assertEquals(1, requests.size());
+        assertEquals("/2.0/events", requests.get(0).getUrl().getPath());
+
+        Map<String, String> query = TestUtils.parseQuery(requests.get(0));
+        assertEquals("admin_logs_streaming", query.get("stream_type"));
+        assertEquals("now", query.get("stream_position"));
+
+        assertEquals("1152922976252290886", token.getValue());
+    }
+
+    @Test
+    void syncUser() {
+        // Given
+        List<BoxAPIRequest> requests = new ArrayList<>();
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("events-user-1.json");
+        });
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("user-get.json");
+        });
+        mockAPI.push(req -> {
+            fail("Shouldn't be called");
+            return null;
+        });
+
+        List<SyncDelta> deltas = new ArrayList<>();
+        SyncResultsHandler handler = delta -> {
+            deltas.add(delta);
+            return true;
+        };
+
+        // When
+        SyncToken latestToken = connector.sync(OBJECT_CLASS_USER,
+                new SyncToken("1152922976252290886"),
+                handler,
+                new OperationOptionsBuilder().build());
+
+        // Then
+        assertEquals(2, requests.size());
+        assertEquals("/2.0/events", requests.get(0).getUrl().getPath());
+
+        Map<String, String> query = TestUtils.parseQuery(requests.get(0));
+        assertEquals("admin_logs_streaming", query.get("stream_type"));
+        assertEquals("1152922976252290886", query.get("stream_position"));
+        assertNotNull(query.get("event_type"));
+
+        assertEquals("/2.0/users/11446498", requests.get(1).getUrl().getPath());
+
+        assertEquals(3, deltas.size());
+
+        assertEquals(SyncDeltaType.CREATE, deltas.get(0).getDeltaType());
+        assertEquals(OBJECT_CLASS_USER, deltas.get(0).getObjectClass());
+        assertEquals("11446498", deltas.get(0).getUid().getUidValue());
+        assertEquals("ceo@example.com", deltas.get(0).getObject().getName().getNameValue());
+        assertEquals("1152922976252290886", deltas.get(0).getToken().getValue());
+
+        assertEquals(SyncDeltaType.UPDATE, deltas.get(1).getDeltaType());
+        assertEquals("11446498", deltas.get(1).getUid().getUidValue());
+        assertEquals("1152922976252290886", deltas.get(1).getToken().getValue());
+
+        assertEquals(SyncDeltaType.DELETE, deltas.get(2).getDeltaType());
+        assertEquals("12345678", deltas.get(2).getUid().getUidValue());
+        assertNull(deltas.get(2).getObject());
+        assertEquals("1152922976252290999", deltas.get(2).getToken().getValue());
+
+        assertEquals("1152922976252290999", latestToken.getValue());
+    }
+
+    @Test
+    void syncUser_withObjectCache() {
+        // Given
+        List<BoxAPIRequest> requests = new ArrayList<>();
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("user-get.json");
+        });
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("events-user-1.json");
+        });
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("user-get.json");
+        });
+
+        BoxConfiguration configuration = newConfig();
+        configuration.setObjectCacheSize(100);
+        updateConfiguration(configuration);
+
+        // The user is cached
+        List<ConnectorObject> users = new ArrayList<>();
+        connector.search(OBJECT_CLASS_USER,
+                FilterBuilder.equalTo(new Uid("11446498")),
+                users::add,
+                new OperationOptionsBuilder().build());
+        assertEquals(1, users.size());
+
+        List<SyncDelta> deltas = new ArrayList<>();
+
+        // When
+        connector.sync(OBJECT_CLASS_USER,
+                new SyncToken("1152922976252290886"),
+                deltas::add,
+                new OperationOptionsBuilder().build());
+
+        // Then
+        // The user changed outside of the connector is fetched again instead of using the cache
+        assertEquals(3, requests.size());
+        assertEquals("/2.0/users/11446498", requests.get(0).getUrl().getPath());
+        assertEquals("/2.0/events", requests.get(1).getUrl().getPath());
+        assertEquals("/2.0/users/11446498", requests.get(2).getUrl().getPath());
+
+        assertEquals(3, deltas.size());
+        assertEquals("11446498", deltas.get(0).getObject().getUid().getUidValue());
+    }
+
+    @Test
+    void syncUser_noChange() {
+        // Given
+        List<BoxAPIRequest> requests = new ArrayList<>();
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("events-now.json");
+        });
+
+        List<SyncDelta> deltas = new ArrayList<>();
+        SyncResultsHandler handler = delta -> {
+            deltas.add(delta);
+            return true;
+        };
+
+        // When
+        SyncToken latestToken = connector.sync(OBJECT_CLASS_USER,
+                new SyncToken("1152922976252290886"),
+                handler,
+                new OperationOptionsBuilder().build());
+
+        // Then
+        assertEquals(1, requests.size());
+        assertEquals(0, deltas.size());
+        assertEquals("1152922976252290886", latestToken.getValue());
+    }
+}
@@ -28,14 +28,15 @@ class TestTests extends AbstractTests {
         AtomicReference<BoxAPIRequest> request = new AtomicReference<>();
         mockAPI.push(req -> {
             request.set(req);
-            return ok("oauth2-token.json");
+            return ok("user-get-minimal.json");
         });
 
         // When
         connector.test();
 
         // Then
+        // The token is validated by an API call instead of a forced refresh
         assertNotNull(request.get());
-        assertEquals("/oauth2/token", request.get().getUrl().getPath());
+        assertEquals("/2.0/users/me", request.get().getUrl().getPath());
     }
 }
@@ -9,13 +9,19 @@ package com.exclamationlabs.connid.box;
 
 import com.box.sdk.BoxAPIRequest;
 import com.exclamationlabs.connid.box.testutil.AbstractTests;
+import com.exclamationlabs.connid.box.testutil.LocalBoxConnector;
 import org.identityconnectors.framework.common.exceptions.AlreadyExistsException;
+import org.identityconnectors.framework.common.exceptions.InvalidAttributeValueException;
 import org.identityconnectors.framework.common.exceptions.RetryableException;
 import org.identityconnectors.framework.common.exceptions.UnknownUidException;
 import org.identityconnectors.framework.common.objects.*;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -114,6 +120,141 @@ class UserCreateTests extends AbstractTests {
         assertNotNull(e);
     }
 
+    @Test
+    void createUser_alreadyExists_keepCachedGroups() {
+        // Given
+        BoxConfiguration configuration = newConfig();
+        configuration.setObjectCacheSize(100);
+        updateConfiguration(configuration);
+
+        mockAPI.push(req -> ok("group-get.json"));
+        // The group is cached
+        connector.getObject(GroupsHandler.OBJECT_CLASS_GROUP, new Uid("11446498"), new OperationOptionsBuilder().build());
+
+        Set<Attribute> attributes = new HashSet<>();
+        attributes.add(new Name("ceo@example.com"));
+        attributes.add(AttributeBuilder.build("name", "Aaron Levie"));
+        attributes.add(AttributeBuilder.build(UsersHandler.ATTR_GROUP_MEMBERSHIP, "11446498"));
+
+        mockAPI.push(req -> {
+            throw conflict();
+        });
+        mockAPI.push(req -> {
+            fail("The group shouldn't be fetched again");
+            return null;
+        });
+
+        // When
+        assertThrows(AlreadyExistsException.class, () -> {
+            connector.create(OBJECT_CLASS_USER, attributes, new OperationOptionsBuilder().build());
+        });
+        ConnectorObject group = connector.getObject(GroupsHandler.OBJECT_CLASS_GROUP, new Uid("11446498"),
+                new OperationOptionsBuilder().build());
+
+        // Then
+        // The failed create didn't change any membership
+        assertEquals("11446498", group.getUid().getUidValue());
+    }
+
+    @Test
+    void createUsers_bulk() {
+        // Given
+        Set<Attribute> attributes1 = new HashSet<>();
+        attributes1.add(new Name("ceo@example.com"));
+        attributes1.add(AttributeBuilder.build("name", "Aaron Levie"));
+        attributes1.add(AttributeBuilder.build("group_membership", "12345678"));
+
+        Set<Attribute> attributes2 = new HashSet<>();
+        attributes2.add(new Name("exists@example.com"));
+        attributes2.add(AttributeBuilder.build("name", "Already Exists"));
+
+        Set<Attribute> attributes3 = new HashSet<>();
+        attributes3.add(new Name("noname@example.com"));
+
+        List<BoxAPIRequest> requests = new ArrayList<>();
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return created("user-create.json");
+        });
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            throw conflict();
+        });
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return created("group-membership-add-user-to-group-1.json");
+        });
+
+        LocalBoxConnector boxConnector = new LocalBoxConnector();
+        boxConnector.init(newConfig());
+
+        // When
+        List<BulkCreateResult> results = boxConnector.createUsers(Arrays.asList(attributes1, attributes2, attributes3));
+
+        // Then
+        // The invalid user doesn't send any request, and the membership is added after creating the users
+        assertEquals(3, requests.size());
+        assertEquals("ceo@example.com", getJsonAttr(requests.get(0), "login"));
+        assertEquals("exists@example.com", getJsonAttr(requests.get(1), "login"));
+        assertEquals("12345678", getJsonObject(requests.get(2), "group").get("id").asString());
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("11446498", results.get(0).getUid().getUidValue());
+        assertNull(results.get(1).getUid());
+        assertTrue(results.get(1).getError() instanceof AlreadyExistsException);
+        assertNull(results.get(2).getUid());
+        assertTrue(results.get(2).getError() instanceof InvalidAttributeValueException);
+    }
+
+    @Test
+    void createUsers_bulk_retryThrottledMembership() {
+        // Given
+        Set<Attribute> attributes = new HashSet<>();
+        attributes.add(new Name("ceo@example.com"));
+        attributes.add(AttributeBuilder.build("name", "Aaron Levie"));
+        attributes.add(AttributeBuilder.build("group_membership", "12345678"));
+
+        // Disable the retry of the Box SDK
+        mockAPI.setMaxRequestAttempts(0);
+
+        List<BoxAPIRequest> requests = new ArrayList<>();
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return created("user-create.json");
+        });
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            throw tooManyRequests();
+        });
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return created("group-membership-add-user-to-group-1.json");
+        });
+
+        LocalBoxConnector boxConnector = new LocalBoxConnector();
+        boxConnector.init(newConfig());
+
+        // When
+        List<BulkCreateResult> results = boxConnector.createUsers(Collections.singletonList(attributes));
+
+        // Then
+        // The throttled membership add is retried instead of being reported as the failure of the user
+        assertEquals(3, requests.size());
+        assertEquals("12345678", getJsonObject(requests.get(1), "group").get("id").asString());
+        assertEquals("12345678", getJsonObject(requests.get(2), "group").get("id").asString());
+
+        assertEquals(1, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertNull(results.get(0).getError());
+    }
+
     @Test
     void createUser_notFound() {
         // Given
@@ -7,9 +7,11 @@
 
 package com.exclamationlabs.connid.box;
 
+import com.box.sdk.BoxAPIConnection;
 import com.box.sdk.BoxAPIRequest;
 import com.exclamationlabs.connid.box.testutil.AbstractTests;
 import com.exclamationlabs.connid.box.testutil.TestUtils;
+import org.identityconnectors.framework.common.exceptions.ConnectorSecurityException;
 import org.identityconnectors.framework.common.exceptions.RetryableException;
 import org.identityconnectors.framework.common.objects.ConnectorObject;
 import org.identityconnectors.framework.common.objects.Name;
@@ -272,4 +274,45 @@ class UserGetTests extends AbstractTests {
         assertNotNull(e);
         assertEquals(2, count.get());
     }
+
+    @Test
+    void getUser_unauthorized() {
+        // Given
+        String uid = "11446498";
+        String login = "ceo@example.com";
+
+        BoxAPIConnection api = mockAPI.getAPIConnection();
+        api.setLastRefresh(System.currentTimeMillis());
+        api.setExpires(60 * 60 * 1000);
+
+        mockAPI.push(req -> {
+            throw unauthorized();
+        });
+        AtomicReference<BoxAPIRequest> request = new AtomicReference<>();
+        mockAPI.push(req -> {
+            request.set(req);
+
+            return ok("user-get.json");
+        });
+
+        // When
+        assertThrows(ConnectorSecurityException.class, () -> {
+            connector.getObject(OBJECT_CLASS_USER,
+                    new Uid(uid, new Name(login)),
+                    new OperationOptionsBuilder()
+                            .build());
+        });
+        // The revoked token is expired to re-authenticate the connection
+        assertTrue(api.needsRefresh());
+
+        ConnectorObject result = connector.getObject(OBJECT_CLASS_USER,
+                new Uid(uid, new Name(login)),
+                new OperationOptionsBuilder()
+                        .build());
+
+        // Then
+        assertNotNull(request.get());
+        assertEquals("/2.0/users/" + uid, request.get().getUrl().getPath());
+        assertEquals(uid, result.getUid().getUidValue());
+    }
 }
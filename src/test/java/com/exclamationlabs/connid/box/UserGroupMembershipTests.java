@@ -10,6 +10,8 @@ package com.exclamationlabs.connid.box;
 import com.box.sdk.BoxAPIRequest;
 import com.exclamationlabs.connid.box.testutil.AbstractTests;
 import com.exclamationlabs.connid.box.testutil.TestUtils;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+import org.identityconnectors.framework.common.exceptions.RetryableException;
 import org.identityconnectors.framework.common.objects.*;
 import org.junit.jupiter.api.Test;
 
@@ -389,6 +391,48 @@ class UserGroupMembershipTests extends AbstractTests {
         assertEquals("87654321", getJsonObject(requests.get(2), "group").get("id").asString());
     }
 
+    @Test
+    void updateUser_group_add_3_with_partial_failure() {
+        // Given
+        String login = "ceo@example.com";
+
+        Set<AttributeDelta> modifications = new HashSet<>();
+        modifications.add(AttributeDeltaBuilder.build("group_membership",
+                Arrays.asList("12345678", "87654321", "11111111"),
+                null));
+
+        List<BoxAPIRequest> requests = new ArrayList<>();
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            throw conflict();
+        });
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return created("group-membership-add-user-to-group-1.json");
+        });
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            throw conflict();
+        });
+
+        // When
+        ConnectorException e = assertThrows(ConnectorException.class, () -> {
+            connector.updateDelta(OBJECT_CLASS_USER,
+                    new Uid("11446498", new Name(login)),
+                    modifications, new OperationOptionsBuilder().build());
+        });
+
+        // Then
+        // All the mutations are executed even if some of them fail
+        assertEquals(3, requests.size());
+        assertFalse(e instanceof RetryableException);
+        assertTrue(e.getMessage().startsWith("Failed 2 of 3 group membership operations"));
+        assertEquals(1, e.getSuppressed().length);
+    }
+
     @Test
     void updateUser_group_admin_add_1() {
         // Given
@@ -849,6 +893,50 @@ class UserGroupMembershipTests extends AbstractTests {
         assertEquals("/2.0/group_memberships/11111111", requests.get(2).getUrl().getPath());
     }
 
+    @Test
+    void updateUser_group_and_group_admin_remove_with_single_listing() {
+        // Given
+        String login = "ceo@example.com";
+
+        Set<AttributeDelta> modifications = new HashSet<>();
+        modifications.add(AttributeDeltaBuilder.build("group_membership",
+                null,
+                Arrays.asList("12345678")));
+        modifications.add(AttributeDeltaBuilder.build("group_admin_membership",
+                null,
+                Arrays.asList("23456789")));
+
+        List<BoxAPIRequest> requests = new ArrayList<>();
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("user-group-membership-3.json");
+        });
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return noContent();
+        });
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return noContent();
+        });
+
+        // When
+        Set<AttributeDelta> sideEffects = connector.updateDelta(OBJECT_CLASS_USER,
+                new Uid("11446498", new Name(login)),
+                modifications, new OperationOptionsBuilder().build());
+
+        // Then
+        // The memberships are fetched only once
+        assertEquals(3, requests.size());
+        assertNull(sideEffects);
+        assertEquals("/2.0/users/11446498/memberships", requests.get(0).getUrl().getPath());
+        assertEquals("/2.0/group_memberships/11111111", requests.get(1).getUrl().getPath());
+        assertEquals("/2.0/group_memberships/33333333", requests.get(2).getUrl().getPath());
+    }
+
     @Test
     void updateUser_group_remove_2() {
         // Given
@@ -1458,6 +1546,60 @@ class UserGroupMembershipTests extends AbstractTests {
                 result.getAttributeByName(ATTR_GROUP_ADMIN_MEMBERSHIP_PERMISSION).getValue().get(0));
     }
 
+    @Test
+    void getUser_group_3_with_group_admin_and_permission_in_membership_list() {
+        // Given
+        String uid = "11446498";
+        String login = "ceo@example.com";
+
+        List<BoxAPIRequest> requests = new ArrayList<>();
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("user-get.json");
+        });
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("user-group-membership-3-with-permission.json");
+        });
+        mockAPI.push(req -> {
+            fail("Shouldn't be called");
+            return null;
+        });
+
+        // When
+        ConnectorObject result = connector.getObject(OBJECT_CLASS_USER,
+                new Uid(uid, new Name(login)),
+                new OperationOptionsBuilder()
+                        .setReturnDefaultAttributes(true)
+                        .setAttributesToGet(
+                                ATTR_GROUP_MEMBERSHIP,
+                                ATTR_GROUP_ADMIN_MEMBERSHIP,
+                                ATTR_GROUP_ADMIN_MEMBERSHIP_PERMISSION
+                        )
+                        .build());
+
+        // Then
+        assertEquals(2, requests.size());
+        assertEquals("/2.0/users/" + uid, requests.get(0).getUrl().getPath());
+        assertEquals("/2.0/users/" + uid + "/memberships", requests.get(1).getUrl().getPath());
+
+        Map<String, String> query = TestUtils.parseQuery(requests.get(1));
+        assertNotNull(query.get("fields"));
+        Set<String> fields = TestUtils.parseFields(query.get("fields"));
+        assertTrue(fields.contains("configurable_permissions"));
+
+        assertEquals(uid, result.getUid().getUidValue());
+
+        assertEquals(1, result.getAttributeByName(ATTR_GROUP_ADMIN_MEMBERSHIP).getValue().size());
+        assertEquals("23456789", result.getAttributeByName(ATTR_GROUP_ADMIN_MEMBERSHIP).getValue().get(0));
+
+        assertEquals(1, result.getAttributeByName(ATTR_GROUP_ADMIN_MEMBERSHIP_PERMISSION).getValue().size());
+        assertEquals("23456789#can_create_accounts=true,can_edit_accounts=false,can_instant_login=false,can_run_reports=true",
+                result.getAttributeByName(ATTR_GROUP_ADMIN_MEMBERSHIP_PERMISSION).getValue().get(0));
+    }
+
     @Test
     void getUser_group_3_with_admin_group_incomplete() {
         // Given
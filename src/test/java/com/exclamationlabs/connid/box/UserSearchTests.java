@@ -8,21 +8,42 @@
 package com.exclamationlabs.connid.box;
 
 import com.box.sdk.BoxAPIRequest;
+import com.box.sdk.BoxAPIResponse;
+import com.box.sdk.RequestInterceptor;
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonObject;
 import com.exclamationlabs.connid.box.testutil.AbstractTests;
 import com.exclamationlabs.connid.box.testutil.TestUtils;
+import org.identityconnectors.framework.common.exceptions.AlreadyExistsException;
 import org.identityconnectors.framework.common.objects.*;
 import org.identityconnectors.framework.common.objects.filter.EqualsFilter;
+import org.identityconnectors.framework.common.objects.filter.Filter;
+import org.identityconnectors.framework.common.objects.filter.FilterBuilder;
+import org.identityconnectors.framework.common.objects.filter.StartsWithFilter;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static com.exclamationlabs.connid.box.UsersHandler.*;
+import static com.exclamationlabs.connid.box.testutil.TestUtils.conflict;
 import static com.exclamationlabs.connid.box.testutil.TestUtils.mergeFields;
+import static com.exclamationlabs.connid.box.testutil.TestUtils.notFound;
 import static com.exclamationlabs.connid.box.testutil.TestUtils.ok;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -151,6 +172,548 @@ class UserSearchTests extends AbstractTests {
         assertEquals("Foo Bar", users.get(1).getAttributeByName("name").getValue().get(0));
     }
 
+    @Test
+    void searchAllUser_2_withMembershipPrefetch() {
+        // Given
+        List<BoxAPIRequest> requests = new ArrayList<>();
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("group-list-2.json");
+        });
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("user-group-membership-0.json");
+        });
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("group-member-2.json");
+        });
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("user-list-2.json");
+        });
+
+        BoxConfiguration configuration = newConfig();
+        configuration.setMembershipPrefetch(true);
+        updateConfiguration(configuration);
+
+        List<ConnectorObject> users = new ArrayList<>();
+        ResultsHandler handler = connectorObject -> {
+            users.add(connectorObject);
+            return true;
+        };
+
+        // When
+        connector.search(OBJECT_CLASS_USER,
+                null,
+                handler,
+                new OperationOptionsBuilder()
+                        .setReturnDefaultAttributes(true)
+                        .setAttributesToGet(
+                                ATTR_GROUP_MEMBERSHIP,
+                                ATTR_GROUP_ADMIN_MEMBERSHIP
+                        )
+                        .build());
+
+        // Then
+        assertEquals(4, requests.size());
+        assertEquals("/2.0/groups", requests.get(0).getUrl().getPath());
+        assertEquals("/2.0/groups/11446498/memberships", requests.get(1).getUrl().getPath());
+        assertEquals("/2.0/groups/12345678/memberships", requests.get(2).getUrl().getPath());
+        assertEquals("/2.0/users", requests.get(3).getUrl().getPath());
+
+        assertEquals(2, users.size());
+        assertEquals("11446498", users.get(0).getUid().getUidValue());
+        assertEquals(1, users.get(0).getAttributeByName(ATTR_GROUP_MEMBERSHIP).getValue().size());
+        assertEquals("12345678", users.get(0).getAttributeByName(ATTR_GROUP_MEMBERSHIP).getValue().get(0));
+        assertTrue(users.get(0).getAttributeByName(ATTR_GROUP_ADMIN_MEMBERSHIP).getValue().isEmpty());
+        assertEquals("12345678", users.get(1).getUid().getUidValue());
+        assertTrue(users.get(1).getAttributeByName(ATTR_GROUP_MEMBERSHIP).getValue().isEmpty());
+        assertEquals(1, users.get(1).getAttributeByName(ATTR_GROUP_ADMIN_MEMBERSHIP).getValue().size());
+        assertEquals("12345678", users.get(1).getAttributeByName(ATTR_GROUP_ADMIN_MEMBERSHIP).getValue().get(0));
+    }
+
+    @Test
+    void searchAllUser_2_withSearchParallelism() {
+        // Given
+        List<BoxAPIRequest> requests = Collections.synchronizedList(new ArrayList<>());
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("user-list-2.json");
+        });
+        // The memberships of the users are fetched in parallel
+        RequestInterceptor memberships = req -> {
+            requests.add(req);
+
+            return ok(req.getUrl().getPath().contains("11446498") ? "user-group-membership-1.json" : "user-group-membership-2.json");
+        };
+        mockAPI.push(memberships);
+        mockAPI.push(memberships);
+
+        BoxConfiguration configuration = newConfig();
+        configuration.setSearchParallelism(2);
+        updateConfiguration(configuration);
+
+        List<ConnectorObject> users = new ArrayList<>();
+        ResultsHandler handler = connectorObject -> {
+            users.add(connectorObject);
+            return true;
+        };
+
+        // When
+        connector.search(OBJECT_CLASS_USER,
+                null,
+                handler,
+                new OperationOptionsBuilder()
+                        .setReturnDefaultAttributes(true)
+                        .setAttributesToGet(ATTR_GROUP_MEMBERSHIP)
+                        .build());
+
+        // Then
+        assertEquals(3, requests.size());
+        // The pages follow the markers regardless of the parallelism
+        assertEquals("/2.0/users", requests.get(0).getUrl().getPath());
+        assertEquals("true", TestUtils.parseQuery(requests.get(0)).get("usemarker"));
+        assertNull(TestUtils.parseQuery(requests.get(0)).get("offset"));
+
+        Set<String> paths = requests.subList(1, 3).stream().map(r -> r.getUrl().getPath()).collect(Collectors.toSet());
+        assertEquals(new HashSet<>(Arrays.asList("/2.0/users/11446498/memberships", "/2.0/users/12345678/memberships")), paths);
+
+        // In the order of the page
+        assertEquals(2, users.size());
+        assertEquals("11446498", users.get(0).getUid().getUidValue());
+        assertEquals("Aaron Levie", users.get(0).getAttributeByName("name").getValue().get(0));
+        assertEquals(Collections.singletonList("12345678"), users.get(0).getAttributeByName(ATTR_GROUP_MEMBERSHIP).getValue());
+        assertEquals("12345678", users.get(1).getUid().getUidValue());
+        assertEquals(2, users.get(1).getAttributeByName(ATTR_GROUP_MEMBERSHIP).getValue().size());
+    }
+
+    @Test
+    void searchAllUser_2_withSearchParallelism_stopByHandler() {
+        // Given
+        List<BoxAPIRequest> requests = Collections.synchronizedList(new ArrayList<>());
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("user-list-2.json");
+        });
+        RequestInterceptor memberships = req -> {
+            requests.add(req);
+
+            return ok("user-group-membership-1.json");
+        };
+        mockAPI.push(memberships);
+        mockAPI.push(memberships);
+
+        BoxConfiguration configuration = newConfig();
+        configuration.setSearchParallelism(2);
+        updateConfiguration(configuration);
+
+        List<ConnectorObject> users = new ArrayList<>();
+        ResultsHandler handler = connectorObject -> {
+            users.add(connectorObject);
+            return false;
+        };
+
+        // When
+        connector.search(OBJECT_CLASS_USER,
+                null,
+                handler,
+                new OperationOptionsBuilder()
+                        .setReturnDefaultAttributes(true)
+                        .setAttributesToGet(ATTR_GROUP_MEMBERSHIP)
+                        .build());
+
+        // Then
+        // The memberships are fetched per batch of the parallelism
+        assertEquals(3, requests.size());
+        assertEquals(1, users.size());
+        assertEquals("11446498", users.get(0).getUid().getUidValue());
+    }
+
+    @Test
+    void searchAllUser_marker() {
+        // Given
+        List<BoxAPIRequest> requests = new ArrayList<>();
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("user-list-marker-1.json");
+        });
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("user-list-marker-2.json");
+        });
+
+        List<ConnectorObject> users = new ArrayList<>();
+
+        // When
+        connector.search(OBJECT_CLASS_USER,
+                null,
+                users::add,
+                new OperationOptionsBuilder()
+                        .build());
+
+        // Then
+        assertEquals(2, requests.size());
+        Map<String, String> query1 = TestUtils.parseQuery(requests.get(0));
+        assertEquals("true", query1.get("usemarker"));
+        assertEquals("1000", query1.get("limit"));
+        assertNull(query1.get("offset"));
+        assertNull(query1.get("marker"));
+        Map<String, String> query2 = TestUtils.parseQuery(requests.get(1));
+        assertEquals("true", query2.get("usemarker"));
+        assertEquals("marker-2", query2.get("marker"));
+
+        assertEquals(2, users.size());
+        assertEquals("11446498", users.get(0).getUid().getUidValue());
+        assertEquals("12345678", users.get(1).getUid().getUidValue());
+    }
+
+    @Test
+    void searchAllUser_marker_stopByHandler() {
+        // Given
+        List<BoxAPIRequest> requests = new ArrayList<>();
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("user-list-marker-1.json");
+        });
+        mockAPI.push(req -> {
+            fail("Shouldn't be called more than once");
+            return null;
+        });
+
+        BoxConfiguration configuration = newConfig();
+        configuration.setPagePrefetchDepth(0);
+        updateConfiguration(configuration);
+
+        List<ConnectorObject> users = new ArrayList<>();
+
+        // When
+        connector.search(OBJECT_CLASS_USER,
+                null,
+                connectorObject -> {
+                    users.add(connectorObject);
+                    return false;
+                },
+                new OperationOptionsBuilder()
+                        .build());
+
+        // Then
+        assertEquals(1, requests.size());
+        assertEquals(1, users.size());
+        assertEquals("11446498", users.get(0).getUid().getUidValue());
+    }
+
+    @Test
+    void searchAllUser_marker_resumeFromCheckpoint(@TempDir Path tempDir) {
+        // Given
+        Path checkpointFile = tempDir.resolve("users.checkpoint");
+        BoxConfiguration configuration = newConfig();
+        configuration.setUserScanCheckpointFile(checkpointFile.toString());
+        updateConfiguration(configuration);
+
+        mockAPI.push(req -> ok("user-list-marker-1.json"));
+        mockAPI.push(req -> ok("user-list-marker-2.json"));
+
+        // Interrupted while handling the second page
+        List<ConnectorObject> users = new ArrayList<>();
+        assertThrows(RuntimeException.class, () -> connector.search(OBJECT_CLASS_USER,
+                null,
+                connectorObject -> {
+                    if (!users.isEmpty()) {
+                        throw new IllegalStateException("Interrupted");
+                    }
+                    return users.add(connectorObject);
+                },
+                new OperationOptionsBuilder()
+                        .build()));
+        assertEquals(1, users.size());
+        assertTrue(Files.exists(checkpointFile));
+
+        List<BoxAPIRequest> requests = new ArrayList<>();
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("user-list-marker-2.json");
+        });
+
+        // When
+        List<ConnectorObject> resumedUsers = new ArrayList<>();
+        connector.search(OBJECT_CLASS_USER,
+                null,
+                resumedUsers::add,
+                new OperationOptionsBuilder()
+                        .setOption(OPTION_RESUME_FROM_CHECKPOINT, true)
+                        .build());
+
+        // Then
+        assertEquals(1, requests.size());
+        assertEquals("marker-2", TestUtils.parseQuery(requests.get(0)).get("marker"));
+        assertEquals(1, resumedUsers.size());
+        assertEquals("12345678", resumedUsers.get(0).getUid().getUidValue());
+        assertFalse(Files.exists(checkpointFile));
+    }
+
+    @Test
+    void searchAllUser_marker_notResumeWithoutOption(@TempDir Path tempDir) {
+        // Given
+        Path checkpointFile = tempDir.resolve("users.checkpoint");
+        BoxConfiguration configuration = newConfig();
+        configuration.setUserScanCheckpointFile(checkpointFile.toString());
+        updateConfiguration(configuration);
+
+        mockAPI.push(req -> ok("user-list-marker-1.json"));
+        mockAPI.push(req -> ok("user-list-marker-2.json"));
+
+        // Interrupted while handling the second page
+        assertThrows(RuntimeException.class, () -> connector.search(OBJECT_CLASS_USER,
+                null,
+                connectorObject -> {
+                    if (connectorObject.getUid().getUidValue().equals("12345678")) {
+                        throw new IllegalStateException("Interrupted");
+                    }
+                    return true;
+                },
+                new OperationOptionsBuilder()
+                        .build()));
+        assertTrue(Files.exists(checkpointFile));
+
+        List<BoxAPIRequest> requests = new ArrayList<>();
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("user-list-marker-1.json");
+        });
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("user-list-marker-2.json");
+        });
+
+        // When
+        List<ConnectorObject> users = new ArrayList<>();
+        connector.search(OBJECT_CLASS_USER,
+                null,
+                users::add,
+                new OperationOptionsBuilder()
+                        .build());
+
+        // Then
+        assertEquals(2, requests.size());
+        assertNull(TestUtils.parseQuery(requests.get(0)).get("marker"));
+        assertEquals(2, users.size());
+        assertFalse(Files.exists(checkpointFile));
+    }
+
+    @Test
+    void searchAllUser_marker_clearCheckpointWhenStoppedByHandler(@TempDir Path tempDir) {
+        // Given
+        Path checkpointFile = tempDir.resolve("users.checkpoint");
+        BoxConfiguration configuration = newConfig();
+        configuration.setUserScanCheckpointFile(checkpointFile.toString());
+        configuration.setPagePrefetchDepth(0);
+        updateConfiguration(configuration);
+
+        mockAPI.push(req -> ok("user-list-marker-1.json"));
+        mockAPI.push(req -> ok("user-list-marker-2.json"));
+
+        // When
+        List<ConnectorObject> users = new ArrayList<>();
+        connector.search(OBJECT_CLASS_USER,
+                null,
+                connectorObject -> {
+                    users.add(connectorObject);
+                    // Stop at the first user of the second page
+                    return users.size() < 2;
+                },
+                new OperationOptionsBuilder()
+                        .build());
+
+        // Then
+        assertEquals(2, users.size());
+        assertFalse(Files.exists(checkpointFile));
+    }
+
+    @Test
+    void searchAllUser_paged_firstPage() {
+        // Given
+        List<BoxAPIRequest> requests = new ArrayList<>();
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("user-list-marker-1.json");
+        });
+        mockAPI.push(req -> {
+            fail("Shouldn't be called more than once");
+            return null;
+        });
+
+        List<ConnectorObject> users = new ArrayList<>();
+        ResultsHandler handler = connectorObject -> {
+            users.add(connectorObject);
+            return true;
+        };
+
+        // When
+        SearchResult result = connector.search(OBJECT_CLASS_USER,
+                null,
+                handler,
+                new OperationOptionsBuilder()
+                        .setPageSize(1)
+                        .build());
+
+        // Then
+        assertEquals(1, requests.size());
+        assertEquals("/2.0/users", requests.get(0).getUrl().getPath());
+        Map<String, String> query = TestUtils.parseQuery(requests.get(0));
+        assertEquals("true", query.get("usemarker"));
+        assertEquals("1", query.get("limit"));
+        assertNull(query.get("marker"));
+
+        assertEquals(1, users.size());
+        assertEquals("11446498", users.get(0).getUid().getUidValue());
+
+        assertEquals("marker-2", result.getPagedResultsCookie());
+        assertEquals(-1, result.getRemainingPagedResults());
+    }
+
+    @Test
+    void searchAllUser_paged_lastPage() {
+        // Given
+        List<BoxAPIRequest> requests = new ArrayList<>();
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("user-list-marker-2.json");
+        });
+
+        List<ConnectorObject> users = new ArrayList<>();
+        ResultsHandler handler = connectorObject -> {
+            users.add(connectorObject);
+            return true;
+        };
+
+        // When
+        SearchResult result = connector.search(OBJECT_CLASS_USER,
+                null,
+                handler,
+                new OperationOptionsBuilder()
+                        .setPageSize(1)
+                        .setPagedResultsCookie("marker-2")
+                        .build());
+
+        // Then
+        assertEquals(1, requests.size());
+        Map<String, String> query = TestUtils.parseQuery(requests.get(0));
+        assertEquals("marker-2", query.get("marker"));
+
+        assertEquals(1, users.size());
+        assertEquals("12345678", users.get(0).getUid().getUidValue());
+
+        assertNull(result.getPagedResultsCookie());
+    }
+
+    @Test
+    void searchAllUser_paged_stopByHandlerInMiddleOfPage() {
+        // Given
+        List<BoxAPIRequest> requests = new ArrayList<>();
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("user-list-2.json");
+        });
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("user-list-2.json");
+        });
+
+        List<ConnectorObject> users = new ArrayList<>();
+
+        // When
+        SearchResult result1 = connector.search(OBJECT_CLASS_USER,
+                null,
+                connectorObject -> {
+                    users.add(connectorObject);
+                    return false;
+                },
+                new OperationOptionsBuilder()
+                        .setPageSize(2)
+                        .build());
+        SearchResult result2 = connector.search(OBJECT_CLASS_USER,
+                null,
+                users::add,
+                new OperationOptionsBuilder()
+                        .setPageSize(2)
+                        .setPagedResultsCookie(result1.getPagedResultsCookie())
+                        .build());
+
+        // Then
+        // The second search starts from the same page and skips the user already returned
+        assertEquals(2, requests.size());
+        assertNull(TestUtils.parseQuery(requests.get(1)).get("marker"));
+        assertEquals("1:", result1.getPagedResultsCookie());
+        assertNull(result2.getPagedResultsCookie());
+
+        assertEquals(2, users.size());
+        assertEquals("11446498", users.get(0).getUid().getUidValue());
+        assertEquals("12345678", users.get(1).getUid().getUidValue());
+    }
+
+    @Test
+    void searchAllUser_marker_fullAttributes_sameAsGetUser() {
+        // Given
+        JsonObject page = TestUtils.readJSONFile("user-list-1.json");
+        JsonObject user = page.get("entries").asArray().get(0).asObject();
+        // Multi-valued attributes
+        user.set("my_tags", Json.array("important", "vip"));
+        user.get("tracking_codes").asArray().add(Json.object()
+                .add("type", "tracking_code")
+                .add("name", "region")
+                .add("value", "APAC"));
+
+        // The marker scan maps the page with the streaming parser
+        mockAPI.push(req -> ok(page));
+        mockAPI.push(req -> ok("user-group-membership-2.json"));
+        // The lookup by uid maps BoxUser.Info with the projection plan
+        mockAPI.push(req -> ok(user));
+        mockAPI.push(req -> ok("user-group-membership-2.json"));
+
+        Set<String> attributesToGet = new HashSet<>(Arrays.asList(UsersHandler.STANDARD_ATTRS));
+        attributesToGet.addAll(Arrays.asList(UsersHandler.FULL_ATTRS));
+        attributesToGet.add(ATTR_GROUP_MEMBERSHIP);
+        attributesToGet.add(ATTR_GROUP_ADMIN_MEMBERSHIP);
+        OperationOptions options = new OperationOptionsBuilder()
+                .setAttributesToGet(attributesToGet)
+                .build();
+
+        List<ConnectorObject> users = new ArrayList<>();
+
+        // When
+        connector.search(OBJECT_CLASS_USER, null, users::add, options);
+        ConnectorObject result = connector.getObject(OBJECT_CLASS_USER, new Uid("11446498"), options);
+
+        // Then
+        assertEquals(1, users.size());
+        assertEquals(result.getUid(), users.get(0).getUid());
+        assertEquals(result.getAttributes(), users.get(0).getAttributes());
+
+        assertEquals(Arrays.asList("important", "vip"), users.get(0).getAttributeByName(ATTR_MY_TAGS).getValue());
+        assertEquals(2, users.get(0).getAttributeByName(ATTR_TRACKING_CODES).getValue().size());
+        assertEquals(2, users.get(0).getAttributeByName(ATTR_GROUP_MEMBERSHIP).getValue().size());
+        assertTrue(users.get(0).getAttributeByName(ATTR_GROUP_ADMIN_MEMBERSHIP).getValue().isEmpty());
+        assertEquals("Acme Inc.", AttributeUtil.getStringValue(users.get(0).getAttributeByName(ATTR_ENTERPRISE_NAME)));
+        assertEquals(Boolean.TRUE, AttributeUtil.getBooleanValue(users.get(0).getAttributeByName(OperationalAttributes.ENABLE_NAME)));
+    }
+
     @Test
     void searchAllUser_empty() {
         // Given
@@ -316,4 +879,258 @@ class UserSearchTests extends AbstractTests {
         assertNotNull(request.get());
         assertEquals(0, users.size());
     }
+
+    @Test
+    void searchUserByNamePrefix() {
+        // Given
+        AtomicReference<BoxAPIRequest> request = new AtomicReference<>();
+        mockAPI.push(req -> {
+            request.set(req);
+
+            return ok("user-list-2.json");
+        });
+
+        List<ConnectorObject> users = new ArrayList<>();
+        ResultsHandler handler = connectorObject -> {
+            users.add(connectorObject);
+            return true;
+        };
+
+        // When
+        connector.search(OBJECT_CLASS_USER,
+                new StartsWithFilter(new Name("ceo")),
+                handler,
+                new OperationOptionsBuilder()
+                        .build());
+
+        // Then
+        assertNotNull(request.get());
+        assertEquals("/2.0/users", request.get().getUrl().getPath());
+        assertEquals("ceo", TestUtils.parseQuery(request.get()).get("filter_term"));
+
+        assertEquals(1, users.size());
+        assertEquals("11446498", users.get(0).getUid().getUidValue());
+    }
+
+    @Test
+    void searchUserByExternalAppUserId() {
+        // Given
+        String externalAppUserId = "my-user-1234";
+
+        AtomicReference<BoxAPIRequest> request = new AtomicReference<>();
+        mockAPI.push(req -> {
+            request.set(req);
+
+            return ok("user-list-1.json");
+        });
+
+        List<ConnectorObject> users = new ArrayList<>();
+        ResultsHandler handler = connectorObject -> {
+            users.add(connectorObject);
+            return true;
+        };
+
+        // When
+        connector.search(OBJECT_CLASS_USER,
+                new EqualsFilter(AttributeBuilder.build(ATTR_EXTERNAL_APP_USER_ID, externalAppUserId)),
+                handler,
+                new OperationOptionsBuilder()
+                        .setAttributesToGet(ATTR_EXTERNAL_APP_USER_ID)
+                        .build());
+
+        // Then
+        assertNotNull(request.get());
+        Map<String, String> query = TestUtils.parseQuery(request.get());
+        assertEquals(externalAppUserId, query.get("external_app_user_id"));
+        assertNull(query.get("filter_term"));
+
+        assertEquals(1, users.size());
+        assertEquals("11446498", users.get(0).getUid().getUidValue());
+    }
+
+    @Test
+    void searchUsersByUids() {
+        // Given
+        List<BoxAPIRequest> requests = new ArrayList<>();
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            return ok("user-get.json");
+        });
+        mockAPI.push(req -> {
+            requests.add(req);
+
+            throw notFound();
+        });
+
+        List<ConnectorObject> users = new ArrayList<>();
+        ResultsHandler handler = connectorObject -> {
+            users.add(connectorObject);
+            return true;
+        };
+
+        // When
+        connector.search(OBJECT_CLASS_USER,
+                FilterBuilder.or(
+                        FilterBuilder.equalTo(new Uid("11446498")),
+                        FilterBuilder.equalTo(new Uid("12345678"))),
+                handler,
+                new OperationOptionsBuilder()
+                        .build());
+
+        // Then
+        assertEquals(2, requests.size());
+        assertEquals("/2.0/users/11446498", requests.get(0).getUrl().getPath());
+        assertEquals("/2.0/users/12345678", requests.get(1).getUrl().getPath());
+
+        // The unknown uid is skipped
+        assertEquals(1, users.size());
+        assertEquals("11446498", users.get(0).getUid().getUidValue());
+    }
+
+    /**
+     * Push the mock APIs for the concurrent lookups. They are called in any order, so each one responds by the uid
+     * in the path.
+     */
+    private void pushLookups(int count, Function<String, BoxAPIResponse> responder) {
+        for (int i = 0; i < count; i++) {
+            mockAPI.push(req -> {
+                String path = req.getUrl().getPath();
+                return responder.apply(path.substring(path.lastIndexOf('/') + 1));
+            });
+        }
+    }
+
+    private static BoxAPIResponse user(String uid) {
+        return ok(TestUtils.readJSONFile("user-get.json").set("id", uid));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            fail(e);
+        }
+    }
+
+    private static Filter uids(String... uids) {
+        return FilterBuilder.or(Arrays.stream(uids)
+                .map(uid -> FilterBuilder.equalTo(new Uid(uid)))
+                .toArray(Filter[]::new));
+    }
+
+    @Test
+    void searchUsersByUids_parallel_inUidOrder() {
+        // Given
+        BoxConfiguration conf = newConfig();
+        conf.setLookupParallelism(3);
+        updateConfiguration(conf);
+
+        CountDownLatch othersRequested = new CountDownLatch(2);
+        pushLookups(3, uid -> {
+            if (uid.equals("1")) {
+                // The first user is responded last
+                await(othersRequested);
+            } else {
+                othersRequested.countDown();
+            }
+            return user(uid);
+        });
+
+        List<ConnectorObject> users = new ArrayList<>();
+
+        // When
+        connector.search(OBJECT_CLASS_USER, uids("1", "2", "3"), users::add, new OperationOptionsBuilder().build());
+
+        // Then
+        assertEquals(3, users.size());
+        assertEquals("1", users.get(0).getUid().getUidValue());
+        assertEquals("2", users.get(1).getUid().getUidValue());
+        assertEquals("3", users.get(2).getUid().getUidValue());
+    }
+
+    @Test
+    void searchUsersByUids_parallel_skipUnknownUid() {
+        // Given
+        BoxConfiguration conf = newConfig();
+        conf.setLookupParallelism(3);
+        updateConfiguration(conf);
+
+        pushLookups(3, uid -> {
+            if (uid.equals("2")) {
+                throw notFound();
+            }
+            return user(uid);
+        });
+
+        List<ConnectorObject> users = new ArrayList<>();
+
+        // When
+        connector.search(OBJECT_CLASS_USER, uids("1", "2", "3"), users::add, new OperationOptionsBuilder().build());
+
+        // Then
+        assertEquals(2, users.size());
+        assertEquals("1", users.get(0).getUid().getUidValue());
+        assertEquals("3", users.get(1).getUid().getUidValue());
+    }
+
+    @Test
+    void searchUsersByUids_parallel_rethrowFirstFailure() {
+        // Given
+        BoxConfiguration conf = newConfig();
+        conf.setLookupParallelism(3);
+        updateConfiguration(conf);
+
+        CountDownLatch lastFailed = new CountDownLatch(1);
+        pushLookups(3, uid -> {
+            if (uid.equals("2")) {
+                // The failure of the earlier uid happens later
+                await(lastFailed);
+                throw conflict();
+            }
+            if (uid.equals("3")) {
+                lastFailed.countDown();
+                throw new IllegalStateException("Failed to fetch");
+            }
+            return user(uid);
+        });
+
+        List<ConnectorObject> users = new ArrayList<>();
+
+        // When
+        assertThrows(AlreadyExistsException.class, () -> connector.search(OBJECT_CLASS_USER, uids("1", "2", "3"),
+                users::add, new OperationOptionsBuilder().build()));
+
+        // Then
+        // The results before the failure are handled
+        assertEquals(1, users.size());
+        assertEquals("1", users.get(0).getUid().getUidValue());
+    }
+
+    @Test
+    void searchUsersByUids_parallel_stopByHandler() {
+        // Given
+        BoxConfiguration conf = newConfig();
+        conf.setLookupParallelism(3);
+        updateConfiguration(conf);
+
+        AtomicInteger requests = new AtomicInteger();
+        pushLookups(3, uid -> {
+            requests.incrementAndGet();
+            return user(uid);
+        });
+
+        List<ConnectorObject> users = new ArrayList<>();
+
+        // When
+        connector.search(OBJECT_CLASS_USER, uids("1", "2", "3"), connectorObject -> {
+            users.add(connectorObject);
+            return false;
+        }, new OperationOptionsBuilder().build());
+
+        // Then
+        assertEquals(3, requests.get());
+        assertEquals(1, users.size());
+        assertEquals("1", users.get(0).getUid().getUidValue());
+    }
 }
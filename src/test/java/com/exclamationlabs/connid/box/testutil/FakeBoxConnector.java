@@ -0,0 +1,42 @@
+package com.exclamationlabs.connid.box.testutil;
+
+import com.box.sdk.BoxConfig;
+import com.box.sdk.DeveloperEditionEntityType;
+import com.exclamationlabs.connid.box.BoxConnection;
+import com.exclamationlabs.connid.box.BoxConnector;
+
+/**
+ * BoxConnector implementation which connects to {@link FakeBoxServer} through HTTP instead of the real Box API.
+ * Only the connection is replaced, so the requests go through the same interceptors, rate limiter, metrics,
+ * connection pool, token cache and object cache as the real connector. The JWT token exchange is skipped and
+ * a fixed access token is used instead.
+ * The connector instances are created by the connector framework, so the server is passed via {@link #use(FakeBoxServer)}
+ * and the configuration must have {@link FakeBoxServer#getConfigJson()} as the JWT config.
+ *
+ * @author Hiroyuki Wada
+ */
+public class FakeBoxConnector extends BoxConnector {
+
+    private static final long EXPIRES_MILLIS = 60 * 60 * 1000;
+
+    private static volatile FakeBoxServer server;
+
+    public static void use(FakeBoxServer server) {
+        FakeBoxConnector.server = server;
+    }
+
+    @Override
+    protected BoxConnection createConnection(BoxConfig boxConfig) {
+        BoxConnection connection = new BoxConnection(boxConfig.getEnterpriseId(), DeveloperEditionEntityType.ENTERPRISE,
+                boxConfig.getClientId(), boxConfig.getClientSecret(), boxConfig.getJWTEncryptionPreferences()) {
+            @Override
+            public void authenticate() {
+                setAccessToken("fake-access-token");
+                setLastRefresh(System.currentTimeMillis());
+                setExpires(EXPIRES_MILLIS);
+            }
+        };
+        connection.setBaseURL(server.getBaseURL());
+        return connection;
+    }
+}
@@ -0,0 +1,469 @@
+package com.exclamationlabs.connid.box.testutil;
+
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonArray;
+import com.eclipsesource.json.JsonObject;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * In-memory Box enterprise served by {@link FakeBoxServer}: users, groups, group memberships, email aliases
+ * and the admin events of the changes. All the methods are synchronized so that it can be called by
+ * the concurrent requests.
+ *
+ * @author Hiroyuki Wada
+ */
+public class FakeBoxDataset {
+
+    private static final String TIMESTAMP = "2012-12-12T10:53:43-08:00";
+
+    private static final long USER_ID_BASE = 10000000L;
+    private static final long GROUP_ID_BASE = 20000000L;
+    private static final long MEMBERSHIP_ID_BASE = 30000000L;
+    private static final long ALIAS_ID_BASE = 40000000L;
+
+    // Sorted by id to page them by offset or marker
+    private final TreeMap<Long, JsonObject> users = new TreeMap<>();
+    private final TreeMap<Long, JsonObject> groups = new TreeMap<>();
+    private final TreeMap<Long, JsonObject> memberships = new TreeMap<>();
+    private final Map<String, List<JsonObject>> emailAliases = new HashMap<>();
+    private final List<JsonObject> events = new ArrayList<>();
+
+    private final AtomicLong nextUserId = new AtomicLong(USER_ID_BASE);
+    private final AtomicLong nextGroupId = new AtomicLong(GROUP_ID_BASE);
+    private final AtomicLong nextMembershipId = new AtomicLong(MEMBERSHIP_ID_BASE);
+    private final AtomicLong nextAliasId = new AtomicLong(ALIAS_ID_BASE);
+
+    /**
+     * Error response of Box API.
+     */
+    public static class ApiError extends RuntimeException {
+        public final int status;
+        public final String code;
+
+        public ApiError(int status, String code, String message) {
+            super(message);
+            this.status = status;
+            this.code = code;
+        }
+
+        public JsonObject toJson() {
+            return new JsonObject()
+                    .add("type", "error")
+                    .add("status", status)
+                    .add("code", code)
+                    .add("message", getMessage());
+        }
+    }
+
+    /**
+     * Generate the dataset. Each user is a member of the groups chosen round-robin, so every group has
+     * about users * membershipsPerUser / groups members. The generation doesn't record any event.
+     */
+    public static FakeBoxDataset generate(int users, int groups, int membershipsPerUser) {
+        FakeBoxDataset dataset = new FakeBoxDataset();
+        List<String> groupIds = new ArrayList<>(groups);
+        for (int i = 0; i < groups; i++) {
+            groupIds.add(dataset.putGroup(new JsonObject()
+                    .add("name", "Group " + i)
+                    .add("description", "Generated group " + i)
+                    .add("provenance", "Generated")
+                    .add("external_sync_identifier", "GEN:" + i)).getString("id", null));
+        }
+        for (int i = 0; i < users; i++) {
+            String userId = dataset.putUser(new JsonObject()
+                    .add("login", "user" + i + "@example.com")
+                    .add("name", "User " + i)
+                    .add("job_title", "Engineer")
+                    .add("external_app_user_id", "app-user-" + i)).getString("id", null);
+            for (int m = 0; m < Math.min(membershipsPerUser, groups); m++) {
+                dataset.putMembership(userId, groupIds.get((i + m) % groups), "member");
+            }
+        }
+        return dataset;
+    }
+
+    // Users
+
+    public synchronized int getUserCount() {
+        return users.size();
+    }
+
+    public synchronized JsonObject getUser(String id) {
+        return copy(find(users, id, "user"));
+    }
+
+    public synchronized JsonObject findUserByLogin(String login) {
+        for (JsonObject user : users.values()) {
+            if (user.getString("login", "").equalsIgnoreCase(login)) {
+                return copy(user);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * "List enterprise users" by offset or marker. The filter term matches the prefix of the name or login.
+     */
+    public synchronized JsonObject listUsers(String filterTerm, String externalAppUserId, long offset, int limit,
+                                             String marker, boolean useMarker) {
+        Predicate<JsonObject> filter = user -> {
+            if (filterTerm != null && !startsWithIgnoreCase(user.getString("name", ""), filterTerm) &&
+                    !startsWithIgnoreCase(user.getString("login", ""), filterTerm)) {
+                return false;
+            }
+            return externalAppUserId == null || externalAppUserId.equals(user.getString("external_app_user_id", null));
+        };
+        return list(users, filter, offset, limit, marker, useMarker);
+    }
+
+    public synchronized JsonObject createUser(JsonObject params) {
+        String login = params.getString("login", null);
+        if (login == null || params.get("name") == null) {
+            throw new ApiError(400, "bad_request", "login and name are required");
+        }
+        if (findUserByLogin(login) != null) {
+            throw new ApiError(409, "user_login_already_used", "User with the specified login already exists");
+        }
+        JsonObject user = putUser(params);
+        addEvent("NEW_USER", mini(user));
+        return copy(user);
+    }
+
+    public synchronized JsonObject updateUser(String id, JsonObject params) {
+        JsonObject user = find(users, id, "user");
+        merge(user, params);
+        addEvent("EDIT_USER", mini(user));
+        return copy(user);
+    }
+
+    public synchronized void deleteUser(String id) {
+        JsonObject user = find(users, id, "user");
+        for (JsonObject membership : select(memberships, m -> id.equals(userIdOf(m)))) {
+            deleteMembership(membership.getString("id", null));
+        }
+        users.remove(Long.valueOf(id));
+        emailAliases.remove(id);
+        addEvent("DELETE_USER", mini(user));
+    }
+
+    private JsonObject putUser(JsonObject params) {
+        String id = String.valueOf(nextUserId.getAndIncrement());
+        JsonObject user = new JsonObject()
+                .add("type", "user")
+                .add("id", id)
+                .add("created_at", TIMESTAMP)
+                .add("modified_at", TIMESTAMP)
+                .add("language", "en")
+                .add("timezone", "America/Los_Angeles")
+                .add("space_amount", 10737418240L)
+                .add("space_used", 0)
+                .add("max_upload_size", 2147483648L)
+                .add("status", "active")
+                .add("job_title", "")
+                .add("phone", "")
+                .add("address", "")
+                .add("avatar_url", "https://www.box.com/api/avatar/large/" + id)
+                .add("role", "user")
+                .add("tracking_codes", new JsonArray())
+                .add("can_see_managed_users", false)
+                .add("is_sync_enabled", true)
+                .add("is_external_collab_restricted", false)
+                .add("is_exempt_from_device_limits", false)
+                .add("is_exempt_from_login_verification", false)
+                .add("enterprise", new JsonObject()
+                        .add("type", "enterprise")
+                        .add("id", "88888888")
+                        .add("name", "Fake Inc."))
+                .add("my_tags", new JsonArray())
+                .add("hostname", "https://fake.app.box.com/")
+                .add("is_platform_access_only", false)
+                .add("external_app_user_id", Json.NULL);
+        merge(user, params);
+        users.put(Long.valueOf(id), user);
+        return user;
+    }
+
+    // Groups
+
+    public synchronized int getGroupCount() {
+        return groups.size();
+    }
+
+    public synchronized JsonObject getGroup(String id) {
+        return copy(find(groups, id, "group"));
+    }
+
+    public synchronized JsonObject listGroups(String filterTerm, long offset, int limit) {
+        return list(groups, group -> filterTerm == null || startsWithIgnoreCase(group.getString("name", ""), filterTerm),
+                offset, limit, null, false);
+    }
+
+    public synchronized JsonObject createGroup(JsonObject params) {
+        String name = params.getString("name", null);
+        if (name == null) {
+            throw new ApiError(400, "bad_request", "name is required");
+        }
+        if (!select(groups, g -> name.equals(g.getString("name", null))).isEmpty()) {
+            throw new ApiError(409, "conflict", "Group with the specified name already exists");
+        }
+        JsonObject group = putGroup(params);
+        addEvent("GROUP_CREATION", mini(group));
+        return copy(group);
+    }
+
+    public synchronized JsonObject updateGroup(String id, JsonObject params) {
+        JsonObject group = find(groups, id, "group");
+        merge(group, params);
+        addEvent("GROUP_EDITED", mini(group));
+        return copy(group);
+    }
+
+    public synchronized void deleteGroup(String id) {
+        JsonObject group = find(groups, id, "group");
+        for (JsonObject membership : select(memberships, m -> id.equals(groupIdOf(m)))) {
+            memberships.remove(Long.valueOf(membership.getString("id", null)));
+        }
+        groups.remove(Long.valueOf(id));
+        addEvent("GROUP_DELETION", mini(group));
+    }
+
+    private JsonObject putGroup(JsonObject params) {
+        String id = String.valueOf(nextGroupId.getAndIncrement());
+        JsonObject group = new JsonObject()
+                .add("type", "group")
+                .add("id", id)
+                .add("group_type", "managed_group")
+                .add("created_at", TIMESTAMP)
+                .add("modified_at", TIMESTAMP)
+                .add("provenance", "")
+                .add("external_sync_identifier", "")
+                .add("description", "")
+                .add("invitability_level", "admins_only")
+                .add("member_viewability_level", "admins_only");
+        merge(group, params);
+        groups.put(Long.valueOf(id), group);
+        return group;
+    }
+
+    // Group memberships
+
+    public synchronized JsonObject getMembership(String id) {
+        return copy(find(memberships, id, "group_membership"));
+    }
+
+    public synchronized JsonObject listUserMemberships(String userId, long offset, int limit) {
+        find(users, userId, "user");
+        return list(memberships, m -> userId.equals(userIdOf(m)), offset, limit, null, false);
+    }
+
+    public synchronized JsonObject listGroupMemberships(String groupId, long offset, int limit) {
+        find(groups, groupId, "group");
+        return list(memberships, m -> groupId.equals(groupIdOf(m)), offset, limit, null, false);
+    }
+
+    public synchronized JsonObject createMembership(JsonObject params) {
+        String userId = params.get("user").asObject().getString("id", null);
+        String groupId = params.get("group").asObject().getString("id", null);
+        find(users, userId, "user");
+        find(groups, groupId, "group");
+        if (!select(memberships, m -> userId.equals(userIdOf(m)) && groupId.equals(groupIdOf(m))).isEmpty()) {
+            throw new ApiError(409, "conflict", "User is already a member of the group");
+        }
+        JsonObject membership = putMembership(userId, groupId, params.getString("role", "member"));
+        if (params.get("configurable_permissions") != null) {
+            membership.set("configurable_permissions", params.get("configurable_permissions"));
+        }
+        addEvent("GROUP_ADD_USER", membership.get("user").asObject());
+        return copy(membership);
+    }
+
+    public synchronized JsonObject updateMembership(String id, JsonObject params) {
+        JsonObject membership = find(memberships, id, "group_membership");
+        merge(membership, params);
+        return copy(membership);
+    }
+
+    public synchronized void deleteMembership(String id) {
+        JsonObject membership = find(memberships, id, "group_membership");
+        memberships.remove(Long.valueOf(id));
+        addEvent("GROUP_REMOVE_USER", membership.get("user").asObject());
+    }
+
+    private JsonObject putMembership(String userId, String groupId, String role) {
+        String id = String.valueOf(nextMembershipId.getAndIncrement());
+        JsonObject user = users.get(Long.valueOf(userId));
+        JsonObject group = groups.get(Long.valueOf(groupId));
+        JsonObject membership = new JsonObject()
+                .add("type", "group_membership")
+                .add("id", id)
+                .add("user", mini(user).add("login", user.getString("login", "")))
+                .add("group", mini(group).add("group_type", group.getString("group_type", "managed_group")))
+                .add("role", role)
+                .add("created_at", TIMESTAMP)
+                .add("modified_at", TIMESTAMP);
+        memberships.put(Long.valueOf(id), membership);
+        return membership;
+    }
+
+    // Email aliases
+
+    public synchronized JsonObject listEmailAliases(String userId) {
+        find(users, userId, "user");
+        JsonArray entries = new JsonArray();
+        emailAliases.getOrDefault(userId, Collections.emptyList()).forEach(a -> entries.add(copy(a)));
+        return new JsonObject()
+                .add("total_count", entries.size())
+                .add("entries", entries);
+    }
+
+    public synchronized JsonObject createEmailAlias(String userId, JsonObject params) {
+        find(users, userId, "user");
+        JsonObject alias = new JsonObject()
+                .add("type", "email_alias")
+                .add("id", String.valueOf(nextAliasId.getAndIncrement()))
+                .add("email", params.getString("email", ""))
+                .add("is_confirmed", true);
+        emailAliases.computeIfAbsent(userId, k -> new ArrayList<>()).add(alias);
+        return copy(alias);
+    }
+
+    public synchronized void deleteEmailAlias(String userId, String aliasId) {
+        find(users, userId, "user");
+        List<JsonObject> aliases = emailAliases.getOrDefault(userId, Collections.emptyList());
+        if (!aliases.removeIf(a -> aliasId.equals(a.getString("id", null)))) {
+            throw new ApiError(404, "not_found", "Not Found");
+        }
+    }
+
+    // Events
+
+    /**
+     * "admin_logs_streaming" events. The stream position is the index of the next event, and "now" is the latest position.
+     */
+    public synchronized JsonObject listEvents(String streamPosition, int limit, Set<String> eventTypes) {
+        int position = streamPosition == null || streamPosition.equals("now") ? events.size() :
+                (int) Math.min(Long.parseLong(streamPosition), events.size());
+        JsonArray entries = new JsonArray();
+        while (position < events.size() && entries.size() < limit) {
+            JsonObject event = events.get(position++);
+            if (eventTypes == null || eventTypes.contains(event.getString("event_type", null))) {
+                entries.add(event);
+            }
+        }
+        return new JsonObject()
+                .add("chunk_size", entries.size())
+                .add("next_stream_position", String.valueOf(position))
+                .add("entries", entries);
+    }
+
+    private void addEvent(String eventType, JsonObject source) {
+        events.add(new JsonObject()
+                .add("type", "event")
+                .add("event_id", UUID.randomUUID().toString())
+                .add("event_type", eventType)
+                .add("created_at", TIMESTAMP)
+                .add("created_by", new JsonObject()
+                        .add("type", "user")
+                        .add("id", "99999999")
+                        .add("name", "Admin")
+                        .add("login", "admin@example.com"))
+                .add("source", copy(source)));
+    }
+
+    // Helpers
+
+    private static JsonObject list(TreeMap<Long, JsonObject> objects, Predicate<JsonObject> filter, long offset, int limit,
+                                   String marker, boolean useMarker) {
+        Collection<JsonObject> candidates = marker != null ?
+                objects.tailMap(Long.valueOf(marker), false).values() : objects.values();
+        JsonArray entries = new JsonArray();
+        long matched = 0;
+        String lastId = null;
+        boolean more = false;
+        for (JsonObject object : candidates) {
+            if (!filter.test(object)) {
+                continue;
+            }
+            if (useMarker) {
+                if (entries.size() == limit) {
+                    more = true;
+                    break;
+                }
+                entries.add(copy(object));
+                lastId = object.getString("id", null);
+            } else {
+                if (matched >= offset && entries.size() < limit) {
+                    entries.add(copy(object));
+                }
+                matched++;
+            }
+        }
+        JsonObject page = new JsonObject()
+                .add("limit", limit)
+                .add("entries", entries);
+        if (useMarker) {
+            page.add("next_marker", more ? Json.value(lastId) : Json.NULL);
+        } else {
+            page.add("total_count", matched).add("offset", offset);
+        }
+        return page;
+    }
+
+    private static List<JsonObject> select(TreeMap<Long, JsonObject> objects, Predicate<JsonObject> filter) {
+        List<JsonObject> selected = new ArrayList<>();
+        for (JsonObject object : objects.values()) {
+            if (filter.test(object)) {
+                selected.add(object);
+            }
+        }
+        return selected;
+    }
+
+    private static JsonObject find(TreeMap<Long, JsonObject> objects, String id, String type) {
+        JsonObject object = null;
+        try {
+            object = objects.get(Long.valueOf(id));
+        } catch (NumberFormatException ignore) {
+            // Not found
+        }
+        if (object == null) {
+            throw new ApiError(404, "not_found", "Not Found: " + type + " " + id);
+        }
+        return object;
+    }
+
+    private static String userIdOf(JsonObject membership) {
+        return membership.get("user").asObject().getString("id", null);
+    }
+
+    private static String groupIdOf(JsonObject membership) {
+        return membership.get("group").asObject().getString("id", null);
+    }
+
+    private static JsonObject mini(JsonObject object) {
+        return new JsonObject()
+                .add("type", object.getString("type", null))
+                .add("id", object.getString("id", null))
+                .add("name", object.getString("name", ""));
+    }
+
+    private static void merge(JsonObject target, JsonObject params) {
+        for (JsonObject.Member member : params) {
+            if (member.getName().equals("id") || member.getName().equals("type")) {
+                continue;
+            }
+            target.set(member.getName(), member.getValue());
+        }
+    }
+
+    private static JsonObject copy(JsonObject object) {
+        return new JsonObject(object);
+    }
+
+    private static boolean startsWithIgnoreCase(String s, String prefix) {
+        return s.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+}
@@ -0,0 +1,354 @@
+package com.exclamationlabs.connid.box.testutil;
+
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process stand-in of Box API backed by {@link FakeBoxDataset}. Unlike {@link MockBoxAPIHelper}, it serves
+ * real HTTP requests from any thread, so it can be used to measure the throughput of concurrent connector
+ * instances through the whole HTTP stack. The round-trip time, jitter and rate limit are configurable, and
+ * the requests over the rate limit get "429 Too Many Requests" with "Retry-After".
+ *
+ * <pre>
+ * try (FakeBoxServer server = new FakeBoxServer(FakeBoxDataset.generate(50000, 100, 3))
+ *         .latency(50, 20)
+ *         .rateLimit(100, 1)
+ *         .start()) {
+ *     FakeBoxConnector.use(server);
+ *     configuration.setConfigJson(new GuardedString(server.getConfigJson().toCharArray()));
+ * }
+ * </pre>
+ *
+ * @author Hiroyuki Wada
+ */
+public class FakeBoxServer implements AutoCloseable {
+
+    private static final Pattern USER = Pattern.compile("/2\\.0/users/([^/]+)");
+    private static final Pattern USER_MEMBERSHIPS = Pattern.compile("/2\\.0/users/([^/]+)/memberships");
+    private static final Pattern USER_EMAIL_ALIASES = Pattern.compile("/2\\.0/users/([^/]+)/email_aliases");
+    private static final Pattern USER_EMAIL_ALIAS = Pattern.compile("/2\\.0/users/([^/]+)/email_aliases/([^/]+)");
+    private static final Pattern GROUP = Pattern.compile("/2\\.0/groups/([^/]+)");
+    private static final Pattern GROUP_MEMBERSHIPS = Pattern.compile("/2\\.0/groups/([^/]+)/memberships");
+    private static final Pattern MEMBERSHIP = Pattern.compile("/2\\.0/group_memberships/([^/]+)");
+
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1000;
+
+    private final FakeBoxDataset dataset;
+    private final String enterpriseId = "fake-" + UUID.randomUUID();
+
+    private int rttMillis;
+    private int jitterMillis;
+    private int maxRequestsPerSecond;
+    private int retryAfterSeconds = 1;
+    private int threads = 64;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    // Fixed window rate limiting per second
+    private long windowStartMillis;
+    private int windowRequests;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder userListRequests = new LongAdder();
+    private final LongAdder markerUserListRequests = new LongAdder();
+
+    public FakeBoxServer(FakeBoxDataset dataset) {
+        this.dataset = dataset;
+    }
+
+    /**
+     * Delay each response by the round-trip time plus a random jitter.
+     */
+    public FakeBoxServer latency(int rttMillis, int jitterMillis) {
+        this.rttMillis = rttMillis;
+        this.jitterMillis = jitterMillis;
+        return this;
+    }
+
+    /**
+     * Respond "429 Too Many Requests" to the requests over the rate. 0 means no rate limiting.
+     */
+    public FakeBoxServer rateLimit(int maxRequestsPerSecond, int retryAfterSeconds) {
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+        this.retryAfterSeconds = retryAfterSeconds;
+        return this;
+    }
+
+    /**
+     * Number of the server threads, which bounds the concurrent requests.
+     */
+    public FakeBoxServer threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    public FakeBoxServer start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "fake-box-server");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        return this;
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the base URL for BoxAPIConnection.setBaseURL
+     */
+    public String getBaseURL() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/";
+    }
+
+    /**
+     * @return a JWT config for {@link FakeBoxConnector}. The enterprise id is unique to this server, so that
+     * the process-wide caches of the connector for each Box app aren't shared with other servers.
+     */
+    public String getConfigJson() {
+        return Json.object()
+                .add("boxAppSettings", Json.object()
+                        .add("clientID", "fake-client")
+                        .add("clientSecret", "fake-secret")
+                        .add("appAuth", Json.object()
+                                .add("publicKeyID", "fake-key")
+                                .add("privateKey", "fake-private-key")
+                                .add("passphrase", "fake-passphrase")))
+                .add("enterpriseID", enterpriseId)
+                .toString();
+    }
+
+    public FakeBoxDataset getDataset() {
+        return dataset;
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public long getThrottledCount() {
+        return throttled.sum();
+    }
+
+    public long getUserListRequestCount() {
+        return userListRequests.sum();
+    }
+
+    /**
+     * Returns the number of the user list requests with marker-based pagination.
+     */
+    public long getMarkerUserListRequestCount() {
+        return markerUserListRequests.sum();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.increment();
+        try {
+            delay();
+
+            if (!acquire()) {
+                throttled.increment();
+                exchange.getResponseHeaders().add("Retry-After", String.valueOf(retryAfterSeconds));
+                send(exchange, 429, new FakeBoxDataset.ApiError(429, "rate_limit_exceeded", "Request rate limit exceeded").toJson());
+                return;
+            }
+
+            try {
+                JsonObject response = route(exchange);
+                if (response == null) {
+                    send(exchange, 204, null);
+                } else {
+                    send(exchange, exchange.getRequestMethod().equals("POST") ? 201 : 200, response);
+                }
+            } catch (FakeBoxDataset.ApiError e) {
+                send(exchange, e.status, e.toJson());
+            }
+        } catch (RuntimeException e) {
+            send(exchange, 500, new FakeBoxDataset.ApiError(500, "internal_server_error", String.valueOf(e)).toJson());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private JsonObject route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        Matcher m;
+
+        if (path.equals("/2.0/users")) {
+            if (method.equals("GET")) {
+                userListRequests.increment();
+                if ("true".equals(query.get("usemarker"))) {
+                    markerUserListRequests.increment();
+                }
+                return dataset.listUsers(query.get("filter_term"), query.get("external_app_user_id"),
+                        offset(query), limit(query), query.get("marker"), "true".equals(query.get("usemarker")));
+            }
+            if (method.equals("POST")) {
+                return dataset.createUser(readBody(exchange));
+            }
+        } else if ((m = USER_MEMBERSHIPS.matcher(path)).matches()) {
+            return dataset.listUserMemberships(m.group(1), offset(query), limit(query));
+
+        } else if ((m = USER_EMAIL_ALIASES.matcher(path)).matches()) {
+            if (method.equals("GET")) {
+                return dataset.listEmailAliases(m.group(1));
+            }
+            if (method.equals("POST")) {
+                return dataset.createEmailAlias(m.group(1), readBody(exchange));
+            }
+        } else if ((m = USER_EMAIL_ALIAS.matcher(path)).matches()) {
+            if (method.equals("DELETE")) {
+                dataset.deleteEmailAlias(m.group(1), m.group(2));
+                return null;
+            }
+        } else if ((m = USER.matcher(path)).matches()) {
+            switch (method) {
+                case "GET":
+                    return dataset.getUser(m.group(1));
+                case "PUT":
+                    return dataset.updateUser(m.group(1), readBody(exchange));
+                case "DELETE":
+                    dataset.deleteUser(m.group(1));
+                    return null;
+            }
+        } else if (path.equals("/2.0/groups")) {
+            if (method.equals("GET")) {
+                return dataset.listGroups(query.get("filter_term"), offset(query), limit(query));
+            }
+            if (method.equals("POST")) {
+                return dataset.createGroup(readBody(exchange));
+            }
+        } else if ((m = GROUP_MEMBERSHIPS.matcher(path)).matches()) {
+            return dataset.listGroupMemberships(m.group(1), offset(query), limit(query));
+
+        } else if ((m = GROUP.matcher(path)).matches()) {
+            switch (method) {
+                case "GET":
+                    return dataset.getGroup(m.group(1));
+                case "PUT":
+                    return dataset.updateGroup(m.group(1), readBody(exchange));
+                case "DELETE":
+                    dataset.deleteGroup(m.group(1));
+                    return null;
+            }
+        } else if (path.equals("/2.0/group_memberships")) {
+            if (method.equals("POST")) {
+                return dataset.createMembership(readBody(exchange));
+            }
+        } else if ((m = MEMBERSHIP.matcher(path)).matches()) {
+            switch (method) {
+                case "GET":
+                    return dataset.getMembership(m.group(1));
+                case "PUT":
+                    return dataset.updateMembership(m.group(1), readBody(exchange));
+                case "DELETE":
+                    dataset.deleteMembership(m.group(1));
+                    return null;
+            }
+        } else if (path.equals("/2.0/events")) {
+            String eventType = query.get("event_type");
+            Set<String> eventTypes = eventType != null ? new HashSet<>(Arrays.asList(eventType.split(","))) : null;
+            return dataset.listEvents(query.get("stream_position"), limit(query), eventTypes);
+        }
+
+        throw new FakeBoxDataset.ApiError(404, "not_found", "Unsupported API: " + method + " " + path);
+    }
+
+    private void delay() {
+        int millis = rttMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextInt(jitterMillis + 1) : 0);
+        if (millis > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private synchronized boolean acquire() {
+        if (maxRequestsPerSecond <= 0) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (now - windowStartMillis >= 1000) {
+            windowStartMillis = now;
+            windowRequests = 0;
+        }
+        return ++windowRequests <= maxRequestsPerSecond;
+    }
+
+    private static long offset(Map<String, String> query) {
+        return query.containsKey("offset") ? Long.parseLong(query.get("offset")) : 0;
+    }
+
+    private static int limit(Map<String, String> query) {
+        return query.containsKey("limit") ? Math.min(Integer.parseInt(query.get("limit")), MAX_LIMIT) : DEFAULT_LIMIT;
+    }
+
+    private static JsonObject readBody(HttpExchange exchange) throws IOException {
+        try (Reader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            return Json.parse(reader).asObject();
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, JsonObject body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws UnsupportedEncodingException {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int i = pair.indexOf('=');
+            if (i > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, i), "UTF-8"), URLDecoder.decode(pair.substring(i + 1), "UTF-8"));
+            }
+        }
+        return query;
+    }
+}
@@ -2,6 +2,8 @@ package com.exclamationlabs.connid.box.testutil;
 
 import com.exclamationlabs.connid.box.BoxConnector;
 
+import java.util.UUID;
+
 /**
  * BoxConnector implementation for local testing environment which uses mock Box API instead of the real Box API.
  *
@@ -12,6 +14,8 @@ public class LocalBoxConnector extends BoxConnector {
     @Override
     protected void authenticateResource() {
         boxAPI = MockBoxAPIHelper.instance().getAPIConnection();
+        // Don't share the cache with other tests
+        objectCache = createObjectCache(UUID.randomUUID().toString());
     }
 
     @Override
@@ -47,8 +47,13 @@ public class MockBoxAPIHelper {
     public void init() {
         this.api.setMaxRetryAttempts(1); // Set 1 for testing
         this.api.setRequestInterceptor(req -> {
-            if (interceptors.size() == 0) {
-                fail("Mock Box API wasn't set but an API was called.\n" + req.toString());
+            RequestInterceptor interceptor;
+            // The API might be called concurrently by the connector
+            synchronized (interceptors) {
+                if (interceptors.size() == 0) {
+                    fail("Mock Box API wasn't set but an API was called.\n" + req.toString());
+                }
+                interceptor = interceptors.pop();
             }
 
             System.out.println("-->");
@@ -57,7 +62,7 @@ public class MockBoxAPIHelper {
 
             // Call pushed Mock API
             try {
-                BoxAPIResponse res = interceptors.pop().onRequest(req);
+                BoxAPIResponse res = interceptor.onRequest(req);
 
                 if (res instanceof BoxJSONResponse) {
                     BoxJSONResponse jsonRes = (BoxJSONResponse) res;
@@ -85,7 +90,9 @@ public class MockBoxAPIHelper {
                 throw e;
             }
         });
-        this.interceptors.clear();
+        synchronized (interceptors) {
+            this.interceptors.clear();
+        }
     }
 
     public void setMaxRequestAttempts(int attempts) {
@@ -99,6 +106,8 @@ public class MockBoxAPIHelper {
      * @param interceptor
      */
     public void push(RequestInterceptor interceptor) {
-        this.interceptors.add(interceptor);
+        synchronized (interceptors) {
+            this.interceptors.add(interceptor);
+        }
     }
 }
@@ -55,6 +55,10 @@ public class TestUtils {
         return new BoxJSONResponse(200, "", "", new TreeMap(String.CASE_INSENSITIVE_ORDER), readJSONFile(path));
     }
 
+    public static BoxAPIResponse ok(JsonObject json) {
+        return new BoxJSONResponse(200, "", "", new TreeMap(String.CASE_INSENSITIVE_ORDER), json);
+    }
+
     public static BoxAPIResponse noContent() {
         return new BoxAPIResponse(204, "", "", new TreeMap(String.CASE_INSENSITIVE_ORDER));
     }
@@ -117,6 +121,11 @@ public class TestUtils {
         return e;
     }
 
+    public static BoxAPIResponseException unauthorized() {
+        BoxAPIResponseException e = new BoxAPIResponseException("Unauthorized", 401, "", new TreeMap(String.CASE_INSENSITIVE_ORDER));
+        return e;
+    }
+
     public static BoxAPIResponseException conflict() {
         // TODO: set real API message
         BoxAPIResponseException e = new BoxAPIResponseException("A resource with this value already exists", 409, "{\"code\":\"conflict\"}", new TreeMap(String.CASE_INSENSITIVE_ORDER));
@@ -129,6 +138,13 @@ public class TestUtils {
         return e;
     }
 
+    public static BoxAPIResponseException tooManyRequests() {
+        Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.put("Retry-After", Collections.singletonList("0"));
+        BoxAPIResponseException e = new BoxAPIResponseException("Too Many Requests", 429, "{\"code\":\"rate_limit_exceeded\"}", headers);
+        return e;
+    }
+
     public static BoxAPIResponseException internalServerError() {
         BoxAPIResponseException e = new BoxAPIResponseException("Internal Server Error", 500, "{\"code\":\"internal_server_error\"}", new TreeMap(String.CASE_INSENSITIVE_ORDER));
         return e;